@@ -0,0 +1,153 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.repository;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.openlmis.fulfillment.domain.FtpProtocol;
+import org.openlmis.fulfillment.domain.FtpTransferProperties;
+import org.openlmis.fulfillment.domain.OrderFileColumn;
+import org.openlmis.fulfillment.domain.OrderFileTemplate;
+import org.openlmis.fulfillment.domain.TransferProperties;
+import org.openlmis.fulfillment.service.OrderFileTemplateService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.UUID;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Checks that configuration entities are read from the second-level cache and that writes evict
+ * the cached entries. Tests are not transactional, so every repository call uses a new session.
+ */
+@SpringBootTest
+@DirtiesContext
+@RunWith(SpringRunner.class)
+public class ConfigurationCacheIntegrationTest {
+
+  @Autowired
+  private OrderFileTemplateService orderFileTemplateService;
+
+  @Autowired
+  private OrderFileTemplateRepository orderFileTemplateRepository;
+
+  @Autowired
+  private TransferPropertiesRepository transferPropertiesRepository;
+
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
+  private Statistics statistics;
+
+  @Before
+  public void setUp() {
+    statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    statistics.setStatisticsEnabled(true);
+  }
+
+  @After
+  public void cleanUp() {
+    statistics.setStatisticsEnabled(false);
+    transferPropertiesRepository.deleteAll();
+  }
+
+  @Test
+  public void shouldReadOrderFileTemplateFromCache() {
+    orderFileTemplateService.getOrderFileTemplate();
+
+    statistics.clear();
+    OrderFileTemplate template = orderFileTemplateService.getOrderFileTemplate();
+
+    assertThat(template.getOrderFileColumns().isEmpty(), is(false));
+    assertThat(statistics.getPrepareStatementCount(), is(0L));
+  }
+
+  @Test
+  public void shouldEvictOrderFileTemplateOnWrite() {
+    OrderFileTemplate template = orderFileTemplateService.getOrderFileTemplate();
+    OrderFileColumn column = template.getOrderFileColumns().get(0);
+
+    template.setFilePrefix("cached");
+    column.setColumnLabel("cachedLabel");
+    orderFileTemplateRepository.save(template);
+
+    template = orderFileTemplateService.getOrderFileTemplate();
+
+    assertThat(template.getFilePrefix(), is("cached"));
+    assertThat(template.getOrderFileColumns().get(0).getColumnLabel(), is("cachedLabel"));
+  }
+
+  @Test
+  public void shouldReadTransferPropertiesByFacilityFromQueryCache() {
+    UUID facilityId = UUID.randomUUID();
+    transferPropertiesRepository.save(generateTransferProperties(facilityId));
+
+    transferPropertiesRepository.findFirstByFacilityId(facilityId);
+
+    statistics.clear();
+    TransferProperties found = transferPropertiesRepository.findFirstByFacilityId(facilityId);
+
+    assertThat(found.getFacilityId(), is(facilityId));
+    assertThat(statistics.getQueryCacheHitCount(), is(1L));
+    assertThat(statistics.getPrepareStatementCount(), is(0L));
+  }
+
+  @Test
+  public void shouldEvictTransferPropertiesOnWrite() {
+    UUID facilityId = UUID.randomUUID();
+    FtpTransferProperties properties = transferPropertiesRepository
+        .save(generateTransferProperties(facilityId));
+
+    transferPropertiesRepository.findFirstByFacilityId(facilityId);
+
+    properties.setServerHost("changed");
+    transferPropertiesRepository.save(properties);
+
+    statistics.clear();
+    FtpTransferProperties found =
+        (FtpTransferProperties) transferPropertiesRepository.findFirstByFacilityId(facilityId);
+
+    assertThat(found.getServerHost(), is("changed"));
+    assertThat(statistics.getPrepareStatementCount(), is(not(0L)));
+  }
+
+  private FtpTransferProperties generateTransferProperties(UUID facilityId) {
+    FtpTransferProperties properties = new FtpTransferProperties();
+    properties.setFacilityId(facilityId);
+    properties.setProtocol(FtpProtocol.FTP);
+    properties.setServerHost("host");
+    properties.setServerPort(21);
+    properties.setRemoteDirectory("remote");
+    properties.setLocalDirectory("local");
+    properties.setUsername("user");
+    properties.setPassword("password");
+    properties.setPassiveMode(true);
+
+    return properties;
+  }
+
+}
@@ -17,22 +17,37 @@ package org.openlmis.fulfillment.repository;
 
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 
 import org.junit.Test;
 import org.openlmis.fulfillment.domain.BaseEntity;
 import org.openlmis.fulfillment.domain.Order;
+import org.openlmis.fulfillment.domain.OrderAggregate;
 import org.openlmis.fulfillment.domain.OrderLineItem;
 import org.openlmis.fulfillment.domain.OrderStatus;
+import org.openlmis.fulfillment.domain.OrderSummary;
+import org.openlmis.fulfillment.service.OrderCursor;
+import org.openlmis.fulfillment.web.ValidationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.repository.CrudRepository;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
@@ -109,34 +124,244 @@ public class OrderRepositoryIntegrationTest extends BaseCrudRepositoryIntegratio
     Order four = orderRepository.save(generateInstance(OrderStatus.PICKED));
     Order five = orderRepository.save(generateInstance(OrderStatus.SHIPPED));
 
-    List<Order> list = orderRepository.searchOrders(null, null, null, null, null);
+    Page<Order> list = orderRepository.searchOrders(null, null, null, null, null, null, null);
     assertSearchOrders(list, one, two, three, four, five);
 
-    list = orderRepository.searchOrders(one.getSupplyingFacilityId(), null, null, null, null);
+    list = orderRepository.searchOrders(
+        one.getSupplyingFacilityId(), null, null, null, null, null, null
+    );
     assertSearchOrders(list, one);
 
-    list = orderRepository.searchOrders(null, two.getRequestingFacilityId(), null, null, null);
+    list = orderRepository.searchOrders(
+        null, two.getRequestingFacilityId(), null, null, null, null, null
+    );
     assertSearchOrders(list, two);
 
-    list = orderRepository.searchOrders(null, null, three.getProgramId(), null, null);
+    list = orderRepository.searchOrders(null, null, three.getProgramId(), null, null, null, null);
     assertSearchOrders(list, three);
 
-    list = orderRepository.searchOrders(null, null, null, four.getProcessingPeriodId(), null);
+    list = orderRepository.searchOrders(
+        null, null, null, four.getProcessingPeriodId(), null, null, null
+    );
     assertSearchOrders(list, four);
 
-    list = orderRepository.searchOrders(null, null, null, null, EnumSet.of(five.getStatus()));
+    list = orderRepository.searchOrders(
+        null, null, null, null, EnumSet.of(five.getStatus()), null, null
+    );
     assertSearchOrders(list, five);
 
     list = orderRepository.searchOrders(
-        null, null, null, null, EnumSet.of(one.getStatus(), four.getStatus())
+        null, null, null, null, EnumSet.of(one.getStatus(), four.getStatus()), null, null
     );
     assertSearchOrders(list, one, four);
+
+    list = orderRepository.searchOrders(null, null, null, null, null,
+        Sets.newHashSet(two.getSupplyingFacilityId(), three.getSupplyingFacilityId()), null);
+    assertSearchOrders(list, two, three);
+
+    list = orderRepository.searchOrders(
+        null, null, null, null, null, Collections.emptySet(), null
+    );
+    assertSearchOrders(list);
+  }
+
+  @Test
+  public void shouldReturnRequestedPageOfSortedOrders() {
+    List<Order> orders = new ArrayList<>();
+
+    for (String code : new String[]{"C", "A", "E", "B", "D"}) {
+      Order order = generateInstance();
+      order.setOrderCode(code);
+      orders.add(orderRepository.save(order));
+    }
+
+    Pageable pageable = new PageRequest(1, 2, Sort.Direction.ASC, "orderCode");
+    Page<Order> page = orderRepository.searchOrders(
+        null, null, null, null, null, null, pageable
+    );
+
+    assertThat(page.getTotalElements(), is(5L));
+    assertThat(page.getTotalPages(), is(3));
+    assertThat(page.getContent().get(0).getOrderCode(), is("C"));
+    assertThat(page.getContent().get(1).getOrderCode(), is("D"));
+
+    page = orderRepository.searchOrders(
+        null, null, null, null, null, null, new PageRequest(2, 2, Sort.Direction.DESC, "orderCode")
+    );
+
+    assertThat(page.getTotalElements(), is(5L));
+    assertSearchOrders(page, orders.get(1));
+  }
+
+  @Test(expected = ValidationException.class)
+  public void shouldRejectUnsupportedSortProperty() {
+    orderRepository.searchOrders(
+        null, null, null, null, null, null, new PageRequest(0, 10, Sort.Direction.ASC, "quotedCost")
+    );
+  }
+
+  @Test
+  public void shouldReadAllOrdersWithCursor() {
+    Set<UUID> expected = new HashSet<>();
+
+    for (int i = 0; i < 5; ++i) {
+      expected.add(orderRepository.save(generateInstance()).getId());
+    }
+
+    List<UUID> actual = new ArrayList<>();
+    OrderCursor cursor = null;
+    List<Order> orders;
+
+    do {
+      orders = orderRepository.searchOrders(null, null, null, null, null, null, cursor, 2);
+      assertThat(orders.size(), lessThanOrEqualTo(2));
+
+      for (Order order : orders) {
+        actual.add(order.getId());
+        cursor = OrderCursor.of(order);
+      }
+    } while (!orders.isEmpty());
+
+    assertThat(actual, hasSize(expected.size()));
+    assertThat(new HashSet<>(actual), equalTo(expected));
+  }
+
+  @Test
+  public void shouldReadOrdersWithCursorOnlyFromGivenWarehouses() {
+    Order order = orderRepository.save(generateInstance());
+    orderRepository.save(generateInstance());
+
+    List<Order> orders = orderRepository.searchOrders(
+        null, null, null, null, null, Collections.singleton(order.getSupplyingFacilityId()),
+        null, 10
+    );
+
+    assertThat(orders, hasSize(1));
+    assertThat(orders.get(0).getId(), is(order.getId()));
+    assertThat(orderRepository.searchOrders(
+        null, null, null, null, null, Collections.emptySet(), null, 10), hasSize(0));
+  }
+
+  @Test
+  public void shouldReturnSummariesOfSearchedOrders() {
+    Order order = orderRepository.save(generateInstance(OrderStatus.SHIPPED));
+    orderRepository.save(generateInstance(OrderStatus.SHIPPED));
+
+    Page<OrderSummary> page = orderRepository.searchOrderSummaries(
+        null, order.getRequestingFacilityId(), null, null, EnumSet.of(OrderStatus.SHIPPED),
+        null, new PageRequest(0, 10)
+    );
+
+    assertThat(page.getTotalElements(), is(1L));
+
+    OrderSummary summary = page.getContent().get(0);
+    assertThat(summary.getId(), is(order.getId()));
+    assertThat(summary.getOrderCode(), is(order.getOrderCode()));
+    assertThat(summary.getStatus(), is(OrderStatus.SHIPPED));
+    assertThat(summary.getEmergency(), is(order.getEmergency()));
+    assertThat(summary.getProgramId(), is(order.getProgramId()));
+    assertThat(summary.getRequestingFacilityId(), is(order.getRequestingFacilityId()));
+    assertThat(summary.getSupplyingFacilityId(), is(order.getSupplyingFacilityId()));
+    assertNotNull(summary.getCreatedDate());
+  }
+
+  @Test
+  public void shouldAggregateOrdersByGivenDimensions() {
+    Order first = generateInstance(OrderStatus.SHIPPED);
+    first.setOrderLineItems(Lists.newArrayList(generateLineItem(first), generateLineItem(first)));
+    first = orderRepository.save(first);
+
+    Order second = generateInstance(OrderStatus.SHIPPED);
+    second.setSupplyingFacilityId(first.getSupplyingFacilityId());
+    second.setOrderLineItems(Lists.newArrayList(generateLineItem(second)));
+    orderRepository.save(second);
+
+    Order third = generateInstance(OrderStatus.PICKING);
+    third.setSupplyingFacilityId(first.getSupplyingFacilityId());
+    orderRepository.save(third);
+
+    orderRepository.save(generateInstance(OrderStatus.SHIPPED));
+
+    List<OrderAggregate> aggregates = orderRepository.aggregateOrders(
+        first.getSupplyingFacilityId(), null, null, null, null, null,
+        EnumSet.of(OrderAggregate.Dimension.STATUS)
+    );
+
+    assertThat(aggregates, hasSize(2));
+
+    OrderAggregate picking = aggregates.get(0);
+    assertThat(picking.getStatus(), is(OrderStatus.PICKING));
+    assertThat(picking.getOrderCount(), is(1L));
+    assertThat(picking.getLineItemCount(), is(0L));
+    assertThat(picking.getTotalQuotedCost().compareTo(new BigDecimal("1.29")), is(0));
+
+    OrderAggregate shipped = aggregates.get(1);
+    assertThat(shipped.getStatus(), is(OrderStatus.SHIPPED));
+    assertThat(shipped.getOrderCount(), is(2L));
+    assertThat(shipped.getLineItemCount(), is(3L));
+    assertThat(shipped.getTotalQuotedCost().compareTo(new BigDecimal("2.58")), is(0));
+    assertThat(shipped.getSupplyingFacilityId(), is(nullValue()));
+  }
+
+  @Test
+  public void shouldAggregateOnlyOrdersFromGivenWarehouses() {
+    Order order = orderRepository.save(generateInstance());
+    orderRepository.save(generateInstance());
+
+    List<OrderAggregate> aggregates = orderRepository.aggregateOrders(
+        null, null, null, null, null, Collections.singleton(order.getSupplyingFacilityId()),
+        EnumSet.allOf(OrderAggregate.Dimension.class)
+    );
+
+    assertThat(aggregates, hasSize(1));
+    assertThat(aggregates.get(0).getSupplyingFacilityId(), is(order.getSupplyingFacilityId()));
+    assertThat(aggregates.get(0).getProgramId(), is(order.getProgramId()));
+    assertThat(aggregates.get(0).getProcessingPeriodId(), is(order.getProcessingPeriodId()));
+    assertThat(aggregates.get(0).getOrderCount(), is(1L));
+
+    aggregates = orderRepository.aggregateOrders(null, null, null, null, null,
+        Collections.emptySet(), EnumSet.allOf(OrderAggregate.Dimension.class));
+
+    assertThat(aggregates, hasSize(0));
+  }
+
+  @Test
+  public void shouldStreamAllOrdersInChunks() {
+    Set<UUID> expected = new HashSet<>();
+
+    for (int i = 0; i < 5; ++i) {
+      expected.add(orderRepository.save(generateInstance()).getId());
+    }
+
+    List<Integer> chunkSizes = new ArrayList<>();
+    Set<UUID> streamed = new HashSet<>();
+
+    orderRepository.streamAll(2, chunk -> {
+      chunkSizes.add(chunk.size());
+      chunk.forEach(order -> streamed.add(order.getId()));
+    });
+
+    assertThat(streamed.containsAll(expected), is(true));
+    assertThat(chunkSizes.stream().allMatch(size -> size > 0 && size <= 2), is(true));
+    assertThat(chunkSizes.stream().mapToInt(Integer::intValue).sum(), is(streamed.size()));
+  }
+
+  private OrderLineItem generateLineItem(Order order) {
+    OrderLineItem line = new OrderLineItem();
+    line.setOrder(order);
+    line.setOrderableId(UUID.randomUUID());
+    line.setOrderedQuantity(5L);
+    line.setFilledQuantity(0L);
+    line.setApprovedQuantity(0L);
+    line.setPacksToShip(0L);
+
+    return line;
   }
 
-  private void assertSearchOrders(List<Order> actual, Order... expected) {
-    assertThat(actual, hasSize(expected.length));
+  private void assertSearchOrders(Page<Order> actual, Order... expected) {
+    assertThat(actual.getContent(), hasSize(expected.length));
 
-    Set<UUID> actualIds = getIds(actual.stream());
+    Set<UUID> actualIds = getIds(actual.getContent().stream());
     Set<UUID> expectedIds = getIds(Stream.of(expected));
 
     assertThat(actualIds, hasSize(expected.length));
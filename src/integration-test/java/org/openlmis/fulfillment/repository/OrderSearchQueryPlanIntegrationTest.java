@@ -0,0 +1,200 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.repository;
+
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Checks that the queries used to search orders and to load their children are answered with
+ * indexes. The tables are seeded with a large, deterministic data set and analyzed, so the
+ * planner makes the same decisions on every run; all data is rolled back after each test.
+ */
+@Transactional
+@SpringBootTest
+@DirtiesContext
+@RunWith(SpringRunner.class)
+public class OrderSearchQueryPlanIntegrationTest {
+  private static final int ORDERS = 20000;
+  private static final String ORDER_ID = "md5('order' || i)::uuid";
+  private static final String ORDER_COLUMNS = "o.id, o.ordercode, o.status, o.createddate";
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  private ObjectMapper objectMapper = new ObjectMapper();
+
+  /**
+   * Seeds orders with their line items, status messages and proofs of delivery.
+   */
+  @Before
+  public void setUp() {
+    jdbcTemplate.update("INSERT INTO fulfillment.orders (id, createdbyid, createddate, emergency,"
+        + " externalid, ordercode, processingperiodid, programid, quotedcost, receivingfacilityid,"
+        + " requestingfacilityid, status, supplyingfacilityid)"
+        + " SELECT " + ORDER_ID + ", md5('user')::uuid,"
+        + " timestamp '2017-01-01' + i * interval '1 minute', false,"
+        + " md5('external' || i)::uuid, 'QUERY_PLAN_' || i, md5('period' || i % 60)::uuid,"
+        + " md5('program' || i % 7)::uuid, 0, md5('facility' || i % 500)::uuid,"
+        + " md5('facility' || i % 500)::uuid,"
+        + " CASE WHEN i % 100 = 0 THEN 'TRANSFER_FAILED' ELSE 'ORDERED' END,"
+        + " md5('warehouse' || i % 20)::uuid"
+        + " FROM generate_series(1, ?) AS i", ORDERS);
+
+    jdbcTemplate.update("INSERT INTO fulfillment.order_line_items (id, approvedquantity,"
+        + " filledquantity, orderableid, orderedquantity, orderid)"
+        + " SELECT md5('line' || i || '-' || j)::uuid, 10, 0, md5('orderable' || j)::uuid, 10, "
+        + ORDER_ID + " FROM generate_series(1, ?) AS i, generate_series(1, 3) AS j", ORDERS);
+
+    jdbcTemplate.update("INSERT INTO fulfillment.status_messages (id, body, status, orderid)"
+        + " SELECT md5('message' || i)::uuid, 'message', 'ORDERED', " + ORDER_ID
+        + " FROM generate_series(1, ?) AS i WHERE i % 10 = 0", ORDERS);
+
+    jdbcTemplate.update("INSERT INTO fulfillment.proof_of_deliveries (id, orderid)"
+        + " SELECT md5('pod' || i)::uuid, " + ORDER_ID
+        + " FROM generate_series(1, ?) AS i WHERE i % 4 = 0", ORDERS);
+
+    jdbcTemplate.update("INSERT INTO fulfillment.proof_of_delivery_line_items (id,"
+        + " orderlineitemid, proofofdeliveryid)"
+        + " SELECT md5('podline' || i || '-' || j)::uuid, md5('line' || i || '-' || j)::uuid,"
+        + " md5('pod' || i)::uuid"
+        + " FROM generate_series(1, ?) AS i, generate_series(1, 3) AS j WHERE i % 4 = 0", ORDERS);
+
+    for (String table : new String[]{"orders", "order_line_items", "status_messages",
+        "proof_of_deliveries", "proof_of_delivery_line_items"}) {
+      jdbcTemplate.execute("ANALYZE fulfillment." + table);
+    }
+  }
+
+  @Test
+  public void shouldSearchOrdersOfWarehousesWithIndex() throws IOException {
+    Plan plan = explain("SELECT " + ORDER_COLUMNS + " FROM fulfillment.orders o"
+        + " WHERE o.supplyingfacilityid IN (md5('warehouse1')::uuid, md5('warehouse2')::uuid)"
+        + " AND o.status IN ('ORDERED', 'TRANSFER_FAILED')"
+        + " ORDER BY o.createddate DESC, o.id LIMIT 20");
+
+    plan.assertUsesIndex("orders_supplyingfacilityid_createddate_idx");
+  }
+
+  @Test
+  public void shouldSearchOrdersOfRequestingFacilityWithIndex() throws IOException {
+    Plan plan = explain("SELECT " + ORDER_COLUMNS + " FROM fulfillment.orders o"
+        + " WHERE o.requestingfacilityid = md5('facility42')::uuid"
+        + " ORDER BY o.createddate DESC, o.id LIMIT 20");
+
+    plan.assertUsesIndex("orders_requestingfacilityid_createddate_idx");
+  }
+
+  @Test
+  public void shouldSearchOrdersOfProgramAndPeriodWithIndex() throws IOException {
+    Plan plan = explain("SELECT " + ORDER_COLUMNS + " FROM fulfillment.orders o"
+        + " WHERE o.programid = md5('program3')::uuid"
+        + " AND o.processingperiodid = md5('period10')::uuid"
+        + " ORDER BY o.createddate DESC, o.id LIMIT 20");
+
+    plan.assertUsesIndex("orders_programid_processingperiodid_idx");
+  }
+
+  @Test
+  public void shouldSearchOrdersWithStatusWithIndex() throws IOException {
+    Plan plan = explain("SELECT " + ORDER_COLUMNS + " FROM fulfillment.orders o"
+        + " WHERE o.status = 'TRANSFER_FAILED'"
+        + " ORDER BY o.createddate DESC, o.id LIMIT 20");
+
+    plan.assertUsesIndex("orders_status_createddate_idx");
+  }
+
+  @Test
+  public void shouldReadOrdersAfterCursorWithIndex() throws IOException {
+    Timestamp createdDate = Timestamp.valueOf("2017-01-10 00:00:00");
+
+    Plan plan = explain("SELECT " + ORDER_COLUMNS + " FROM fulfillment.orders o"
+        + " WHERE o.createddate >= ? AND (o.createddate > ? OR o.id > md5('order1')::uuid)"
+        + " ORDER BY o.createddate, o.id LIMIT 20", createdDate, createdDate);
+
+    plan.assertUsesIndex("orders_createddate_id_idx");
+  }
+
+  @Test
+  public void shouldLoadOrderChildrenWithIndexes() throws IOException {
+    explain("SELECT * FROM fulfillment.order_line_items WHERE orderid = md5('order8')::uuid")
+        .assertUsesIndex("order_line_items_orderid_idx");
+    explain("SELECT * FROM fulfillment.status_messages WHERE orderid = md5('order10')::uuid")
+        .assertUsesIndex("status_messages_orderid_idx");
+  }
+
+  @Test
+  public void shouldLoadProofOfDeliveryWithIndexes() throws IOException {
+    explain("SELECT * FROM fulfillment.proof_of_deliveries WHERE orderid = md5('order8')::uuid")
+        .assertUsesIndex("proof_of_deliveries_orderid_idx");
+    explain("SELECT * FROM fulfillment.proof_of_delivery_line_items"
+        + " WHERE proofofdeliveryid = md5('pod8')::uuid")
+        .assertUsesIndex("proof_of_delivery_line_items_proofofdeliveryid_idx");
+  }
+
+  private Plan explain(String sql, Object... args) throws IOException {
+    String json = jdbcTemplate.queryForObject("EXPLAIN (FORMAT JSON) " + sql, String.class, args);
+
+    Plan plan = new Plan();
+    plan.collect(objectMapper.readTree(json).get(0).get("Plan"));
+
+    return plan;
+  }
+
+  private static final class Plan {
+    private final Set<String> indexes = new HashSet<>();
+    private final Set<String> sequentialScans = new HashSet<>();
+
+    void collect(JsonNode node) {
+      if (node.has("Index Name")) {
+        indexes.add(node.get("Index Name").asText());
+      }
+
+      if ("Seq Scan".equals(node.path("Node Type").asText())) {
+        sequentialScans.add(node.get("Relation Name").asText());
+      }
+
+      for (JsonNode child : node.path("Plans")) {
+        collect(child);
+      }
+    }
+
+    void assertUsesIndex(String index) {
+      assertThat(indexes, hasItem(index));
+      assertThat(sequentialScans, is(empty()));
+    }
+  }
+}
@@ -0,0 +1,174 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.repository;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openlmis.fulfillment.domain.Order;
+import org.openlmis.fulfillment.domain.OrderStatus;
+import org.openlmis.fulfillment.domain.OrderTransfer;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+
+public class OrderTransferRepositoryIntegrationTest
+    extends BaseCrudRepositoryIntegrationTest<OrderTransfer> {
+
+  @Autowired
+  private OrderTransferRepository orderTransferRepository;
+
+  @Autowired
+  private OrderRepository orderRepository;
+
+  @Autowired
+  private EntityManager entityManager;
+
+  private Order order;
+
+  @Override
+  OrderTransferRepository getRepository() {
+    return this.orderTransferRepository;
+  }
+
+  @Override
+  OrderTransfer generateInstance() {
+    return new OrderTransfer(order.getId());
+  }
+
+  @Before
+  public void setUp() {
+    order = new Order();
+    order.setOrderCode("OrderTransferRepositoryIntegrationTest");
+    order.setExternalId(UUID.randomUUID());
+    order.setEmergency(false);
+    order.setQuotedCost(BigDecimal.ONE);
+    order.setStatus(OrderStatus.IN_ROUTE);
+    order.setProgramId(UUID.randomUUID());
+    order.setCreatedById(UUID.randomUUID());
+    order.setRequestingFacilityId(UUID.randomUUID());
+    order.setReceivingFacilityId(UUID.randomUUID());
+    order.setSupplyingFacilityId(UUID.randomUUID());
+    order.setOrderLineItems(new ArrayList<>());
+
+    order = orderRepository.save(order);
+  }
+
+  @Test
+  public void shouldFindDueTransfersOrderedByNextAttempt() {
+    ZonedDateTime now = ZonedDateTime.now();
+
+    OrderTransfer later = saveTransfer(now.minusMinutes(1), null);
+    OrderTransfer earlier = saveTransfer(now.minusMinutes(5), null);
+    saveTransfer(now.plusMinutes(5), null);
+    saveTransfer(now.minusMinutes(5), now.plusMinutes(5));
+
+    assertThat(findDue(now, 10), contains(earlier.getId(), later.getId()));
+    assertThat(findDue(now, 1), contains(earlier.getId()));
+  }
+
+  @Test
+  public void shouldFindTransfersWithExpiredClaim() {
+    ZonedDateTime now = ZonedDateTime.now();
+    OrderTransfer expired = saveTransfer(now.minusMinutes(5), now.minusMinutes(1));
+
+    assertThat(findDue(now, 10), contains(expired.getId()));
+  }
+
+  @Test
+  public void shouldClaimTransferOnlyOnce() {
+    ZonedDateTime now = ZonedDateTime.now();
+    OrderTransfer transfer = saveTransfer(now.minusMinutes(1), null);
+
+    assertTrue(orderTransferRepository.claim(transfer.getId(), now, now.plusMinutes(10)));
+    assertFalse(orderTransferRepository.claim(transfer.getId(), now, now.plusMinutes(10)));
+
+    entityManager.clear();
+    assertThat(findDue(now, 10), empty());
+
+    orderTransferRepository.release(transfer.getId());
+
+    entityManager.clear();
+    assertThat(findDue(now, 10), contains(transfer.getId()));
+  }
+
+  @Test
+  public void shouldNotClaimTransferThatIsNotDue() {
+    ZonedDateTime now = ZonedDateTime.now();
+    OrderTransfer transfer = saveTransfer(now.plusMinutes(1), null);
+
+    assertFalse(orderTransferRepository.claim(transfer.getId(), now, now.plusMinutes(10)));
+  }
+
+  @Test
+  public void shouldRenewOnlyClaimsThatHaveNotBeenReleased() {
+    ZonedDateTime now = ZonedDateTime.now();
+    OrderTransfer claimed = saveTransfer(now.minusMinutes(1), now.plusMinutes(1));
+    OrderTransfer released = saveTransfer(now.minusMinutes(1), null);
+
+    orderTransferRepository.renewClaims(
+        Arrays.asList(claimed.getId(), released.getId()), now.plusMinutes(10));
+    entityManager.clear();
+
+    // the renewed claim is still valid after the original one would have expired
+    assertThat(findDue(now.plusMinutes(5), 10), contains(released.getId()));
+  }
+
+  @Test
+  public void shouldRemoveTransfersTogetherWithOrder() {
+    OrderTransfer transfer = saveTransfer(ZonedDateTime.now(), null);
+    entityManager.flush();
+    entityManager.clear();
+
+    orderRepository.delete(order.getId());
+    entityManager.flush();
+    entityManager.clear();
+
+    assertFalse(orderTransferRepository.exists(transfer.getId()));
+  }
+
+  private List<UUID> findDue(ZonedDateTime now, int limit) {
+    return orderTransferRepository.findDue(now, limit)
+        .stream()
+        .map(OrderTransfer::getId)
+        .collect(Collectors.toList());
+  }
+
+  private OrderTransfer saveTransfer(ZonedDateTime nextAttemptAt, ZonedDateTime claimedUntil) {
+    OrderTransfer transfer = generateInstance();
+    transfer.setNextAttemptAt(nextAttemptAt);
+    transfer.setClaimedUntil(claimedUntil);
+
+    transfer = orderTransferRepository.save(transfer);
+    entityManager.flush();
+
+    return transfer;
+  }
+
+}
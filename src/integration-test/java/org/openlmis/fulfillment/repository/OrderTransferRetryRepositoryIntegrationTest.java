@@ -0,0 +1,191 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.repository;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.openlmis.fulfillment.domain.LocalTransferProperties;
+import org.openlmis.fulfillment.domain.Order;
+import org.openlmis.fulfillment.domain.OrderStatus;
+import org.openlmis.fulfillment.domain.OrderTransferRetry;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+public class OrderTransferRetryRepositoryIntegrationTest
+    extends BaseCrudRepositoryIntegrationTest<OrderTransferRetry> {
+
+  private static final int MAX_ATTEMPTS = 5;
+
+  @Autowired
+  private OrderTransferRetryRepository orderTransferRetryRepository;
+
+  @Autowired
+  private OrderRepository orderRepository;
+
+  @Autowired
+  private TransferPropertiesRepository transferPropertiesRepository;
+
+  @Override
+  OrderTransferRetryRepository getRepository() {
+    return this.orderTransferRetryRepository;
+  }
+
+  @Override
+  OrderTransferRetry generateInstance() {
+    OrderTransferRetry retry = new OrderTransferRetry(UUID.randomUUID());
+    retry.setAttempts(1);
+    retry.setLastAttemptAt(ZonedDateTime.now());
+    retry.setNextAttemptAt(ZonedDateTime.now().plusMinutes(5));
+    return retry;
+  }
+
+  @Test
+  public void shouldFindFacilitiesWithFailedOrders() {
+    UUID failed = generateOrder(OrderStatus.TRANSFER_FAILED).getSupplyingFacilityId();
+    generateOrder(OrderStatus.IN_ROUTE);
+
+    assertThat(findFacilitiesToRetry(), contains(failed));
+  }
+
+  @Test
+  public void shouldFindFacilitiesWhoseBackoffHasPassed() {
+    UUID facilityId = generateOrder(OrderStatus.TRANSFER_FAILED).getSupplyingFacilityId();
+    saveRetry(facilityId, 2, ZonedDateTime.now().minusMinutes(1));
+
+    assertThat(findFacilitiesToRetry(), contains(facilityId));
+  }
+
+  @Test
+  public void shouldNotFindFacilitiesWithinBackoff() {
+    UUID facilityId = generateOrder(OrderStatus.TRANSFER_FAILED).getSupplyingFacilityId();
+    saveRetry(facilityId, 2, ZonedDateTime.now().plusMinutes(1));
+
+    assertThat(findFacilitiesToRetry(), empty());
+  }
+
+  @Test
+  public void shouldNotFindFacilitiesThatReachedMaxAttempts() {
+    UUID facilityId = generateOrder(OrderStatus.TRANSFER_FAILED).getSupplyingFacilityId();
+    saveRetry(facilityId, MAX_ATTEMPTS, ZonedDateTime.now().minusMinutes(1));
+
+    assertThat(findFacilitiesToRetry(), empty());
+  }
+
+  @Test
+  public void shouldFindFacilitiesThatReachedMaxAttemptsLongAgo() {
+    UUID facilityId = generateOrder(OrderStatus.TRANSFER_FAILED).getSupplyingFacilityId();
+    OrderTransferRetry retry = saveRetry(facilityId, MAX_ATTEMPTS,
+        ZonedDateTime.now().minusHours(12));
+    retry.setLastAttemptAt(ZonedDateTime.now().minusDays(2));
+    orderTransferRetryRepository.save(retry);
+
+    assertThat(findFacilitiesToRetry(), contains(facilityId));
+  }
+
+  @Test
+  public void shouldNotFindFacilitiesWithoutTransferProperties() {
+    Order order = generateOrder(OrderStatus.TRANSFER_FAILED, false);
+    saveRetry(order.getSupplyingFacilityId(), 2, ZonedDateTime.now().minusMinutes(1));
+    generateOrder(OrderStatus.TRANSFER_FAILED, false);
+
+    assertThat(findFacilitiesToRetry(), empty());
+  }
+
+  @Test
+  public void shouldFindNewFacilitiesFirstAndThenByNextAttempt() {
+    UUID later = generateOrder(OrderStatus.TRANSFER_FAILED).getSupplyingFacilityId();
+    saveRetry(later, 2, ZonedDateTime.now().minusMinutes(1));
+    UUID earlier = generateOrder(OrderStatus.TRANSFER_FAILED).getSupplyingFacilityId();
+    saveRetry(earlier, 2, ZonedDateTime.now().minusMinutes(5));
+    UUID fresh = generateOrder(OrderStatus.TRANSFER_FAILED).getSupplyingFacilityId();
+
+    assertThat(findFacilitiesToRetry(), contains(fresh, earlier, later));
+    assertThat(orderTransferRetryRepository.findFacilitiesToRetry(ZonedDateTime.now(),
+        MAX_ATTEMPTS, ZonedDateTime.now().minusDays(1), 2), contains(fresh, earlier));
+  }
+
+  @Test
+  public void shouldFindRetryByFacility() {
+    OrderTransferRetry retry = orderTransferRetryRepository.save(generateInstance());
+
+    OrderTransferRetry found = orderTransferRetryRepository
+        .findByFacilityId(retry.getFacilityId());
+
+    assertThat(found.getId(), is(retry.getId()));
+  }
+
+  @Test
+  public void shouldObtainAdvisoryLockWithinTransaction() {
+    assertTrue(orderTransferRetryRepository.tryLock(1L));
+    // the lock is reentrant within the transaction that holds it
+    assertTrue(orderTransferRetryRepository.tryLock(1L));
+  }
+
+  private List<UUID> findFacilitiesToRetry() {
+    return orderTransferRetryRepository
+        .findFacilitiesToRetry(ZonedDateTime.now(), MAX_ATTEMPTS,
+            ZonedDateTime.now().minusDays(1), 10);
+  }
+
+  private OrderTransferRetry saveRetry(UUID facilityId, int attempts,
+                                       ZonedDateTime nextAttemptAt) {
+    OrderTransferRetry retry = new OrderTransferRetry(facilityId);
+    retry.setAttempts(attempts);
+    retry.setLastAttemptAt(ZonedDateTime.now().minusHours(1));
+    retry.setNextAttemptAt(nextAttemptAt);
+
+    return orderTransferRetryRepository.save(retry);
+  }
+
+  private Order generateOrder(OrderStatus status) {
+    return generateOrder(status, true);
+  }
+
+  private Order generateOrder(OrderStatus status, boolean withTransferProperties) {
+    Order order = new Order();
+    order.setOrderCode("OrderTransferRetryRepositoryIntegrationTest" + getNextInstanceNumber());
+    order.setExternalId(UUID.randomUUID());
+    order.setEmergency(false);
+    order.setQuotedCost(BigDecimal.ONE);
+    order.setStatus(status);
+    order.setProgramId(UUID.randomUUID());
+    order.setCreatedById(UUID.randomUUID());
+    order.setRequestingFacilityId(UUID.randomUUID());
+    order.setReceivingFacilityId(UUID.randomUUID());
+    order.setSupplyingFacilityId(UUID.randomUUID());
+    order.setOrderLineItems(new ArrayList<>());
+
+    if (withTransferProperties) {
+      LocalTransferProperties properties = new LocalTransferProperties();
+      properties.setFacilityId(order.getSupplyingFacilityId());
+      properties.setPath("/var/lib/openlmis/fulfillment/orders");
+      transferPropertiesRepository.save(properties);
+    }
+
+    return orderRepository.save(order);
+  }
+
+}
@@ -15,9 +15,12 @@
 
 package org.openlmis.fulfillment.repository;
 
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 import com.google.common.collect.Lists;
 
@@ -136,4 +139,15 @@ public class ProofOfDeliveryRepositoryIntegrationTest extends
     //then
     assertEquals(instance, actual);
   }
+
+  @Test
+  public void shouldCheckIfProofOfDeliveryOfOtherSupplyingFacilityExists() {
+    proofOfDeliveryRepository.save(generateInstance());
+
+    assertFalse(proofOfDeliveryRepository
+        .existsWithSupplyingFacilityNotIn(singleton(order.getSupplyingFacilityId())));
+    assertTrue(proofOfDeliveryRepository
+        .existsWithSupplyingFacilityNotIn(singleton(UUID.randomUUID())));
+    assertTrue(proofOfDeliveryRepository.existsWithSupplyingFacilityNotIn(emptySet()));
+  }
 }
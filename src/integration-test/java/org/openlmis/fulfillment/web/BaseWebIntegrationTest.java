@@ -63,11 +63,13 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 import javax.annotation.PostConstruct;
 
 @RunWith(SpringRunner.class)
-@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = "permission.cache.timeToLive=0")
 @DirtiesContext
 public abstract class BaseWebIntegrationTest {
   protected static final UUID INITIAL_USER_ID =
@@ -558,17 +560,6 @@ public abstract class BaseWebIntegrationTest {
     );
   }
 
-  void denyUserAllRightsForWarehouse(UUID warehouse) {
-    String url = String.format(
-        "%s%s/hasRight.*warehouseId=%s.*",
-        REFERENCEDATA_API_USERS, UUID_REGEX, warehouse
-    );
-    wireMockRule.stubFor(get(urlMatching(url)).willReturn(aResponse()
-        .withHeader(CONTENT_TYPE, APPLICATION_JSON)
-        .withBody("{ \"result\":\"false\" }"))
-    );
-  }
-
   <T> List<T> getPageContent(Page page, Class<T> type) {
     List content = page.getContent();
 
@@ -625,4 +616,22 @@ public abstract class BaseWebIntegrationTest {
 
   }
 
+  /**
+   * Passes the given entities to the consumer of a mocked streamAll method as a single chunk.
+   */
+  static class StreamAnswer<T extends BaseEntity> implements Answer<Void> {
+    private final List<T> entities;
+
+    StreamAnswer(List<T> entities) {
+      this.entities = entities;
+    }
+
+    @Override
+    public Void answer(InvocationOnMock invocation) throws Throwable {
+      ((Consumer<List<T>>) invocation.getArguments()[1]).accept(entities);
+      return null;
+    }
+
+  }
+
 }
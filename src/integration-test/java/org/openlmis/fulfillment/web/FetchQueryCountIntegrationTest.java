@@ -0,0 +1,156 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.web;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openlmis.fulfillment.domain.ExternalStatus;
+import org.openlmis.fulfillment.domain.Order;
+import org.openlmis.fulfillment.domain.OrderLineItem;
+import org.openlmis.fulfillment.domain.OrderStatus;
+import org.openlmis.fulfillment.domain.ProofOfDelivery;
+import org.openlmis.fulfillment.domain.StatusMessage;
+import org.openlmis.fulfillment.repository.OrderRepository;
+import org.openlmis.fulfillment.repository.ProofOfDeliveryRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.UUID;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Checks that orders and proofs of delivery are loaded with a number of queries that does not
+ * depend on how many of them are returned.
+ */
+public class FetchQueryCountIntegrationTest extends BaseWebIntegrationTest {
+  private static final String ACCESS_TOKEN = "access_token";
+  private static final String SEARCH_URL = "/api/orders/search";
+  private static final String PROOF_OF_DELIVERIES_URL = "/api/proofOfDeliveries";
+
+  private static final long MAX_SEARCH_QUERIES = 4;
+  private static final long MAX_PROOF_OF_DELIVERIES_QUERIES = 8;
+
+  @Autowired
+  private OrderRepository orderRepository;
+
+  @Autowired
+  private ProofOfDeliveryRepository proofOfDeliveryRepository;
+
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
+  private Statistics statistics;
+
+  private int created;
+
+  @Before
+  public void setUp() {
+    statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    statistics.setStatisticsEnabled(true);
+  }
+
+  @After
+  public void cleanUp() {
+    statistics.setStatisticsEnabled(false);
+    proofOfDeliveryRepository.deleteAll();
+    orderRepository.deleteAll();
+  }
+
+  @Test
+  public void shouldSearchOrdersWithConstantNumberOfQueries() {
+    createOrders(2);
+    long queriesForFewOrders = countQueries(SEARCH_URL, "content.size()", 2);
+
+    createOrders(10);
+    long queriesForManyOrders = countQueries(SEARCH_URL, "content.size()", 12);
+
+    assertThat(queriesForManyOrders, is(queriesForFewOrders));
+    assertThat(queriesForManyOrders, lessThanOrEqualTo(MAX_SEARCH_QUERIES));
+  }
+
+  @Test
+  public void shouldGetProofOfDeliveriesWithConstantNumberOfQueries() {
+    createOrders(2);
+    long queriesForFewPods = countQueries(PROOF_OF_DELIVERIES_URL, "size()", 2);
+
+    createOrders(10);
+    long queriesForManyPods = countQueries(PROOF_OF_DELIVERIES_URL, "size()", 12);
+
+    assertThat(queriesForManyPods, is(queriesForFewPods));
+    assertThat(queriesForManyPods, lessThanOrEqualTo(MAX_PROOF_OF_DELIVERIES_QUERIES));
+  }
+
+  private long countQueries(String url, String sizePath, int expectedSize) {
+    statistics.clear();
+
+    restAssured.given()
+        .queryParam(ACCESS_TOKEN, getToken())
+        .when()
+        .get(url)
+        .then()
+        .statusCode(200)
+        .body(sizePath, is(expectedSize));
+
+    return statistics.getPrepareStatementCount();
+  }
+
+  private void createOrders(int count) {
+    for (int i = 0; i < count; ++i) {
+      Order order = new Order();
+      order.setExternalId(UUID.randomUUID());
+      order.setEmergency(false);
+      order.setOrderCode("FetchQueryCount" + ++created);
+      order.setQuotedCost(BigDecimal.ONE);
+      order.setStatus(OrderStatus.SHIPPED);
+      order.setProgramId(UUID.randomUUID());
+      order.setCreatedById(INITIAL_USER_ID);
+      order.setRequestingFacilityId(UUID.fromString(FACILITY_ID));
+      order.setReceivingFacilityId(UUID.fromString(FACILITY_ID));
+      order.setSupplyingFacilityId(UUID.fromString(FACILITY_ID));
+      order.setProcessingPeriodId(UUID.randomUUID());
+      order.setOrderLineItems(new ArrayList<>());
+      order.setStatusMessages(new ArrayList<>());
+
+      for (int j = 0; j < 2; ++j) {
+        OrderLineItem lineItem = new OrderLineItem();
+        lineItem.setOrder(order);
+        lineItem.setOrderableId(UUID.randomUUID());
+        lineItem.setOrderedQuantity(10L);
+        lineItem.setApprovedQuantity(10L);
+        lineItem.setFilledQuantity(0L);
+        order.getOrderLineItems().add(lineItem);
+      }
+
+      StatusMessage message = new StatusMessage();
+      message.setOrder(order);
+      message.setAuthorId(INITIAL_USER_ID);
+      message.setStatus(ExternalStatus.APPROVED);
+      message.setBody("approved");
+      order.getStatusMessages().add(message);
+
+      proofOfDeliveryRepository.save(new ProofOfDelivery(orderRepository.save(order)));
+    }
+  }
+}
@@ -18,19 +18,24 @@ package org.openlmis.fulfillment.web;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasSize;
-import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.isOneOf;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.openlmis.fulfillment.domain.Order.STATUS;
 import static org.openlmis.fulfillment.domain.OrderStatus.IN_ROUTE;
 import static org.openlmis.fulfillment.domain.OrderStatus.READY_TO_PACK;
+import static org.openlmis.fulfillment.i18n.MessageKeys.ERROR_ORDER_INVALID_CURSOR;
 import static org.openlmis.fulfillment.i18n.MessageKeys.ERROR_ORDER_INVALID_STATUS;
 import static org.openlmis.fulfillment.i18n.MessageKeys.ERROR_ORDER_NOT_FOUND;
 import static org.openlmis.fulfillment.i18n.MessageKeys.ERROR_ORDER_RETRY_INVALID_STATUS;
@@ -44,14 +49,22 @@ import com.google.common.collect.Lists;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
+import org.openlmis.fulfillment.domain.FtpTransferProperties;
 import org.openlmis.fulfillment.domain.Order;
+import org.openlmis.fulfillment.domain.OrderAggregate;
 import org.openlmis.fulfillment.domain.OrderLineItem;
 import org.openlmis.fulfillment.domain.OrderStatus;
+import org.openlmis.fulfillment.domain.OrderSummary;
+import org.openlmis.fulfillment.domain.OrderTransfer;
 import org.openlmis.fulfillment.domain.ProofOfDelivery;
 import org.openlmis.fulfillment.repository.OrderRepository;
+import org.openlmis.fulfillment.repository.OrderTransferRepository;
 import org.openlmis.fulfillment.repository.ProofOfDeliveryRepository;
+import org.openlmis.fulfillment.repository.TransferPropertiesRepository;
 import org.openlmis.fulfillment.service.ConfigurationSettingService;
+import org.openlmis.fulfillment.service.OrderCursor;
 import org.openlmis.fulfillment.service.OrderFileStorage;
 import org.openlmis.fulfillment.service.OrderFtpSender;
 import org.openlmis.fulfillment.service.ResultDto;
@@ -61,6 +74,8 @@ import org.openlmis.fulfillment.web.util.ProofOfDeliveryDto;
 import org.openlmis.util.PageImplRepresentation;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
 
 import guru.nidi.ramltester.junit.RamlMatchers;
 
@@ -68,14 +83,17 @@ import java.math.BigDecimal;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 @SuppressWarnings({"PMD.TooManyMethods", "PMD.UnusedPrivateField"})
 public class OrderControllerIntegrationTest extends BaseWebIntegrationTest {
 
+  private static final Set<UUID> WAREHOUSES = Collections.singleton(UUID.fromString(FACILITY_ID));
+
   private static final String RESOURCE_URL = "/api/orders";
   private static final String SEARCH_URL = RESOURCE_URL + "/search";
 
@@ -110,6 +128,12 @@ public class OrderControllerIntegrationTest extends BaseWebIntegrationTest {
   @MockBean
   private OrderRepository orderRepository;
 
+  @MockBean
+  private OrderTransferRepository orderTransferRepository;
+
+  @MockBean
+  private TransferPropertiesRepository transferPropertiesRepository;
+
   @MockBean
   private OrderFileStorage orderStorage;
 
@@ -165,9 +189,8 @@ public class OrderControllerIntegrationTest extends BaseWebIntegrationTest {
 
     firstOrderDto = OrderDto.newInstance(firstOrder, exporter);
 
-    given(orderRepository.findAll()).willReturn(
-        Lists.newArrayList(firstOrder, secondOrder, thirdOrder)
-    );
+    willAnswer(new StreamAnswer<>(Lists.newArrayList(firstOrder, secondOrder, thirdOrder)))
+        .given(orderRepository).streamAll(anyInt(), any());
 
     given(orderRepository.save(any(Order.class)))
         .willAnswer(new SaveAnswer<Order>() {
@@ -280,8 +303,10 @@ public class OrderControllerIntegrationTest extends BaseWebIntegrationTest {
   public void shouldFindBySupplyingFacility() {
     firstOrder.setSupplyingFacilityId(UUID.fromString(FACILITY_ID));
 
-    given(orderRepository.searchOrders(firstOrder.getSupplyingFacilityId(), null, null, null, null))
-        .willReturn(Lists.newArrayList(firstOrder));
+    given(orderRepository.searchOrders(
+        eq(firstOrder.getSupplyingFacilityId()), eq(null), eq(null), eq(null), eq(null),
+        eq(WAREHOUSES), any(Pageable.class)
+    )).willReturn(new PageImpl<>(Lists.newArrayList(firstOrder)));
 
     PageImplRepresentation response = restAssured.given()
         .queryParam(SUPPLYING_FACILITY, firstOrder.getSupplyingFacilityId())
@@ -310,8 +335,9 @@ public class OrderControllerIntegrationTest extends BaseWebIntegrationTest {
     firstOrder.setRequestingFacilityId(UUID.fromString(FACILITY_ID));
 
     given(orderRepository.searchOrders(
-        firstOrder.getSupplyingFacilityId(), firstOrder.getRequestingFacilityId(), null, null, null
-    )).willReturn(Lists.newArrayList(firstOrder));
+        eq(firstOrder.getSupplyingFacilityId()), eq(firstOrder.getRequestingFacilityId()),
+        eq(null), eq(null), eq(null), eq(WAREHOUSES), any(Pageable.class)
+    )).willReturn(new PageImpl<>(Lists.newArrayList(firstOrder)));
 
     PageImplRepresentation response = restAssured.given()
         .queryParam(SUPPLYING_FACILITY, firstOrder.getSupplyingFacilityId())
@@ -345,9 +371,9 @@ public class OrderControllerIntegrationTest extends BaseWebIntegrationTest {
     firstOrder.setProgramId(UUID.fromString("5c5a6f68-8658-11e6-ae22-56b6b6499611"));
 
     given(orderRepository.searchOrders(
-        firstOrder.getSupplyingFacilityId(), firstOrder.getRequestingFacilityId(),
-        firstOrder.getProgramId(), null, null
-    )).willReturn(Lists.newArrayList(firstOrder));
+        eq(firstOrder.getSupplyingFacilityId()), eq(firstOrder.getRequestingFacilityId()),
+        eq(firstOrder.getProgramId()), eq(null), eq(null), eq(WAREHOUSES), any(Pageable.class)
+    )).willReturn(new PageImpl<>(Lists.newArrayList(firstOrder)));
 
     PageImplRepresentation response = restAssured.given()
         .queryParam(SUPPLYING_FACILITY, firstOrder.getSupplyingFacilityId())
@@ -386,9 +412,10 @@ public class OrderControllerIntegrationTest extends BaseWebIntegrationTest {
     firstOrder.setStatus(READY_TO_PACK);
 
     given(orderRepository.searchOrders(
-        firstOrder.getSupplyingFacilityId(), firstOrder.getRequestingFacilityId(),
-        firstOrder.getProgramId(), null, EnumSet.of(READY_TO_PACK)
-    )).willReturn(Lists.newArrayList(firstOrder));
+        eq(firstOrder.getSupplyingFacilityId()), eq(firstOrder.getRequestingFacilityId()),
+        eq(firstOrder.getProgramId()), eq(null), eq(EnumSet.of(READY_TO_PACK)), eq(WAREHOUSES),
+        any(Pageable.class)
+    )).willReturn(new PageImpl<>(Lists.newArrayList(firstOrder)));
 
     PageImplRepresentation response = restAssured.given()
         .queryParam(SUPPLYING_FACILITY, firstOrder.getSupplyingFacilityId())
@@ -429,8 +456,10 @@ public class OrderControllerIntegrationTest extends BaseWebIntegrationTest {
     firstOrder.setStatus(READY_TO_PACK);
     secondOrder.setStatus(IN_ROUTE);
 
-    given(orderRepository.searchOrders(null, null, null, null, EnumSet.of(READY_TO_PACK, IN_ROUTE)))
-        .willReturn(Lists.newArrayList(firstOrder, secondOrder));
+    given(orderRepository.searchOrders(
+        eq(null), eq(null), eq(null), eq(null), eq(EnumSet.of(READY_TO_PACK, IN_ROUTE)),
+        eq(WAREHOUSES), any(Pageable.class)
+    )).willReturn(new PageImpl<>(Lists.newArrayList(firstOrder, secondOrder)));
 
     PageImplRepresentation response = restAssured.given()
         .queryParam(STATUS, firstOrder.getStatus().toString())
@@ -462,9 +491,10 @@ public class OrderControllerIntegrationTest extends BaseWebIntegrationTest {
     firstOrder.setProcessingPeriodId(UUID.fromString("4c6b05c2-894b-11e6-ae22-56b6b6499611"));
 
     given(orderRepository.searchOrders(
-        firstOrder.getSupplyingFacilityId(), firstOrder.getRequestingFacilityId(),
-        firstOrder.getProgramId(), firstOrder.getProcessingPeriodId(), EnumSet.of(READY_TO_PACK)
-    )).willReturn(Lists.newArrayList(firstOrder));
+        eq(firstOrder.getSupplyingFacilityId()), eq(firstOrder.getRequestingFacilityId()),
+        eq(firstOrder.getProgramId()), eq(firstOrder.getProcessingPeriodId()),
+        eq(EnumSet.of(READY_TO_PACK)), eq(WAREHOUSES), any(Pageable.class)
+    )).willReturn(new PageImpl<>(Lists.newArrayList(firstOrder)));
 
     PageImplRepresentation response = restAssured.given()
         .queryParam(SUPPLYING_FACILITY, firstOrder.getSupplyingFacilityId())
@@ -552,8 +582,8 @@ public class OrderControllerIntegrationTest extends BaseWebIntegrationTest {
         .statusCode(200)
         .extract().as(OrderDto[].class);
 
-    Iterable<OrderDto> orders = Arrays.asList(response);
-    assertTrue(orders.iterator().hasNext());
+    assertThat(response.length, is(3));
+    assertThat(response[0].getId(), is(firstOrder.getId()));
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
   }
 
@@ -745,6 +775,8 @@ public class OrderControllerIntegrationTest extends BaseWebIntegrationTest {
     firstOrder.setStatus(OrderStatus.TRANSFER_FAILED);
 
     given(orderRepository.findOne(firstOrder.getId())).willReturn(firstOrder);
+    given(transferPropertiesRepository.findFirstByFacilityId(firstOrder.getSupplyingFacilityId()))
+        .willReturn(new FtpTransferProperties());
 
     ResultDto result = restAssured.given()
         .queryParam(ACCESS_TOKEN, getToken())
@@ -752,27 +784,32 @@ public class OrderControllerIntegrationTest extends BaseWebIntegrationTest {
         .when()
         .get(RETRY_URL)
         .then()
-        .statusCode(200)
+        .statusCode(202)
         .extract()
         .body()
         .as(ResultDto.class);
 
     assertThat(result, is(notNullValue()));
-    assertThat(result.getResult(), is(notNullValue()));
-    assertThat(result.getResult(), is(instanceOf(Boolean.class)));
+    assertThat(result.getResult(), is(true));
+
+    verify(orderRepository).save(firstOrder);
+    assertThat(firstOrder.getStatus(), is(IN_ROUTE));
+
+    ArgumentCaptor<OrderTransfer> transfer = ArgumentCaptor.forClass(OrderTransfer.class);
+    verify(orderTransferRepository).save(transfer.capture());
+    assertThat(transfer.getValue().getOrderId(), is(firstOrder.getId()));
+    assertThat(transfer.getValue().getAttempts(), is(0));
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
   }
 
   @Test
-  public void shouldRemoveOrdersFromSearchResultWhenUserHasNoRightsForFacility() {
+  public void shouldSearchOnlyOrdersOfFacilitiesUserHasRightsFor() {
     firstOrder.setSupplyingFacilityId(UUID.fromString(FACILITY_ID));
-    secondOrder.setSupplyingFacilityId(UUID.randomUUID());
-    thirdOrder.setSupplyingFacilityId(secondOrder.getSupplyingFacilityId());
 
-    denyUserAllRightsForWarehouse(secondOrder.getSupplyingFacilityId());
-
-    given(orderRepository.searchOrders(eq(null), eq(null), eq(null), eq(null), eq(null)))
-        .willReturn(Lists.newArrayList(firstOrder, secondOrder, thirdOrder));
+    // orders of other facilities are filtered out by the database
+    given(orderRepository.searchOrders(
+        eq(null), eq(null), eq(null), eq(null), eq(null), eq(WAREHOUSES), any(Pageable.class)
+    )).willReturn(new PageImpl<>(Lists.newArrayList(firstOrder)));
 
     PageImplRepresentation response = restAssured.given()
         .queryParam(ACCESS_TOKEN, getToken())
@@ -789,6 +826,115 @@ public class OrderControllerIntegrationTest extends BaseWebIntegrationTest {
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
   }
 
+  @Test
+  public void shouldFindOrderSummaries() {
+    OrderSummary summary = new OrderSummary(firstOrder.getId(), firstOrder.getOrderCode(),
+        firstOrder.getStatus(), firstOrder.getCreatedDate(), firstOrder.getEmergency(),
+        firstOrder.getProgramId(), firstOrder.getRequestingFacilityId(),
+        UUID.fromString(FACILITY_ID));
+
+    given(orderRepository.searchOrderSummaries(
+        eq(null), eq(null), eq(null), eq(null), eq(null), eq(WAREHOUSES), any(Pageable.class)
+    )).willReturn(new PageImpl<>(Lists.newArrayList(summary)));
+
+    restAssured.given()
+        .queryParam(ACCESS_TOKEN, getToken())
+        .when()
+        .get(RESOURCE_URL + "/summaries")
+        .then()
+        .statusCode(200)
+        .body("content", hasSize(1))
+        .body("content[0].id", is(firstOrder.getId().toString()))
+        .body("content[0].orderCode", is(firstOrder.getOrderCode()))
+        .body("content[0].supplyingFacilityName", is("facilityNameA"))
+        .body("content[0].orderLineItems", is(nullValue()));
+
+    verify(orderRepository, never()).searchOrders(any(), any(), any(), any(), any(), any(),
+        any(Pageable.class));
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldAggregateOrders() {
+    OrderAggregate aggregate = new OrderAggregate();
+    aggregate.setStatus(OrderStatus.SHIPPED);
+    aggregate.setOrderCount(2);
+    aggregate.setTotalQuotedCost(new BigDecimal("2.58"));
+    aggregate.setLineItemCount(3);
+
+    given(orderRepository.aggregateOrders(
+        eq(null), eq(null), eq(null), eq(null), eq(null), eq(WAREHOUSES),
+        eq(EnumSet.of(OrderAggregate.Dimension.STATUS))
+    )).willReturn(Lists.newArrayList(aggregate));
+
+    restAssured.given()
+        .queryParam(ACCESS_TOKEN, getToken())
+        .queryParam("groupBy", "status")
+        .when()
+        .get(RESOURCE_URL + "/aggregates")
+        .then()
+        .statusCode(200)
+        .body("", hasSize(1))
+        .body("[0].status", is(OrderStatus.SHIPPED.toString()))
+        .body("[0].orderCount", is(2))
+        .body("[0].lineItemCount", is(3))
+        .body("[0].supplyingFacilityId", is(nullValue()));
+
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldRejectAggregateWithInvalidGroupBy() {
+    restAssured.given()
+        .queryParam(ACCESS_TOKEN, getToken())
+        .queryParam("groupBy", "requestingFacility")
+        .when()
+        .get(RESOURCE_URL + "/aggregates")
+        .then()
+        .statusCode(400);
+
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldSearchOrdersWithCursor() {
+    OrderCursor after = OrderCursor.of(secondOrder);
+
+    given(orderRepository.searchOrders(
+        eq(null), eq(null), eq(null), eq(null), eq(null), eq(WAREHOUSES), eq(after), eq(10)
+    )).willReturn(Lists.newArrayList(firstOrder));
+
+    String nextCursor = restAssured.given()
+        .queryParam(ACCESS_TOKEN, getToken())
+        .queryParam("cursor", after.encode())
+        .queryParam("size", 10)
+        .when()
+        .get(SEARCH_URL + "/cursor")
+        .then()
+        .statusCode(200)
+        .body("content", hasSize(1))
+        .body("content[0].id", is(firstOrder.getId().toString()))
+        .extract().path("nextCursor");
+
+    assertThat(OrderCursor.decode(nextCursor), is(OrderCursor.of(firstOrder)));
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldRejectSearchWithInvalidCursor() {
+    String messageKey = restAssured.given()
+        .queryParam(ACCESS_TOKEN, getToken())
+        .queryParam("cursor", "invalid")
+        .when()
+        .get(SEARCH_URL + "/cursor")
+        .then()
+        .statusCode(400)
+        .extract().path(MESSAGE_KEY);
+
+    assertThat(messageKey, is(ERROR_ORDER_INVALID_CURSOR));
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
   @Test
   public void shouldRejectGetRequestWhenUserHasNoRights() {
     denyUserAllRights();
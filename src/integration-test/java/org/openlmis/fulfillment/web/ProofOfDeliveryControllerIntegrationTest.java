@@ -21,7 +21,11 @@ import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.openlmis.fulfillment.i18n.MessageKeys.ERROR_PERMISSION_MISSING;
 import static org.openlmis.fulfillment.i18n.MessageKeys.ERROR_PROOF_OF_DELIVERY_ALREADY_SUBMITTED;
 import static org.openlmis.fulfillment.i18n.MessageKeys.VALIDATION_ERROR_MUST_CONTAIN_VALUE;
@@ -264,7 +268,8 @@ public class ProofOfDeliveryControllerIntegrationTest extends BaseWebIntegration
 
   @Test
   public void shouldGetAllProofOfDeliveries() {
-    given(proofOfDeliveryRepository.findAll()).willReturn(Lists.newArrayList(proofOfDelivery));
+    willAnswer(new StreamAnswer<>(Lists.newArrayList(proofOfDelivery)))
+        .given(proofOfDeliveryRepository).streamAll(anyInt(), any());
 
     ProofOfDeliveryDto[] response = restAssured.given()
         .queryParam(ACCESS_TOKEN, getToken())
@@ -388,8 +393,10 @@ public class ProofOfDeliveryControllerIntegrationTest extends BaseWebIntegration
 
   @Test
   public void shouldRejectGetAllRequestIfUserHasNoRight() {
-    given(proofOfDeliveryRepository.findAll()).willReturn(Lists.newArrayList(proofOfDelivery));
-    
+    willAnswer(new StreamAnswer<>(Lists.newArrayList(proofOfDelivery)))
+        .given(proofOfDeliveryRepository).streamAll(anyInt(), any());
+    given(proofOfDeliveryRepository.existsWithSupplyingFacilityNotIn(any())).willReturn(true);
+
     denyUserAllRights();
 
     String response = restAssured
@@ -403,6 +410,7 @@ public class ProofOfDeliveryControllerIntegrationTest extends BaseWebIntegration
         .extract().path(MESSAGE_KEY);
 
     assertThat(response, is(equalTo(ERROR_PERMISSION_MISSING)));
+    verify(proofOfDeliveryRepository, never()).streamAll(anyInt(), any());
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
   }
 
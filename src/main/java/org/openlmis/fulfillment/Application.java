@@ -31,13 +31,17 @@ import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
 import org.springframework.web.servlet.LocaleResolver;
 import org.springframework.web.servlet.i18n.CookieLocaleResolver;
 
 import java.util.Locale;
+import java.util.concurrent.ThreadPoolExecutor;
 
 @SpringBootApplication(scanBasePackages = "org.openlmis.fulfillment")
+@EnableScheduling
 @EntityScan(basePackageClasses = BaseEntity.class, basePackages = "org.openlmis.util.converter")
 public class Application {
 
@@ -108,6 +112,45 @@ public class Application {
     return camelContext().createProducerTemplate();
   }
 
+  /**
+   * Creates the executor used to retrieve reference data of exported orders concurrently. When
+   * all threads are busy and the queue is full the task is executed by the calling thread.
+   *
+   * @return Created executor.
+   */
+  @Bean
+  public ThreadPoolTaskExecutor exportExecutor(
+      @Value("${exporter.async.poolSize}") int poolSize,
+      @Value("${exporter.async.queueCapacity}") int queueCapacity) {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(poolSize);
+    executor.setMaxPoolSize(poolSize);
+    executor.setQueueCapacity(queueCapacity);
+    executor.setThreadNamePrefix("export-");
+    executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+
+    return executor;
+  }
+
+  /**
+   * Creates the executor used to refresh stale reference data in the background. Refreshes that
+   * do not fit into the queue are rejected; the object is refreshed on a later request.
+   *
+   * @return Created executor.
+   */
+  @Bean
+  public ThreadPoolTaskExecutor referenceDataRefreshExecutor(
+      @Value("${referencedata.refresh.poolSize}") int poolSize,
+      @Value("${referencedata.refresh.queueCapacity}") int queueCapacity) {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(poolSize);
+    executor.setMaxPoolSize(poolSize);
+    executor.setQueueCapacity(queueCapacity);
+    executor.setThreadNamePrefix("referencedata-refresh-");
+
+    return executor;
+  }
+
   /**
    * Configures the Flyway migration strategy to clean the DB before migration first.  This is used
    * as the default unless the Spring Profile "production" is active.
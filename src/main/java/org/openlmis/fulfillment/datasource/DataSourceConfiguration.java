@@ -0,0 +1,121 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.datasource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.flyway.FlywayDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceBuilder;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Configures the data sources of the service. Work done in read-only transactions of methods
+ * annotated with {@link ReadReplica} and reports are sent to the read replica, if one is
+ * configured and its replication lag is within the tolerance; everything else, including
+ * background jobs and migrations, uses the primary database.
+ */
+@Configuration
+public class DataSourceConfiguration {
+
+  @Value("${replica.maxLag}")
+  private long maxLag = 5000;
+
+  @Value("${replica.lagQuery}")
+  private String lagQuery;
+
+  /**
+   * Creates the data source of the primary database.
+   *
+   * @return Created data source.
+   */
+  @Bean
+  @FlywayDataSource
+  @ConfigurationProperties(prefix = "spring.datasource.tomcat")
+  public DataSource primaryDataSource(DataSourceProperties properties) {
+    return properties.initializeDataSourceBuilder().build();
+  }
+
+  /**
+   * Creates the data source of the read replica. It is created only if the replica URL is set;
+   * the user name, password, driver and connection properties are the same as for the primary
+   * database.
+   *
+   * @return Created data source.
+   */
+  @Bean
+  @ConditionalOnExpression("'${replica.datasource.url}' != ''")
+  @ConfigurationProperties(prefix = "replica.datasource.tomcat")
+  public DataSource replicaDataSource(DataSourceProperties properties,
+                                      @Value("${replica.datasource.url}") String url) {
+    return DataSourceBuilder
+        .create(properties.getClassLoader())
+        .driverClassName(properties.determineDriverClassName())
+        .url(url)
+        .username(properties.determineUsername())
+        .password(properties.determinePassword())
+        .build();
+  }
+
+  /**
+   * Creates the monitor of the read replica lag. Without a replica all reads use the primary
+   * database.
+   *
+   * @return Created monitor.
+   */
+  @Bean
+  public ReplicaLagMonitor replicaLagMonitor(
+      @Qualifier("replicaDataSource") ObjectProvider<DataSource> replica) {
+    ReplicaLagMonitor monitor = new ReplicaLagMonitor(replica.getIfAvailable(), maxLag, lagQuery);
+    monitor.check();
+
+    return monitor;
+  }
+
+  /**
+   * Creates the data source used by JPA. Physical connections are obtained lazily, when the first
+   * statement is executed, so they are routed after the transaction has been marked read-only.
+   *
+   * @return Created data source.
+   */
+  @Bean
+  @Primary
+  public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                               ReplicaLagMonitor monitor) {
+    return new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(primary, monitor, false));
+  }
+
+  /**
+   * Creates the data source used by reports. Connections are always routed to the replica when
+   * it is available.
+   *
+   * @return Created data source.
+   */
+  @Bean
+  public DataSource replicationDataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                          ReplicaLagMonitor monitor) {
+    return new ReplicaRoutingDataSource(primary, monitor, true);
+  }
+
+}
@@ -0,0 +1,54 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.datasource;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+/**
+ * Allows the read replica to be used by the current thread while a method annotated with
+ * {@link ReadReplica} is executed.
+ */
+@Aspect
+@Component
+public class ReadReplicaAspect {
+  private static final ThreadLocal<Boolean> ALLOWED = ThreadLocal.withInitial(() -> false);
+
+  /**
+   * Executes the annotated method with the read replica allowed.
+   *
+   * @param joinPoint the annotated method.
+   * @return result of the method.
+   */
+  @Around("@annotation(org.openlmis.fulfillment.datasource.ReadReplica)")
+  public Object allowReplica(ProceedingJoinPoint joinPoint) throws Throwable {
+    boolean previous = ALLOWED.get();
+    ALLOWED.set(true);
+
+    try {
+      return joinPoint.proceed();
+    } finally {
+      ALLOWED.set(previous);
+    }
+  }
+
+  static boolean isReplicaAllowed() {
+    return ALLOWED.get();
+  }
+
+}
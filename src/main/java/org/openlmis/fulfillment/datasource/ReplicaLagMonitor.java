@@ -0,0 +1,125 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+/**
+ * Periodically checks how far the read replica lags behind the primary database. The replica is
+ * available for reads only if the last check succeeded and the lag did not exceed the configured
+ * tolerance; otherwise all reads go to the primary until a later check succeeds.
+ */
+public class ReplicaLagMonitor {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+  private final DataSource replica;
+  private final JdbcTemplate jdbcTemplate;
+  private final long maxLag;
+  private final String lagQuery;
+
+  private volatile boolean available;
+  private volatile long lag = -1;
+
+  private final AtomicLong fallbacks = new AtomicLong();
+
+  /**
+   * Creates a new monitor.
+   *
+   * @param replica  data source of the read replica; {@code null} if there is no replica.
+   * @param maxLag   maximum tolerated replication lag, in milliseconds.
+   * @param lagQuery query returning the replication lag in milliseconds.
+   */
+  public ReplicaLagMonitor(DataSource replica, long maxLag, String lagQuery) {
+    this(replica, null == replica ? null : new JdbcTemplate(replica), maxLag, lagQuery);
+  }
+
+  ReplicaLagMonitor(DataSource replica, JdbcTemplate jdbcTemplate, long maxLag,
+                    String lagQuery) {
+    this.replica = replica;
+    this.jdbcTemplate = jdbcTemplate;
+    this.maxLag = maxLag;
+    this.lagQuery = lagQuery;
+  }
+
+  /**
+   * Measures the replication lag and updates the availability of the replica. The lag is
+   * considered to be zero if the query returns nothing, e.g. when the replica is not in recovery.
+   */
+  @Scheduled(fixedDelayString = "${replica.lagCheckInterval}")
+  public void check() {
+    if (null == jdbcTemplate) {
+      return;
+    }
+
+    try {
+      Number result = jdbcTemplate.queryForObject(lagQuery, Number.class);
+      lag = null == result ? 0 : result.longValue();
+
+      boolean fresh = lag <= maxLag;
+
+      if (fresh != available) {
+        LOGGER.info("Read replica is {} (lag: {} ms)", fresh ? "available" : "too stale", lag);
+      }
+
+      available = fresh;
+    } catch (DataAccessException exp) {
+      LOGGER.warn("Could not check the read replica lag", exp);
+      lag = -1;
+      available = false;
+    }
+  }
+
+  /**
+   * Marks the replica as unavailable after a connection to it could not be obtained. Reads go to
+   * the primary database until the next successful check.
+   *
+   * @param exp the reason why the replica could not be used.
+   */
+  public void markUnavailable(SQLException exp) {
+    if (available) {
+      LOGGER.warn("Read replica is unavailable, falling back to the primary database", exp);
+    }
+
+    available = false;
+    fallbacks.incrementAndGet();
+  }
+
+  public DataSource getReplica() {
+    return replica;
+  }
+
+  public boolean isAvailable() {
+    return available;
+  }
+
+  public long getLag() {
+    return lag;
+  }
+
+  public long getFallbackCount() {
+    return fallbacks.get();
+  }
+
+}
@@ -0,0 +1,84 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.datasource;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+/**
+ * Data source that returns connections to the read replica when it is available and fresh
+ * enough, and to the primary database otherwise. If a replica connection can not be obtained the
+ * replica is marked as unavailable and a primary connection is returned instead.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+  private final DataSource primary;
+  private final ReplicaLagMonitor monitor;
+  private final boolean readOnly;
+
+  /**
+   * Creates a new routing data source.
+   *
+   * @param primary  data source of the primary database.
+   * @param monitor  monitor of the read replica.
+   * @param readOnly if {@code true} all connections are used only for reads and may come from the
+   *                 replica; otherwise only connections for read-only transactions started within
+   *                 a method annotated with {@link ReadReplica} may.
+   */
+  public ReplicaRoutingDataSource(DataSource primary, ReplicaLagMonitor monitor,
+                                  boolean readOnly) {
+    this.primary = primary;
+    this.monitor = monitor;
+    this.readOnly = readOnly;
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    if (useReplica()) {
+      try {
+        return monitor.getReplica().getConnection();
+      } catch (SQLException exp) {
+        monitor.markUnavailable(exp);
+      }
+    }
+
+    return primary.getConnection();
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    if (useReplica()) {
+      try {
+        return monitor.getReplica().getConnection(username, password);
+      } catch (SQLException exp) {
+        monitor.markUnavailable(exp);
+      }
+    }
+
+    return primary.getConnection(username, password);
+  }
+
+  boolean useReplica() {
+    return monitor.isAvailable()
+        && (readOnly || ReadReplicaAspect.isReplicaAllowed()
+        && TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+  }
+
+}
@@ -35,6 +35,7 @@ import javax.persistence.MappedSuperclass;
 public abstract class BaseEntity {
   static final String TEXT_COLUMN_DEFINITION = "text";
   static final String UUID_TYPE = "pg-uuid";
+  static final int BATCH_SIZE = 100;
 
   @Id
   @GeneratedValue(generator = "uuid-gen")
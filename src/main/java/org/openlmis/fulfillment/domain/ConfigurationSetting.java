@@ -15,6 +15,9 @@
 
 package org.openlmis.fulfillment.domain;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -25,6 +28,7 @@ import javax.persistence.Id;
 import javax.persistence.Table;
 
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "configuration_settings")
 @NoArgsConstructor
 public class ConfigurationSetting {
@@ -15,6 +15,7 @@
 
 package org.openlmis.fulfillment.domain;
 
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.Fetch;
 import org.hibernate.annotations.FetchMode;
 import org.hibernate.annotations.Type;
@@ -49,6 +50,7 @@ import javax.persistence.Table;
 
 @Entity
 @Table(name = "orders")
+@BatchSize(size = BaseEntity.BATCH_SIZE)
 @NoArgsConstructor
 public class Order extends BaseEntity {
   public static final String SUPPLYING_FACILITY_ID = "supplyingFacilityId";
@@ -135,6 +137,7 @@ public class Order extends BaseEntity {
       fetch = FetchType.EAGER,
       orphanRemoval = true)
   @Fetch(FetchMode.SELECT)
+  @BatchSize(size = BATCH_SIZE)
   @Getter
   @Setter
   private List<OrderLineItem> orderLineItems;
@@ -145,6 +148,7 @@ public class Order extends BaseEntity {
       fetch = FetchType.EAGER,
       orphanRemoval = true)
   @Fetch(FetchMode.SELECT)
+  @BatchSize(size = BATCH_SIZE)
   @Getter
   @Setter
   private List<StatusMessage> statusMessages;
@@ -0,0 +1,104 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.domain;
+
+import static org.apache.commons.lang3.StringUtils.equalsIgnoreCase;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Number of orders, their total quoted cost and number of line items for a single group of
+ * orders. Fields of dimensions that orders were not grouped by are {@code null}.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class OrderAggregate {
+  private OrderStatus status;
+  private UUID supplyingFacilityId;
+  private UUID programId;
+  private UUID processingPeriodId;
+  private long orderCount;
+  private BigDecimal totalQuotedCost;
+  private long lineItemCount;
+
+  /**
+   * Sets the value of the given dimension.
+   *
+   * @param dimension dimension the orders were grouped by.
+   * @param value     value of the dimension shared by all orders in this group.
+   */
+  public void setDimension(Dimension dimension, Object value) {
+    switch (dimension) {
+      case STATUS:
+        status = (OrderStatus) value;
+        break;
+      case SUPPLYING_FACILITY:
+        supplyingFacilityId = (UUID) value;
+        break;
+      case PROGRAM:
+        programId = (UUID) value;
+        break;
+      case PROCESSING_PERIOD:
+        processingPeriodId = (UUID) value;
+        break;
+      default:
+        throw new IllegalArgumentException("Unsupported dimension: " + dimension);
+    }
+  }
+
+  /**
+   * Properties of {@link Order} that orders can be grouped by.
+   */
+  public enum Dimension {
+    STATUS(Order.STATUS),
+    SUPPLYING_FACILITY(Order.SUPPLYING_FACILITY_ID),
+    PROGRAM(Order.PROGRAM_ID),
+    PROCESSING_PERIOD(Order.PROCESSING_PERIOD_ID);
+
+    @Getter
+    private final String property;
+
+    Dimension(String property) {
+      this.property = property;
+    }
+
+    /**
+     * Find a correct {@link Dimension} instance based on the passed string. Both the name of the
+     * dimension and the name of the request parameter (e.g. supplyingFacility) are accepted and
+     * the case is ignored.
+     *
+     * @param arg string representation of one of dimensions.
+     * @return instance of {@link Dimension} if the given string matches; otherwise null.
+     */
+    public static Dimension fromString(String arg) {
+      String name = null == arg ? null : arg.replace("_", "");
+
+      for (Dimension dimension : values()) {
+        if (equalsIgnoreCase(name, dimension.name().replace("_", ""))) {
+          return dimension;
+        }
+      }
+
+      return null;
+    }
+  }
+}
@@ -16,6 +16,9 @@
 package org.openlmis.fulfillment.domain;
 
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -34,6 +37,7 @@ import javax.persistence.OrderBy;
 import javax.persistence.Table;
 
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "order_file_templates")
 @NoArgsConstructor
 @AllArgsConstructor
@@ -55,6 +59,7 @@ public class OrderFileTemplate extends BaseEntity {
       fetch = FetchType.EAGER,
       orphanRemoval = true)
   @OrderBy("position ASC")
+  @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
   @Getter
   @Setter
   private List<OrderFileColumn> orderFileColumns;
@@ -15,6 +15,7 @@
 
 package org.openlmis.fulfillment.domain;
 
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.Type;
 import org.openlmis.fulfillment.service.referencedata.OrderableDto;
 
@@ -34,6 +35,7 @@ import javax.persistence.Table;
 
 @Entity
 @Table(name = "order_line_items")
+@BatchSize(size = BaseEntity.BATCH_SIZE)
 @NoArgsConstructor
 public class OrderLineItem extends BaseEntity {
 
@@ -15,6 +15,8 @@
 
 package org.openlmis.fulfillment.domain;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.openlmis.fulfillment.service.referencedata.ProgramDto;
 
 import lombok.AllArgsConstructor;
@@ -32,6 +34,7 @@ import javax.persistence.Table;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "order_number_configurations")
 @EqualsAndHashCode(callSuper = false)
 public class OrderNumberConfiguration extends BaseEntity {
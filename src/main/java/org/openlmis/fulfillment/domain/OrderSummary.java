@@ -0,0 +1,39 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.ZonedDateTime;
+import java.util.UUID;
+
+/**
+ * Read-only projection of an {@link Order} with only the columns needed by order lists. It is
+ * created directly from a query, so line items and status messages are never loaded.
+ */
+@Getter
+@AllArgsConstructor
+public class OrderSummary {
+  private UUID id;
+  private String orderCode;
+  private OrderStatus status;
+  private ZonedDateTime createdDate;
+  private Boolean emergency;
+  private UUID programId;
+  private UUID requestingFacilityId;
+  private UUID supplyingFacilityId;
+}
@@ -0,0 +1,94 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.domain;
+
+import org.hibernate.annotations.Type;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.ZonedDateTime;
+import java.util.UUID;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.PrePersist;
+import javax.persistence.Table;
+
+/**
+ * Pending transfer of an order to its supplying facility. The record is saved in the same
+ * transaction as the order and removed by the background worker once the order file has been
+ * stored and sent.
+ */
+@Entity
+@Table(name = "order_transfers")
+@NoArgsConstructor
+public class OrderTransfer extends BaseEntity {
+
+  @Column(nullable = false)
+  @Getter
+  @Setter
+  @Type(type = UUID_TYPE)
+  private UUID orderId;
+
+  @Column(nullable = false)
+  @Getter
+  @Setter
+  private int attempts;
+
+  @Column(nullable = false, columnDefinition = "timestamp with time zone")
+  @Getter
+  @Setter
+  private ZonedDateTime nextAttemptAt;
+
+  @Column(columnDefinition = "timestamp with time zone")
+  @Getter
+  @Setter
+  private ZonedDateTime claimedUntil;
+
+  @Column(columnDefinition = TEXT_COLUMN_DEFINITION)
+  @Getter
+  @Setter
+  private String lastError;
+
+  // created by the automatic retry of an order with the TRANSFER_FAILED status
+  @Column(nullable = false)
+  @Getter
+  @Setter
+  private boolean retry;
+
+  @Column(nullable = false, columnDefinition = "timestamp with time zone")
+  @Getter
+  @Setter
+  private ZonedDateTime createdDate;
+
+  /**
+   * Creates a new transfer of the given order that can be processed immediately.
+   *
+   * @param orderId UUID of the order.
+   */
+  public OrderTransfer(UUID orderId) {
+    this.orderId = orderId;
+    this.nextAttemptAt = ZonedDateTime.now();
+  }
+
+  @PrePersist
+  private void prePersist() {
+    this.createdDate = ZonedDateTime.now();
+  }
+
+}
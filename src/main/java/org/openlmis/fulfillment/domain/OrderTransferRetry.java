@@ -0,0 +1,66 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.domain;
+
+import org.hibernate.annotations.Type;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.ZonedDateTime;
+import java.util.UUID;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Table;
+
+/**
+ * Backoff of the automatic retry of orders with the TRANSFER_FAILED status. Orders of a supplying
+ * facility are retried together, so the state is kept per facility. The record is removed when
+ * an order of the facility has been transferred successfully.
+ */
+@Entity
+@Table(name = "order_transfer_retries")
+@NoArgsConstructor
+public class OrderTransferRetry extends BaseEntity {
+
+  @Column(nullable = false, unique = true)
+  @Getter
+  @Setter
+  @Type(type = UUID_TYPE)
+  private UUID facilityId;
+
+  @Column(nullable = false)
+  @Getter
+  @Setter
+  private int attempts;
+
+  @Column(nullable = false, columnDefinition = "timestamp with time zone")
+  @Getter
+  @Setter
+  private ZonedDateTime nextAttemptAt;
+
+  @Column(nullable = false, columnDefinition = "timestamp with time zone")
+  @Getter
+  @Setter
+  private ZonedDateTime lastAttemptAt;
+
+  public OrderTransferRetry(UUID facilityId) {
+    this.facilityId = facilityId;
+  }
+
+}
@@ -16,6 +16,7 @@
 package org.openlmis.fulfillment.domain;
 
 
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.Fetch;
 import org.hibernate.annotations.FetchMode;
 import org.openlmis.fulfillment.web.util.OrderDto;
@@ -66,6 +67,7 @@ public class ProofOfDelivery extends BaseEntity {
       fetch = FetchType.EAGER,
       orphanRemoval = true)
   @Fetch(FetchMode.SELECT)
+  @BatchSize(size = BATCH_SIZE)
   @Getter
   @Setter
   private List<ProofOfDeliveryLineItem> proofOfDeliveryLineItems;
@@ -15,6 +15,8 @@
 
 package org.openlmis.fulfillment.domain;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.openlmis.fulfillment.service.referencedata.FacilityDto;
 
 import lombok.Getter;
@@ -33,6 +35,7 @@ import javax.persistence.InheritanceType;
 import javax.persistence.Table;
 
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "transfer_properties")
 @Inheritance(strategy = InheritanceType.SINGLE_TABLE)
 @DiscriminatorColumn(name = "type", discriminatorType = DiscriminatorType.STRING)
@@ -37,6 +37,10 @@ public abstract class MessageKeys {
   public static final String ERROR_ORDER_INCORRECT_STATUS = ERROR_PREFIX
       + ".order.incorrectStatus";
   public static final String ERROR_ORDER_INVALID_STATUS = ERROR_PREFIX + ".order.invalidStatus";
+  public static final String ERROR_ORDER_INVALID_SORT = ERROR_PREFIX + ".order.invalidSort";
+  public static final String ERROR_ORDER_INVALID_CURSOR = ERROR_PREFIX + ".order.invalidCursor";
+  public static final String ERROR_ORDER_INVALID_GROUP_BY = ERROR_PREFIX
+      + ".order.invalidGroupBy";
   public static final String ERROR_ORDER_IN_USE = ERROR_PREFIX + ".order.orderInUse";
 
   public static final String ERROR_ORDER_RETRY_INVALID_STATUS = ERROR_PREFIX
@@ -15,11 +15,21 @@
 
 package org.openlmis.fulfillment.repository;
 
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+
 import org.openlmis.fulfillment.domain.OrderFileTemplate;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.PagingAndSortingRepository;
 
 import java.util.UUID;
 
+import javax.persistence.QueryHint;
+
 public interface OrderFileTemplateRepository extends
     PagingAndSortingRepository<OrderFileTemplate, UUID> {
+
+  @Override
+  @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+  Iterable<OrderFileTemplate> findAll();
+
 }
@@ -15,15 +15,21 @@
 
 package org.openlmis.fulfillment.repository;
 
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+
 import org.openlmis.fulfillment.domain.TransferProperties;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.data.repository.query.Param;
 
 import java.util.UUID;
 
+import javax.persistence.QueryHint;
+
 public interface TransferPropertiesRepository
     extends PagingAndSortingRepository<TransferProperties, UUID> {
 
+  @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
   TransferProperties findFirstByFacilityId(@Param("facilityId") UUID facilityId);
 
 }
@@ -16,15 +16,38 @@
 package org.openlmis.fulfillment.repository.custom;
 
 import org.openlmis.fulfillment.domain.Order;
+import org.openlmis.fulfillment.domain.OrderAggregate;
 import org.openlmis.fulfillment.domain.OrderStatus;
+import org.openlmis.fulfillment.domain.OrderSummary;
+import org.openlmis.fulfillment.service.OrderCursor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 public interface OrderRepositoryCustom {
 
+  Page<Order> searchOrders(UUID supplyingFacility, UUID requestingFacility, UUID program,
+                           UUID processingPeriod, Set<OrderStatus> statuses,
+                           Set<UUID> warehouses, Pageable pageable);
+
   List<Order> searchOrders(UUID supplyingFacility, UUID requestingFacility, UUID program,
-                           UUID processingPeriod, Set<OrderStatus> statuses);
+                           UUID processingPeriod, Set<OrderStatus> statuses,
+                           Set<UUID> warehouses, OrderCursor after, int limit);
+
+  Page<OrderSummary> searchOrderSummaries(UUID supplyingFacility, UUID requestingFacility,
+                                          UUID program, UUID processingPeriod,
+                                          Set<OrderStatus> statuses, Set<UUID> warehouses,
+                                          Pageable pageable);
+
+  List<OrderAggregate> aggregateOrders(UUID supplyingFacility, UUID requestingFacility,
+                                       UUID program, UUID processingPeriod,
+                                       Set<OrderStatus> statuses, Set<UUID> warehouses,
+                                       Set<OrderAggregate.Dimension> groupBy);
+
+  void streamAll(int chunkSize, Consumer<List<Order>> consumer);
 
 }
@@ -0,0 +1,86 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.repository.custom.impl;
+
+import org.hibernate.Query;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.openlmis.fulfillment.domain.BaseEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import javax.persistence.EntityManager;
+
+/**
+ * Reads all entities of the given type in chunks. Only the IDs are read with a forward-only
+ * database cursor; the entities of each chunk are then loaded with a single query, so their
+ * associations can be batch fetched. The persistence context is cleared after each chunk, so
+ * memory usage does not depend on the number of rows in the table. It has to be used inside a
+ * transaction, otherwise the database driver reads all rows at once.
+ */
+final class EntityScroller {
+
+  private EntityScroller() {
+    throw new UnsupportedOperationException();
+  }
+
+  static <T extends BaseEntity> void scroll(EntityManager entityManager, Class<T> type,
+                                            int chunkSize, Consumer<List<T>> consumer) {
+    Session session = entityManager.unwrap(Session.class);
+    Query query = session
+        .createQuery("SELECT e.id FROM " + type.getSimpleName() + " e ORDER BY e.id")
+        .setFetchSize(chunkSize);
+
+    ScrollableResults results = query.scroll(ScrollMode.FORWARD_ONLY);
+
+    try {
+      List<UUID> ids = new ArrayList<>(chunkSize);
+
+      while (results.next()) {
+        ids.add((UUID) results.get(0));
+
+        if (ids.size() >= chunkSize) {
+          consumer.accept(load(session, type, ids));
+          session.clear();
+          ids = new ArrayList<>(chunkSize);
+        }
+      }
+
+      if (!ids.isEmpty()) {
+        consumer.accept(load(session, type, ids));
+        session.clear();
+      }
+    } finally {
+      results.close();
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T extends BaseEntity> List<T> load(Session session, Class<T> type,
+                                                     List<UUID> ids) {
+    return session
+        .createQuery("SELECT e FROM " + type.getSimpleName() + " e WHERE e.id IN :ids"
+            + " ORDER BY e.id")
+        .setParameterList("ids", ids)
+        .setReadOnly(true)
+        .list();
+  }
+
+}
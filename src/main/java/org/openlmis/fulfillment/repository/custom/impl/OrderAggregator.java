@@ -0,0 +1,123 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.repository.custom.impl;
+
+import org.openlmis.fulfillment.domain.Order;
+import org.openlmis.fulfillment.domain.OrderAggregate;
+import org.openlmis.fulfillment.domain.OrderLineItem;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.From;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+
+/**
+ * Groups orders matching a predicate by the given dimensions with SQL GROUP BY queries. Orders
+ * and their line items are counted with separate queries, so joining line items does not
+ * multiply the order count and total quoted cost.
+ */
+class OrderAggregator {
+  private static final String QUOTED_COST = "quotedCost";
+  private static final String ORDER = "order";
+
+  private final EntityManager entityManager;
+  private final List<OrderAggregate.Dimension> dimensions;
+
+  OrderAggregator(EntityManager entityManager, Set<OrderAggregate.Dimension> dimensions) {
+    this.entityManager = entityManager;
+    this.dimensions = new ArrayList<>(dimensions);
+  }
+
+  List<OrderAggregate> aggregate(Function<From<?, Order>, Predicate> predicate) {
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+
+    CriteriaQuery<Object[]> query = builder.createQuery(Object[].class);
+    Root<Order> root = query.from(Order.class);
+    List<Expression<?>> groups = getGroups(root);
+
+    List<Selection<?>> selections = new ArrayList<>(groups);
+    selections.add(builder.count(root));
+    selections.add(builder.sum(root.<BigDecimal>get(QUOTED_COST)));
+
+    query.multiselect(selections).where(predicate.apply(root)).groupBy(groups)
+        .orderBy(groups.stream().map(builder::asc).collect(Collectors.toList()));
+
+    Map<List<Object>, OrderAggregate> aggregates = new LinkedHashMap<>();
+
+    for (Object[] row : entityManager.createQuery(query).getResultList()) {
+      List<Object> key = Arrays.asList(row).subList(0, groups.size());
+
+      OrderAggregate aggregate = new OrderAggregate();
+      for (int i = 0; i < dimensions.size(); ++i) {
+        aggregate.setDimension(dimensions.get(i), key.get(i));
+      }
+      aggregate.setOrderCount((Long) row[groups.size()]);
+      aggregate.setTotalQuotedCost((BigDecimal) row[groups.size() + 1]);
+
+      aggregates.put(key, aggregate);
+    }
+
+    if (!aggregates.isEmpty()) {
+      countLineItems(builder, predicate, aggregates);
+    }
+
+    return new ArrayList<>(aggregates.values());
+  }
+
+  private void countLineItems(CriteriaBuilder builder,
+                              Function<From<?, Order>, Predicate> predicate,
+                              Map<List<Object>, OrderAggregate> aggregates) {
+    CriteriaQuery<Object[]> query = builder.createQuery(Object[].class);
+    Root<OrderLineItem> root = query.from(OrderLineItem.class);
+    From<OrderLineItem, Order> order = root.join(ORDER);
+    List<Expression<?>> groups = getGroups(order);
+
+    List<Selection<?>> selections = new ArrayList<>(groups);
+    selections.add(builder.count(root));
+
+    query.multiselect(selections).where(predicate.apply(order)).groupBy(groups);
+
+    for (Object[] row : entityManager.createQuery(query).getResultList()) {
+      OrderAggregate aggregate = aggregates.get(Arrays.asList(row).subList(0, groups.size()));
+
+      if (null != aggregate) {
+        aggregate.setLineItemCount((Long) row[groups.size()]);
+      }
+    }
+  }
+
+  private List<Expression<?>> getGroups(From<?, Order> order) {
+    return dimensions
+        .stream()
+        .map(dimension -> order.get(dimension.getProperty()))
+        .collect(Collectors.toList());
+  }
+
+}
@@ -20,46 +20,233 @@ import static org.openlmis.fulfillment.domain.Order.PROGRAM_ID;
 import static org.openlmis.fulfillment.domain.Order.REQUESTING_FACILITY_ID;
 import static org.openlmis.fulfillment.domain.Order.STATUS;
 import static org.openlmis.fulfillment.domain.Order.SUPPLYING_FACILITY_ID;
+import static org.openlmis.fulfillment.i18n.MessageKeys.ERROR_ORDER_INVALID_SORT;
 import static org.springframework.util.CollectionUtils.isEmpty;
 
+import com.google.common.collect.ImmutableSet;
+
 import org.openlmis.fulfillment.domain.Order;
+import org.openlmis.fulfillment.domain.OrderAggregate;
 import org.openlmis.fulfillment.domain.OrderStatus;
+import org.openlmis.fulfillment.domain.OrderSummary;
 import org.openlmis.fulfillment.repository.custom.OrderRepositoryCustom;
+import org.openlmis.fulfillment.service.OrderCursor;
+import org.openlmis.fulfillment.web.ValidationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.From;
+import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 
 public class OrderRepositoryImpl implements OrderRepositoryCustom {
+  static final String CREATED_DATE = "createdDate";
+  static final String ORDER_CODE = "orderCode";
+  static final String ID = "id";
+  static final String EMERGENCY = "emergency";
+
+  private static final Set<String> SORTABLE = ImmutableSet.of(CREATED_DATE, ORDER_CODE, STATUS);
 
   @PersistenceContext
   private EntityManager entityManager;
 
   /**
-   * Method returns all Orders with matched parameters.
+   * Method returns a page of Orders with matched parameters. Orders are sorted by the given
+   * properties (createdDate, orderCode or status), newest first if no sort is given; the ID is
+   * always used as the last sort property so pages are stable. The total number of orders is
+   * counted with a separate query only if it can not be derived from the page itself.
    *
    * @param supplyingFacility  supplyingFacility of searched Orders.
    * @param requestingFacility requestingFacility of searched Orders.
    * @param program            program of searched Orders.
    * @param processingPeriod   UUID of processing period
    * @param statuses           order statuses.
+   * @param warehouses         supplying facilities the user has rights for; {@code null} if
+   *                           orders should not be restricted.
+   * @param pageable           page to return; all orders are returned if it is {@code null}.
+   * @return Page of Orders with matched parameters.
+   * @throws ValidationException if orders can not be sorted by one of the given properties.
+   */
+  @Override
+  public Page<Order> searchOrders(UUID supplyingFacility, UUID requestingFacility,
+                                  UUID program, UUID processingPeriod, Set<OrderStatus> statuses,
+                                  Set<UUID> warehouses, Pageable pageable) {
+    if (null != warehouses && warehouses.isEmpty()) {
+      return new PageImpl<>(Collections.emptyList(), pageable, 0);
+    }
+
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+    CriteriaQuery<Order> query = builder.createQuery(Order.class);
+    Root<Order> root = query.from(Order.class);
+
+    query.where(buildPredicate(root, builder, supplyingFacility, requestingFacility, program,
+        processingPeriod, statuses, warehouses));
+
+    return getPage(query, root, pageable, countRoot -> buildPredicate(countRoot, builder,
+        supplyingFacility, requestingFacility, program, processingPeriod, statuses, warehouses));
+  }
+
+  /**
+   * Method returns Orders with matched parameters that come after the given cursor. Orders are
+   * sorted by created date and ID (oldest first), so every page is read with the same index
+   * range scan regardless of how many orders have been read before.
+   *
+   * @param supplyingFacility  supplyingFacility of searched Orders.
+   * @param requestingFacility requestingFacility of searched Orders.
+   * @param program            program of searched Orders.
+   * @param processingPeriod   UUID of processing period
+   * @param statuses           order statuses.
+   * @param warehouses         supplying facilities the user has rights for; {@code null} if
+   *                           orders should not be restricted.
+   * @param after              position after which orders are returned; {@code null} to start
+   *                           from the first order.
+   * @param limit              maximum number of returned orders.
    * @return List of Orders with matched parameters.
    */
   @Override
   public List<Order> searchOrders(UUID supplyingFacility, UUID requestingFacility,
-                                  UUID program, UUID processingPeriod, Set<OrderStatus> statuses) {
+                                  UUID program, UUID processingPeriod, Set<OrderStatus> statuses,
+                                  Set<UUID> warehouses, OrderCursor after, int limit) {
+    if (null != warehouses && warehouses.isEmpty()) {
+      return Collections.emptyList();
+    }
+
     CriteriaBuilder builder = entityManager.getCriteriaBuilder();
     CriteriaQuery<Order> query = builder.createQuery(Order.class);
     Root<Order> root = query.from(Order.class);
 
+    Predicate predicate = buildPredicate(root, builder, supplyingFacility, requestingFacility,
+        program, processingPeriod, statuses, warehouses);
+
+    if (null != after) {
+      Path<ZonedDateTime> createdDate = root.get(CREATED_DATE);
+      Path<UUID> id = root.get(ID);
+
+      // the first condition is redundant but it lets the database start the index range scan
+      // at the cursor instead of filtering out every order that has already been read
+      predicate = builder.and(
+          predicate,
+          builder.greaterThanOrEqualTo(createdDate, after.getCreatedDate()),
+          builder.or(
+              builder.greaterThan(createdDate, after.getCreatedDate()),
+              builder.greaterThan(id, after.getId())
+          )
+      );
+    }
+
+    query.where(predicate);
+    query.orderBy(builder.asc(root.get(CREATED_DATE)), builder.asc(root.get(ID)));
+
+    return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+  }
+
+  /**
+   * Method returns a page of summaries of Orders with matched parameters. Only the columns of the
+   * orders table that are needed by order lists are read; line items and status messages are not
+   * loaded. Summaries are sorted and paged like
+   * {@link #searchOrders(UUID, UUID, UUID, UUID, Set, Set, Pageable)}.
+   *
+   * @param supplyingFacility  supplyingFacility of searched Orders.
+   * @param requestingFacility requestingFacility of searched Orders.
+   * @param program            program of searched Orders.
+   * @param processingPeriod   UUID of processing period
+   * @param statuses           order statuses.
+   * @param warehouses         supplying facilities the user has rights for; {@code null} if
+   *                           orders should not be restricted.
+   * @param pageable           page to return; all summaries are returned if it is {@code null}.
+   * @return Page of summaries of Orders with matched parameters.
+   * @throws ValidationException if orders can not be sorted by one of the given properties.
+   */
+  @Override
+  public Page<OrderSummary> searchOrderSummaries(UUID supplyingFacility, UUID requestingFacility,
+                                                 UUID program, UUID processingPeriod,
+                                                 Set<OrderStatus> statuses, Set<UUID> warehouses,
+                                                 Pageable pageable) {
+    if (null != warehouses && warehouses.isEmpty()) {
+      return new PageImpl<>(Collections.emptyList(), pageable, 0);
+    }
+
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+    CriteriaQuery<OrderSummary> query = builder.createQuery(OrderSummary.class);
+    Root<Order> root = query.from(Order.class);
+
+    query.select(builder.construct(OrderSummary.class, root.get(ID), root.get(ORDER_CODE),
+        root.get(STATUS), root.get(CREATED_DATE), root.get(EMERGENCY), root.get(PROGRAM_ID),
+        root.get(REQUESTING_FACILITY_ID), root.get(SUPPLYING_FACILITY_ID)));
+    query.where(buildPredicate(root, builder, supplyingFacility, requestingFacility, program,
+        processingPeriod, statuses, warehouses));
+
+    return getPage(query, root, pageable, countRoot -> buildPredicate(countRoot, builder,
+        supplyingFacility, requestingFacility, program, processingPeriod, statuses, warehouses));
+  }
+
+  /**
+   * Passes all orders to the given consumer in chunks of the given size. Orders are read with a
+   * database cursor and detached after each chunk.
+   *
+   * @param chunkSize number of orders passed to the consumer at once.
+   * @param consumer  receives the chunks of orders.
+   */
+  @Override
+  @Transactional(readOnly = true)
+  public void streamAll(int chunkSize, Consumer<List<Order>> consumer) {
+    EntityScroller.scroll(entityManager, Order.class, chunkSize, consumer);
+  }
+
+  /**
+   * Method returns the number of Orders with matched parameters, their total quoted cost and the
+   * number of their line items, grouped by the given dimensions. Groups are computed by the
+   * database with GROUP BY queries, so orders are not loaded.
+   *
+   * @param supplyingFacility  supplyingFacility of aggregated Orders.
+   * @param requestingFacility requestingFacility of aggregated Orders.
+   * @param program            program of aggregated Orders.
+   * @param processingPeriod   UUID of processing period
+   * @param statuses           order statuses.
+   * @param warehouses         supplying facilities the user has rights for; {@code null} if
+   *                           orders should not be restricted.
+   * @param groupBy            dimensions the orders are grouped by.
+   * @return List of aggregates, one for each group, sorted by the values of dimensions.
+   */
+  @Override
+  public List<OrderAggregate> aggregateOrders(UUID supplyingFacility, UUID requestingFacility,
+                                              UUID program, UUID processingPeriod,
+                                              Set<OrderStatus> statuses, Set<UUID> warehouses,
+                                              Set<OrderAggregate.Dimension> groupBy) {
+    if (null != warehouses && warehouses.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+
+    return new OrderAggregator(entityManager, groupBy).aggregate(order -> buildPredicate(order,
+        builder, supplyingFacility, requestingFacility, program, processingPeriod, statuses,
+        warehouses));
+  }
+
+  private Predicate buildPredicate(From<?, Order> root, CriteriaBuilder builder,
+                                   UUID supplyingFacility, UUID requestingFacility,
+                                   UUID program, UUID processingPeriod,
+                                   Set<OrderStatus> statuses, Set<UUID> warehouses) {
     Predicate predicate = builder.conjunction();
     predicate = isEqual(SUPPLYING_FACILITY_ID, supplyingFacility, root, predicate, builder);
     predicate = isEqual(REQUESTING_FACILITY_ID, requestingFacility, root, predicate, builder);
@@ -67,12 +254,75 @@ public class OrderRepositoryImpl implements OrderRepositoryCustom {
     predicate = isEqual(PROCESSING_PERIOD_ID, processingPeriod, root, predicate, builder);
     predicate = isOneOf(STATUS, statuses, root, predicate, builder);
 
-    query.where(predicate);
+    if (null != warehouses) {
+      predicate = builder.and(predicate, root.get(SUPPLYING_FACILITY_ID).in(warehouses));
+    }
+
+    return predicate;
+  }
+
+  private <T> Page<T> getPage(CriteriaQuery<T> query, Root<Order> root, Pageable pageable,
+                              Function<Root<Order>, Predicate> countPredicate) {
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+    query.orderBy(getOrders(root, builder, null == pageable ? null : pageable.getSort()));
+
+    TypedQuery<T> typedQuery = entityManager.createQuery(query);
+
+    if (null == pageable) {
+      List<T> content = typedQuery.getResultList();
+      return new PageImpl<>(content, null, content.size());
+    }
+
+    List<T> content = typedQuery
+        .setFirstResult(pageable.getOffset())
+        .setMaxResults(pageable.getPageSize())
+        .getResultList();
+
+    long total;
+
+    boolean lastPage = content.size() < pageable.getPageSize()
+        && (pageable.getOffset() == 0 || !content.isEmpty());
+
+    if (lastPage) {
+      // the last page has been returned, there is no need to count orders
+      total = (long) pageable.getOffset() + content.size();
+    } else {
+      CriteriaQuery<Long> countQuery = builder.createQuery(Long.class);
+      Root<Order> countRoot = countQuery.from(Order.class);
+
+      countQuery.select(builder.count(countRoot));
+      countQuery.where(countPredicate.apply(countRoot));
+
+      total = entityManager.createQuery(countQuery).getSingleResult();
+    }
+
+    return new PageImpl<>(content, pageable, total);
+  }
+
+  private List<javax.persistence.criteria.Order> getOrders(Root<Order> root,
+                                                           CriteriaBuilder builder, Sort sort) {
+    List<javax.persistence.criteria.Order> orders = new ArrayList<>();
+
+    if (null == sort) {
+      orders.add(builder.desc(root.get(CREATED_DATE)));
+    } else {
+      for (Sort.Order order : sort) {
+        if (!SORTABLE.contains(order.getProperty())) {
+          throw new ValidationException(ERROR_ORDER_INVALID_SORT, order.getProperty());
+        }
+
+        orders.add(order.isAscending()
+            ? builder.asc(root.get(order.getProperty()))
+            : builder.desc(root.get(order.getProperty())));
+      }
+    }
+
+    orders.add(builder.asc(root.get(ID)));
 
-    return entityManager.createQuery(query).getResultList();
+    return orders;
   }
 
-  private Predicate isOneOf(String field, Collection collection, Root root, Predicate predicate,
+  private Predicate isOneOf(String field, Collection collection, Path root, Predicate predicate,
                             CriteriaBuilder builder) {
     if (!isEmpty(collection)) {
       Predicate collectionPredicate = builder.disjunction();
@@ -87,7 +337,7 @@ public class OrderRepositoryImpl implements OrderRepositoryCustom {
     return predicate;
   }
 
-  private Predicate isEqual(String field, Object value, Root root, Predicate predicate,
+  private Predicate isEqual(String field, Object value, Path root, Predicate predicate,
                             CriteriaBuilder builder) {
     return value != null
         ? builder.and(predicate, builder.equal(root.get(field), value))
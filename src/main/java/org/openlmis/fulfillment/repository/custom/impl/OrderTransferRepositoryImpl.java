@@ -0,0 +1,121 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.repository.custom.impl;
+
+import org.openlmis.fulfillment.domain.OrderTransfer;
+import org.openlmis.fulfillment.repository.custom.OrderTransferRepositoryCustom;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+public class OrderTransferRepositoryImpl implements OrderTransferRepositoryCustom {
+
+  private static final String NOT_CLAIMED = "(t.claimedUntil IS NULL OR t.claimedUntil < :now)";
+
+  private static final String FIND_DUE = "SELECT t FROM OrderTransfer t"
+      + " WHERE t.nextAttemptAt <= :now AND " + NOT_CLAIMED
+      + " ORDER BY t.nextAttemptAt";
+
+  private static final String CLAIM = "UPDATE OrderTransfer t SET t.claimedUntil = :until"
+      + " WHERE t.id = :id AND t.nextAttemptAt <= :now AND " + NOT_CLAIMED;
+
+  private static final String RENEW = "UPDATE OrderTransfer t SET t.claimedUntil = :until"
+      + " WHERE t.id IN :ids AND t.claimedUntil IS NOT NULL";
+
+  private static final String RELEASE = "UPDATE OrderTransfer t SET t.claimedUntil = NULL"
+      + " WHERE t.id = :id";
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  /**
+   * Finds transfers that should be processed at the given time and are not claimed by any worker.
+   * Transfers are sorted by the time of the next attempt.
+   *
+   * @param now   current time.
+   * @param limit maximum number of returned transfers.
+   * @return list of transfers ready to be processed.
+   */
+  @Override
+  @Transactional(readOnly = true)
+  public List<OrderTransfer> findDue(ZonedDateTime now, int limit) {
+    return entityManager
+        .createQuery(FIND_DUE, OrderTransfer.class)
+        .setParameter("now", now)
+        .setMaxResults(limit)
+        .getResultList();
+  }
+
+  /**
+   * Claims the transfer until the given time. The update is conditional so only one worker, on
+   * any instance of the service, can claim the transfer, and only if it is still due. A claim
+   * that has not been released or renewed expires after the given time and the transfer can be
+   * claimed again.
+   *
+   * @param id    UUID of the transfer.
+   * @param now   current time.
+   * @param until time when the claim expires.
+   * @return true if the transfer has been claimed; otherwise false.
+   */
+  @Override
+  @Transactional
+  public boolean claim(UUID id, ZonedDateTime now, ZonedDateTime until) {
+    return entityManager
+        .createQuery(CLAIM)
+        .setParameter("id", id)
+        .setParameter("now", now)
+        .setParameter("until", until)
+        .executeUpdate() > 0;
+  }
+
+  /**
+   * Extends claims of the given transfers until the given time. Transfers whose claim has been
+   * released in the meantime are not claimed again.
+   *
+   * @param ids   UUIDs of the claimed transfers.
+   * @param until time when the claims expire.
+   */
+  @Override
+  @Transactional
+  public void renewClaims(Collection<UUID> ids, ZonedDateTime until) {
+    entityManager
+        .createQuery(RENEW)
+        .setParameter("ids", ids)
+        .setParameter("until", until)
+        .executeUpdate();
+  }
+
+  /**
+   * Releases the claim of the transfer so it can be processed by other workers.
+   *
+   * @param id UUID of the transfer.
+   */
+  @Override
+  @Transactional
+  public void release(UUID id) {
+    entityManager
+        .createQuery(RELEASE)
+        .setParameter("id", id)
+        .executeUpdate();
+  }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.repository.custom.impl;
+
+import org.openlmis.fulfillment.domain.OrderStatus;
+import org.openlmis.fulfillment.repository.custom.OrderTransferRetryRepositoryCustom;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+public class OrderTransferRetryRepositoryImpl implements OrderTransferRetryRepositoryCustom {
+
+  private static final String TRY_LOCK = "SELECT pg_try_advisory_xact_lock(:key)";
+
+  private static final String HAS_TRANSFER_PROPERTIES = "EXISTS (SELECT p.id"
+      + " FROM TransferProperties p WHERE p.facilityId = %s)";
+
+  private static final String FIND_NEW_FACILITIES = "SELECT DISTINCT o.supplyingFacilityId"
+      + " FROM Order o"
+      + " WHERE o.status = :status"
+      + " AND " + String.format(HAS_TRANSFER_PROPERTIES, "o.supplyingFacilityId")
+      + " AND NOT EXISTS (SELECT r.id FROM OrderTransferRetry r"
+      + " WHERE r.facilityId = o.supplyingFacilityId)"
+      + " ORDER BY o.supplyingFacilityId";
+
+  private static final String FIND_DUE_FACILITIES = "SELECT r.facilityId"
+      + " FROM OrderTransferRetry r"
+      + " WHERE r.nextAttemptAt <= :now"
+      + " AND (r.attempts < :maxAttempts OR r.lastAttemptAt <= :expiredBefore)"
+      + " AND " + String.format(HAS_TRANSFER_PROPERTIES, "r.facilityId")
+      + " AND EXISTS (SELECT o.id FROM Order o"
+      + " WHERE o.supplyingFacilityId = r.facilityId AND o.status = :status)"
+      + " ORDER BY r.nextAttemptAt, r.facilityId";
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  /**
+   * Tries to obtain the PostgreSQL advisory lock with the given key. The lock is held until the
+   * end of the current transaction and is not obtained if another transaction holds it.
+   *
+   * @param key key of the lock.
+   * @return true if the lock has been obtained; otherwise false.
+   */
+  @Override
+  @Transactional(propagation = Propagation.MANDATORY)
+  public boolean tryLock(long key) {
+    Object locked = entityManager
+        .createNativeQuery(TRY_LOCK)
+        .setParameter("key", key)
+        .getSingleResult();
+
+    return Boolean.TRUE.equals(locked);
+  }
+
+  /**
+   * Finds supplying facilities with orders in the TRANSFER_FAILED status that should be retried
+   * at the given time. Facilities without transfer properties are skipped, because their orders
+   * can not be transferred anyway. Facilities that have never been retried come first, followed
+   * by the facilities whose backoff passed earliest.
+   *
+   * @param now           current time.
+   * @param maxAttempts   facilities retried that many times are skipped.
+   * @param expiredBefore facilities last retried before that time are not skipped, even if they
+   *                      have been retried the maximum number of times.
+   * @param limit         maximum number of returned facilities.
+   * @return list of UUIDs of supplying facilities.
+   */
+  @Override
+  @Transactional(readOnly = true)
+  public List<UUID> findFacilitiesToRetry(ZonedDateTime now, int maxAttempts,
+                                          ZonedDateTime expiredBefore, int limit) {
+    List<UUID> facilities = new ArrayList<>(entityManager
+        .createQuery(FIND_NEW_FACILITIES, UUID.class)
+        .setParameter("status", OrderStatus.TRANSFER_FAILED)
+        .setMaxResults(limit)
+        .getResultList());
+
+    if (facilities.size() < limit) {
+      facilities.addAll(entityManager
+          .createQuery(FIND_DUE_FACILITIES, UUID.class)
+          .setParameter("status", OrderStatus.TRANSFER_FAILED)
+          .setParameter("now", now)
+          .setParameter("maxAttempts", maxAttempts)
+          .setParameter("expiredBefore", expiredBefore)
+          .setMaxResults(limit - facilities.size())
+          .getResultList());
+    }
+
+    return facilities;
+  }
+
+}
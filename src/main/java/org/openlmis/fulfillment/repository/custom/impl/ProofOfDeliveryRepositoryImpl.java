@@ -0,0 +1,76 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.repository.custom.impl;
+
+import org.openlmis.fulfillment.domain.ProofOfDelivery;
+import org.openlmis.fulfillment.repository.custom.ProofOfDeliveryRepositoryCustom;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+
+public class ProofOfDeliveryRepositoryImpl implements ProofOfDeliveryRepositoryCustom {
+
+  private static final String SELECT_ID = "SELECT p.id FROM ProofOfDelivery p";
+  private static final String WHERE_SUPPLYING_FACILITY_NOT_IN =
+      " WHERE p.order.supplyingFacilityId NOT IN :supplyingFacilities";
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  /**
+   * Passes all proofs of delivery to the given consumer in chunks of the given size. Proofs of
+   * delivery are read with a database cursor and detached after each chunk.
+   *
+   * @param chunkSize number of proofs of delivery passed to the consumer at once.
+   * @param consumer  receives the chunks of proofs of delivery.
+   */
+  @Override
+  @Transactional(readOnly = true)
+  public void streamAll(int chunkSize, Consumer<List<ProofOfDelivery>> consumer) {
+    EntityScroller.scroll(entityManager, ProofOfDelivery.class, chunkSize, consumer);
+  }
+
+  /**
+   * Checks if there is a proof of delivery of an order supplied by a facility other than the
+   * given ones.
+   *
+   * @param supplyingFacilities IDs of the allowed supplying facilities.
+   * @return {@code true} if such a proof of delivery exists; {@code false} otherwise.
+   */
+  @Override
+  @Transactional(readOnly = true)
+  public boolean existsWithSupplyingFacilityNotIn(Collection<UUID> supplyingFacilities) {
+    TypedQuery<UUID> query;
+
+    if (supplyingFacilities.isEmpty()) {
+      query = entityManager.createQuery(SELECT_ID, UUID.class);
+    } else {
+      query = entityManager
+          .createQuery(SELECT_ID + WHERE_SUPPLYING_FACILITY_NOT_IN, UUID.class)
+          .setParameter("supplyingFacilities", supplyingFacilities);
+    }
+
+    return !query.setMaxResults(1).getResultList().isEmpty();
+  }
+
+}
@@ -78,6 +78,7 @@ public class ResourceServerSecurityConfiguration implements ResourceServerConfig
         .authorizeRequests()
         .antMatchers(
             "/fulfillment",
+            "/health",
             "/webjars/**",
             "/fulfillment/webjars/**",
             "/fulfillment/docs/**"
@@ -0,0 +1,159 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.service;
+
+import org.apache.commons.codec.binary.Base64;
+import org.openlmis.fulfillment.service.http.RestTemplateFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestOperations;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.time.Clock;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Obtains access tokens for calls to other services and keeps them until shortly before they
+ * expire. All communication services share one instance, so a token is requested from the auth
+ * server only when there is no valid one. Concurrent callers wait for a single refresh instead of
+ * requesting their own tokens.
+ */
+@Component
+public class AccessTokenManager {
+  private static final String ACCESS_TOKEN = "access_token";
+  private static final String EXPIRES_IN = "expires_in";
+
+  private RestOperations restTemplate = new RestTemplate();
+
+  private Clock clock = Clock.systemUTC();
+
+  @Value("${auth.server.clientId}")
+  private String clientId;
+
+  @Value("${auth.server.clientSecret}")
+  private String clientSecret;
+
+  @Value("${auth.server.authorizationUrl}")
+  private String authorizationUrl;
+
+  @Value("${auth.server.tokenRefreshMargin}")
+  private long refreshMargin = 30;
+
+  private final Object lock = new Object();
+
+  private volatile Token token;
+
+  /**
+   * Returns a valid access token. A new token is obtained only if there is no token yet or the
+   * current one is about to expire.
+   *
+   * @return access token.
+   */
+  public String getToken() {
+    Token current = token;
+
+    if (null != current && current.isValid(clock.millis())) {
+      return current.value;
+    }
+
+    synchronized (lock) {
+      if (null == token || !token.isValid(clock.millis())) {
+        refresh();
+      }
+
+      return token.value;
+    }
+  }
+
+  /**
+   * Returns a new access token after the given token was rejected by another service. If the
+   * token has been refreshed in the meantime, the already refreshed token is returned.
+   *
+   * @param rejected token that was rejected.
+   * @return new access token.
+   */
+  public String refreshToken(String rejected) {
+    synchronized (lock) {
+      if (null == token || Objects.equals(token.value, rejected)) {
+        refresh();
+      }
+
+      return token.value;
+    }
+  }
+
+  public void setRestTemplate(RestOperations template) {
+    this.restTemplate = template;
+  }
+
+  @Autowired
+  public void setRestTemplateFactory(RestTemplateFactory restTemplateFactory) {
+    setRestTemplate(restTemplateFactory.getRestTemplate(RestTemplateFactory.AUTH));
+  }
+
+  private void refresh() {
+    String plainCreds = clientId + ":" + clientSecret;
+    byte[] plainCredsBytes = plainCreds.getBytes();
+    byte[] base64CredsBytes = Base64.encodeBase64(plainCredsBytes);
+    String base64Creds = new String(base64CredsBytes);
+
+    HttpHeaders headers = new HttpHeaders();
+    headers.add("Authorization", "Basic " + base64Creds);
+
+    HttpEntity<String> request = new HttpEntity<>(headers);
+
+    UriComponentsBuilder builder = UriComponentsBuilder
+        .fromUriString(authorizationUrl)
+        .queryParam("grant_type", "client_credentials");
+
+    long requestedAt = clock.millis();
+    ResponseEntity<?> response = restTemplate.exchange(
+        builder.build(true).toUri(), HttpMethod.POST, request, Object.class);
+
+    Map<String, Object> body = (Map<String, Object>) response.getBody();
+    Object expiresIn = body.get(EXPIRES_IN);
+
+    // without expiration time the token is used only by the current caller
+    long validFor = expiresIn instanceof Number
+        ? TimeUnit.SECONDS.toMillis(((Number) expiresIn).longValue() - refreshMargin)
+        : 0;
+
+    token = new Token((String) body.get(ACCESS_TOKEN), requestedAt + validFor);
+  }
+
+  private static final class Token {
+    private final String value;
+    private final long expiresAt;
+
+    Token(String value, long expiresAt) {
+      this.value = value;
+      this.expiresAt = expiresAt;
+    }
+
+    boolean isValid(long now) {
+      return now < expiresAt;
+    }
+  }
+
+}
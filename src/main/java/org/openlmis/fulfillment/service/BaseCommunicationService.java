@@ -15,19 +15,17 @@
 
 package org.openlmis.fulfillment.service;
 
-import org.apache.commons.codec.binary.Base64;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.RestOperations;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import java.net.URI;
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.Map;
+import java.util.function.Function;
 
 
 public abstract class BaseCommunicationService {
@@ -35,40 +33,44 @@ public abstract class BaseCommunicationService {
 
   protected RestOperations restTemplate = new RestTemplate();
 
-  @Value("${auth.server.clientId}")
-  private String clientId;
-
-  @Value("${auth.server.clientSecret}")
-  private String clientSecret;
-
-  @Value("${auth.server.authorizationUrl}")
-  private String authorizationUrl;
+  private AccessTokenManager tokenManager;
 
   protected String obtainAccessToken() {
-    String plainCreds = clientId + ":" + clientSecret;
-    byte[] plainCredsBytes = plainCreds.getBytes();
-    byte[] base64CredsBytes = Base64.encodeBase64(plainCredsBytes);
-    String base64Creds = new String(base64CredsBytes);
-
-    HttpHeaders headers = new HttpHeaders();
-    headers.add("Authorization", "Basic " + base64Creds);
-
-    HttpEntity<String> request = new HttpEntity<>(headers);
-
-    Map<String, Object> params = new HashMap<>();
-    params.put("grant_type", "client_credentials");
-
-    ResponseEntity<?> response = restTemplate.exchange(
-        buildUri(authorizationUrl, params), HttpMethod.POST, request, Object.class);
-
+    return tokenManager.getToken();
+  }
 
-    return ((Map<String, String>) response.getBody()).get(ACCESS_TOKEN);
+  /**
+   * Executes the given call with a valid access token. If the token is rejected by the other
+   * service (401 Unauthorized) a new token is obtained and the call is executed once more.
+   *
+   * @param call call to execute, receives the access token to use.
+   * @param <R>  type of result.
+   * @return result of the call.
+   */
+  protected <R> R withAccessToken(Function<String, R> call) {
+    String token = obtainAccessToken();
+
+    try {
+      return call.apply(token);
+    } catch (HttpStatusCodeException ex) {
+      if (HttpStatus.UNAUTHORIZED != ex.getStatusCode()) {
+        throw ex;
+      }
+
+      return call.apply(tokenManager.refreshToken(token));
+    }
   }
 
   protected URI buildUri(String url, Map<String, ?> params) {
     UriComponentsBuilder builder = UriComponentsBuilder.newInstance().uri(URI.create(url));
 
-    params.entrySet().forEach(e -> builder.queryParam(e.getKey(), e.getValue()));
+    params.forEach((key, value) -> {
+      if (value instanceof Collection) {
+        builder.queryParam(key, ((Collection<?>) value).toArray());
+      } else {
+        builder.queryParam(key, value);
+      }
+    });
 
     return builder.build(true).toUri();
   }
@@ -77,4 +79,9 @@ public abstract class BaseCommunicationService {
     this.restTemplate = template;
   }
 
+  @Autowired
+  public void setTokenManager(AccessTokenManager tokenManager) {
+    this.tokenManager = tokenManager;
+  }
+
 }
@@ -15,24 +15,46 @@
 
 package org.openlmis.fulfillment.service;
 
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
 import org.openlmis.fulfillment.domain.FtpTransferProperties;
 import org.openlmis.fulfillment.domain.LocalTransferProperties;
 import org.openlmis.fulfillment.domain.Order;
 import org.openlmis.fulfillment.domain.OrderLineItem;
+import org.openlmis.fulfillment.service.referencedata.BaseDto;
 import org.openlmis.fulfillment.service.referencedata.BaseReferenceDataService;
 import org.openlmis.fulfillment.service.referencedata.FacilityReferenceDataService;
 import org.openlmis.fulfillment.service.referencedata.OrderableReferenceDataService;
 import org.openlmis.fulfillment.service.referencedata.PeriodReferenceDataService;
 import org.openlmis.fulfillment.service.referencedata.ProgramReferenceDataService;
 import org.openlmis.fulfillment.service.referencedata.UserReferenceDataService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiFunction;
 
 @Service
 public class ExporterBuilder {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ExporterBuilder.class);
 
   @Autowired
   private FacilityReferenceDataService facilities;
@@ -49,24 +71,110 @@ public class ExporterBuilder {
   @Autowired
   private OrderableReferenceDataService products;
 
+  @Autowired(required = false)
+  @Qualifier("exportExecutor")
+  private AsyncTaskExecutor executor;
+
+  @Value("${exporter.async.timeout}")
+  private long timeout = 5000;
+
+  private final Map<BaseReferenceDataService<?>, Map<UUID, ?>> prefetched;
+
+  public ExporterBuilder() {
+    this.prefetched = Collections.emptyMap();
+  }
+
+  private ExporterBuilder(ExporterBuilder parent,
+                          Map<BaseReferenceDataService<?>, Map<UUID, ?>> prefetched) {
+    this.facilities = parent.facilities;
+    this.programs = parent.programs;
+    this.users = parent.users;
+    this.periods = parent.periods;
+    this.products = parent.products;
+    this.executor = parent.executor;
+    this.timeout = parent.timeout;
+    this.prefetched = prefetched;
+  }
+
+  /**
+   * Creates a builder that exports the given orders (and their line items) using reference data
+   * retrieved in bulk. All facilities, programs, periods, users and orderables referenced by the
+   * orders are retrieved at once, before any order is exported.
+   *
+   * @param orders orders that will be exported by the returned builder.
+   * @return new instance of builder with prefetched reference data.
+   */
+  public ExporterBuilder prefetch(Collection<Order> orders) {
+    Set<UUID> facilityIds = new HashSet<>();
+    Set<UUID> programIds = new HashSet<>();
+    Set<UUID> periodIds = new HashSet<>();
+    Set<UUID> userIds = new HashSet<>();
+    Set<UUID> orderableIds = new HashSet<>();
+
+    for (Order order : orders) {
+      facilityIds.add(order.getFacilityId());
+      facilityIds.add(order.getRequestingFacilityId());
+      facilityIds.add(order.getReceivingFacilityId());
+      facilityIds.add(order.getSupplyingFacilityId());
+      programIds.add(order.getProgramId());
+      periodIds.add(order.getProcessingPeriodId());
+      userIds.add(order.getCreatedById());
+      order.forEachLine(line -> orderableIds.add(line.getOrderableId()));
+    }
+
+    Map<BaseReferenceDataService<?>, Map<UUID, ?>> data = new IdentityHashMap<>();
+    data.put(facilities, facilities.findByIds(facilityIds));
+    data.put(programs, programs.findByIds(programIds));
+    data.put(periods, periods.findByIds(periodIds));
+    data.put(users, users.findByIds(userIds));
+    data.put(products, products.findByIds(orderableIds));
+
+    return new ExporterBuilder(this, data);
+  }
+
+  /**
+   * Exports all given orders with reference data retrieved in bulk (see
+   * {@link #prefetch(Collection)}).
+   *
+   * @param orders  orders to export.
+   * @param factory creates an exporter for a single order using the given builder.
+   * @return list of exporters in the same order as the given orders.
+   */
+  public <E extends Order.Exporter> List<E> exportAll(
+      List<Order> orders, BiFunction<Order, ExporterBuilder, E> factory) {
+    ExporterBuilder builder = prefetch(orders);
+    List<E> exported = new ArrayList<>(orders.size());
+
+    for (Order order : orders) {
+      exported.add(factory.apply(order, builder));
+    }
+
+    return exported;
+  }
+
   /**
    * Copy data from the given order to the instance that implemenet {@link Order.Exporter}
    * interface.
    */
   public void export(Order order, Order.Exporter exporter) {
+    ExporterBuilder builder = fetchConcurrently(order);
+
     exporter.setId(order.getId());
     exporter.setExternalId(order.getExternalId());
     exporter.setEmergency(order.getEmergency());
-    exporter.setFacility(getIfPresent(facilities, order.getFacilityId()));
-    exporter.setProgram(getIfPresent(programs, order.getProgramId()));
-    exporter.setProcessingPeriod(getIfPresent(periods, order.getProcessingPeriodId()));
-    exporter.setRequestingFacility(getIfPresent(facilities, order.getRequestingFacilityId()));
-    exporter.setReceivingFacility(getIfPresent(facilities, order.getReceivingFacilityId()));
-    exporter.setSupplyingFacility(getIfPresent(facilities, order.getSupplyingFacilityId()));
+    exporter.setFacility(builder.getIfPresent(facilities, order.getFacilityId()));
+    exporter.setProgram(builder.getIfPresent(programs, order.getProgramId()));
+    exporter.setProcessingPeriod(builder.getIfPresent(periods, order.getProcessingPeriodId()));
+    exporter.setRequestingFacility(
+        builder.getIfPresent(facilities, order.getRequestingFacilityId()));
+    exporter.setReceivingFacility(
+        builder.getIfPresent(facilities, order.getReceivingFacilityId()));
+    exporter.setSupplyingFacility(
+        builder.getIfPresent(facilities, order.getSupplyingFacilityId()));
     exporter.setOrderCode(order.getOrderCode());
     exporter.setStatus(order.getStatus());
     exporter.setQuotedCost(order.getQuotedCost());
-    exporter.setCreatedBy(getIfPresent(users, order.getCreatedById()));
+    exporter.setCreatedBy(builder.getIfPresent(users, order.getCreatedById()));
     exporter.setCreatedDate(order.getCreatedDate());
   }
 
@@ -111,8 +219,99 @@ public class ExporterBuilder {
     exporter.setPassiveMode(properties.getPassiveMode());
   }
 
-  private <T> T getIfPresent(BaseReferenceDataService<T> service, UUID id) {
-    return Optional.ofNullable(id).isPresent() ? service.findOne(id) : null;
+  /**
+   * Retrieves reference data of the given order that has not been prefetched. Objects already
+   * retrieved in the current request are taken from there on the calling thread, because the
+   * executor threads are not bound to the request. Each remaining distinct object is retrieved by
+   * a separate task on the export executor and all tasks must finish before the deadline. Objects
+   * that could not be retrieved in time are replaced by stubs that contain only the ID. Without an
+   * executor the data is retrieved later, one by one.
+   */
+  private ExporterBuilder fetchConcurrently(Order order) {
+    if (null == executor || timeout <= 0) {
+      return this;
+    }
+
+    Map<BaseReferenceDataService<?>, Set<UUID>> missing = new IdentityHashMap<>();
+    addIfMissing(missing, facilities, order.getFacilityId());
+    addIfMissing(missing, facilities, order.getRequestingFacilityId());
+    addIfMissing(missing, facilities, order.getReceivingFacilityId());
+    addIfMissing(missing, facilities, order.getSupplyingFacilityId());
+    addIfMissing(missing, programs, order.getProgramId());
+    addIfMissing(missing, periods, order.getProcessingPeriodId());
+    addIfMissing(missing, users, order.getCreatedById());
+
+    if (missing.isEmpty()) {
+      return this;
+    }
+
+    Map<BaseReferenceDataService<?>, Map<UUID, Object>> found = new IdentityHashMap<>();
+    Map<BaseReferenceDataService<?>, Map<UUID, Future<?>>> tasks = new IdentityHashMap<>();
+
+    missing.forEach((service, ids) -> {
+      Map<UUID, Object> values = new HashMap<>();
+      Optional.ofNullable(prefetched.get(service)).ifPresent(values::putAll);
+      values.putAll(service.getRemembered(ids));
+      found.put(service, values);
+
+      Map<UUID, Future<?>> futures = new HashMap<>();
+      ids.stream()
+          .filter(id -> !values.containsKey(id))
+          .forEach(id -> futures.put(id, executor.submit(() -> service.findOne(id))));
+      tasks.put(service, futures);
+    });
+
+    long deadline = System.currentTimeMillis() + timeout;
+
+    tasks.forEach((service, futures) -> futures.forEach(
+        (id, future) -> found.get(service).put(id, await(service, id, future, deadline))));
+
+    Map<BaseReferenceDataService<?>, Map<UUID, ?>> data = new IdentityHashMap<>(prefetched);
+    data.putAll(found);
+
+    return new ExporterBuilder(this, data);
+  }
+
+  private void addIfMissing(Map<BaseReferenceDataService<?>, Set<UUID>> missing,
+                            BaseReferenceDataService<?> service, UUID id) {
+    Map<UUID, ?> data = prefetched.get(service);
+
+    if (null != id && (null == data || !data.containsKey(id))) {
+      missing.computeIfAbsent(service, key -> new HashSet<>()).add(id);
+    }
+  }
+
+  private Object await(BaseReferenceDataService<?> service, UUID id, Future<?> future,
+                       long deadline) {
+    try {
+      return future.get(Math.max(deadline - System.currentTimeMillis(), 0), MILLISECONDS);
+    } catch (TimeoutException exp) {
+      future.cancel(true);
+      LOGGER.warn("Retrieving {} timed out, only the ID will be exported", id);
+      return service.createStub(id);
+    } catch (InterruptedException exp) {
+      Thread.currentThread().interrupt();
+      future.cancel(true);
+      return service.createStub(id);
+    } catch (ExecutionException exp) {
+      Throwable cause = exp.getCause();
+
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+
+      throw new IllegalStateException(exp);
+    }
+  }
+
+  private <T extends BaseDto> T getIfPresent(BaseReferenceDataService<T> service, UUID id) {
+    if (null == id) {
+      return null;
+    }
+
+    Map<UUID, T> data = (Map<UUID, T>) prefetched.get(service);
+
+    return null != data && data.containsKey(id) ? data.get(id) : service.findOne(id);
   }
 
 }
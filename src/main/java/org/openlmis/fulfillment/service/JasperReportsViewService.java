@@ -27,6 +27,7 @@ import net.sf.jasperreports.engine.JasperReport;
 
 import org.openlmis.fulfillment.domain.Template;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.web.context.WebApplicationContext;
 import org.springframework.web.context.support.WebApplicationContextUtils;
@@ -49,6 +50,7 @@ import javax.sql.DataSource;
 public class JasperReportsViewService {
 
   @Autowired
+  @Qualifier("replicationDataSource")
   private DataSource replicationDataSource;
 
   /**
@@ -0,0 +1,98 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.service;
+
+import static org.openlmis.fulfillment.i18n.MessageKeys.ERROR_ORDER_INVALID_CURSOR;
+
+import org.openlmis.fulfillment.domain.Order;
+import org.openlmis.fulfillment.web.ValidationException;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Position in the list of orders sorted by created date and ID. It is passed to clients as an
+ * opaque token, so they can continue reading orders from where the previous page ended.
+ */
+@Getter
+@AllArgsConstructor
+@EqualsAndHashCode
+public final class OrderCursor {
+  private static final String SEPARATOR = "|";
+
+  private final ZonedDateTime createdDate;
+  private final UUID id;
+
+  /**
+   * Creates a cursor that points to the given order.
+   *
+   * @param order the last order of a page.
+   * @return new cursor.
+   */
+  public static OrderCursor of(Order order) {
+    return new OrderCursor(
+        order.getCreatedDate().withZoneSameInstant(ZoneOffset.UTC), order.getId()
+    );
+  }
+
+  /**
+   * Decodes a token created by {@link #encode()}.
+   *
+   * @param token the token; blank tokens point to the beginning of the list.
+   * @return cursor or {@code null} if the token is blank.
+   * @throws ValidationException if the token is not valid.
+   */
+  public static OrderCursor decode(String token) {
+    if (null == token || token.trim().isEmpty()) {
+      return null;
+    }
+
+    try {
+      String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+      int separator = decoded.indexOf(SEPARATOR);
+
+      if (separator < 0) {
+        throw new ValidationException(ERROR_ORDER_INVALID_CURSOR, token);
+      }
+
+      Instant createdDate = Instant.parse(decoded.substring(0, separator));
+      UUID id = UUID.fromString(decoded.substring(separator + 1));
+
+      return new OrderCursor(ZonedDateTime.ofInstant(createdDate, ZoneOffset.UTC), id);
+    } catch (IllegalArgumentException | DateTimeParseException exp) {
+      throw new ValidationException(exp, ERROR_ORDER_INVALID_CURSOR, token);
+    }
+  }
+
+  /**
+   * Encodes this cursor as an URL safe token.
+   */
+  public String encode() {
+    String value = createdDate.toInstant().toString() + SEPARATOR + id;
+    return Base64.getUrlEncoder().withoutPadding()
+        .encodeToString(value.getBytes(StandardCharsets.UTF_8));
+  }
+
+}
@@ -19,8 +19,6 @@ import static org.openlmis.fulfillment.i18n.MessageKeys.ERROR_IO;
 
 import org.openlmis.fulfillment.domain.Order;
 import org.openlmis.fulfillment.domain.OrderFileTemplate;
-import org.openlmis.fulfillment.domain.TransferProperties;
-import org.openlmis.fulfillment.repository.TransferPropertiesRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -39,18 +37,9 @@ public class OrderFileStorage implements OrderStorage {
   @Autowired
   private OrderCsvHelper csvHelper;
 
-  @Autowired
-  private OrderFileTemplateService orderFileTemplateService;
-
-  @Autowired
-  private TransferPropertiesRepository transferPropertiesRepository;
-
   @Override
-  public void store(Order order) {
-    TransferProperties properties = transferPropertiesRepository
-        .findFirstByFacilityId(order.getSupplyingFacilityId());
-
-    if (null == properties) {
+  public void store(Order order, OrderTransferContext context) {
+    if (!context.hasTransferProperties()) {
       LOGGER.warn(
           "Can't store the order {} because there is no transfer properties",
           order.getId()
@@ -58,13 +47,12 @@ public class OrderFileStorage implements OrderStorage {
       return;
     }
 
-    // retrieve order file template
-    OrderFileTemplate template = orderFileTemplateService.getOrderFileTemplate();
+    OrderFileTemplate template = context.getTemplate();
     String fileName = template.getFilePrefix() + order.getOrderCode() + ".csv";
     Path path;
 
     try {
-      String dir = properties.getPath();
+      String dir = context.getTransferProperties().getPath();
       Files.createDirectories(Paths.get(dir));
       path = Paths.get(dir, fileName);
     } catch (IOException exp) {
@@ -81,23 +69,19 @@ public class OrderFileStorage implements OrderStorage {
   }
 
   @Override
-  public void delete(Order order) {
+  public void delete(Order order, OrderTransferContext context) {
     try {
-      Files.deleteIfExists(getOrderAsPath(order));
+      Files.deleteIfExists(getOrderAsPath(order, context));
     } catch (IOException exp) {
       throw new OrderStorageException(exp, ERROR_IO, exp.getMessage());
     }
   }
 
   @Override
-  public Path getOrderAsPath(Order order) {
-    OrderFileTemplate template = orderFileTemplateService.getOrderFileTemplate();
-    TransferProperties properties = transferPropertiesRepository
-        .findFirstByFacilityId(order.getSupplyingFacilityId());
-
-    String fileName = template.getFilePrefix() + order.getOrderCode() + ".csv";
+  public Path getOrderAsPath(Order order, OrderTransferContext context) {
+    String fileName = context.getTemplate().getFilePrefix() + order.getOrderCode() + ".csv";
 
-    return Paths.get(properties.getPath(), fileName);
+    return Paths.get(context.getTransferProperties().getPath(), fileName);
   }
 
 }
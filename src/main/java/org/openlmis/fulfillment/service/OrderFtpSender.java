@@ -21,8 +21,6 @@ import org.apache.camel.Exchange;
 import org.apache.camel.ProducerTemplate;
 import org.openlmis.fulfillment.domain.FtpTransferProperties;
 import org.openlmis.fulfillment.domain.Order;
-import org.openlmis.fulfillment.domain.TransferProperties;
-import org.openlmis.fulfillment.repository.TransferPropertiesRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -45,18 +43,10 @@ public class OrderFtpSender implements OrderSender {
   @Autowired
   private OrderStorage orderStorage;
 
-  @Autowired
-  private TransferPropertiesRepository transferPropertiesRepository;
-
   @Override
-  public boolean send(Order order) {
-    Path path = orderStorage.getOrderAsPath(order);
-    TransferProperties properties = transferPropertiesRepository
-        .findFirstByFacilityId(order.getSupplyingFacilityId());
-
-    return properties instanceof FtpTransferProperties
-        && send(order, path, (FtpTransferProperties) properties);
-
+  public boolean send(Order order, OrderTransferContext context) {
+    return context.isFtp() && send(order, orderStorage.getOrderAsPath(order, context),
+        (FtpTransferProperties) context.getTransferProperties());
   }
 
   private boolean send(Order order, Path path, FtpTransferProperties ftp) {
@@ -0,0 +1,85 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.service;
+
+import static org.apache.commons.beanutils.PropertyUtils.getPropertyDescriptors;
+import static org.openlmis.fulfillment.util.ConfigurationSettingKeys.FULFILLMENT_EMAIL_NOREPLY;
+import static org.openlmis.fulfillment.util.ConfigurationSettingKeys.FULFILLMENT_EMAIL_ORDER_CREATION_BODY;
+import static org.openlmis.fulfillment.util.ConfigurationSettingKeys.FULFILLMENT_EMAIL_ORDER_CREATION_SUBJECT;
+
+import org.openlmis.fulfillment.domain.Order;
+import org.openlmis.fulfillment.service.notification.NotificationService;
+import org.openlmis.fulfillment.service.referencedata.UserReferenceDataService;
+import org.openlmis.util.NotificationRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Service
+public class OrderNotificationService {
+
+  @Autowired
+  private UserReferenceDataService userReferenceDataService;
+
+  @Autowired
+  private NotificationService notificationService;
+
+  @Autowired
+  private ConfigurationSettingService configurationSettingService;
+
+  /**
+   * Sends an email notification about the created order to the user that converted the order.
+   *
+   * @param order created order.
+   */
+  public void sendOrderCreated(Order order) {
+    String from = configurationSettingService.getStringValue(FULFILLMENT_EMAIL_NOREPLY);
+    String to = userReferenceDataService.findOne(order.getCreatedById()).getEmail();
+    String subject = configurationSettingService
+        .getStringValue(FULFILLMENT_EMAIL_ORDER_CREATION_SUBJECT);
+    String content = createContent(order);
+
+    notificationService.send(new NotificationRequest(from, to, subject, content));
+  }
+
+  private String createContent(Order order) {
+    String content = configurationSettingService
+        .getStringValue(FULFILLMENT_EMAIL_ORDER_CREATION_BODY);
+
+    try {
+      List<PropertyDescriptor> descriptors = Arrays
+          .stream(getPropertyDescriptors(order.getClass()))
+          .filter(d -> null != d.getReadMethod())
+          .collect(Collectors.toList());
+
+      for (PropertyDescriptor descriptor : descriptors) {
+        String target = "{" + descriptor.getName() + "}";
+        String replacement = String.valueOf(descriptor.getReadMethod().invoke(order));
+
+        content = content.replace(target, replacement);
+      }
+    } catch (IllegalAccessException | InvocationTargetException exp) {
+      throw new IllegalStateException("Can't get access to getter method", exp);
+    }
+    return content;
+  }
+
+}
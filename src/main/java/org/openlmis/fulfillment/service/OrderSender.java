@@ -19,6 +19,6 @@ import org.openlmis.fulfillment.domain.Order;
 
 public interface OrderSender {
 
-  boolean send(Order order);
+  boolean send(Order order, OrderTransferContext context);
 
 }
@@ -15,16 +15,10 @@
 
 package org.openlmis.fulfillment.service;
 
-import static org.apache.commons.beanutils.PropertyUtils.getPropertyDescriptors;
-import static org.openlmis.fulfillment.domain.OrderStatus.IN_ROUTE;
-import static org.openlmis.fulfillment.domain.OrderStatus.READY_TO_PACK;
 import static org.openlmis.fulfillment.domain.OrderStatus.TRANSFER_FAILED;
 import static org.openlmis.fulfillment.i18n.MessageKeys.ERROR_IO;
 import static org.openlmis.fulfillment.i18n.MessageKeys.ERROR_JASPER;
 import static org.openlmis.fulfillment.i18n.MessageKeys.ERROR_ORDER_IN_USE;
-import static org.openlmis.fulfillment.util.ConfigurationSettingKeys.FULFILLMENT_EMAIL_NOREPLY;
-import static org.openlmis.fulfillment.util.ConfigurationSettingKeys.FULFILLMENT_EMAIL_ORDER_CREATION_BODY;
-import static org.openlmis.fulfillment.util.ConfigurationSettingKeys.FULFILLMENT_EMAIL_ORDER_CREATION_SUBJECT;
 import static org.supercsv.prefs.CsvPreference.STANDARD_PREFERENCE;
 
 import net.sf.jasperreports.engine.JRException;
@@ -37,38 +31,33 @@ import net.sf.jasperreports.engine.export.JRPdfExporter;
 import net.sf.jasperreports.export.SimpleExporterInput;
 import net.sf.jasperreports.export.SimpleOutputStreamExporterOutput;
 
-import org.openlmis.util.NotificationRequest;
-import org.openlmis.fulfillment.domain.FtpTransferProperties;
 import org.openlmis.fulfillment.domain.Order;
 import org.openlmis.fulfillment.domain.OrderLineItem;
-import org.openlmis.fulfillment.domain.TransferProperties;
+import org.openlmis.fulfillment.domain.OrderTransfer;
 import org.openlmis.fulfillment.repository.OrderRepository;
+import org.openlmis.fulfillment.repository.OrderTransferRepository;
 import org.openlmis.fulfillment.repository.ProofOfDeliveryRepository;
-import org.openlmis.fulfillment.repository.TransferPropertiesRepository;
-import org.openlmis.fulfillment.service.notification.NotificationService;
 import org.openlmis.fulfillment.service.referencedata.FacilityDto;
 import org.openlmis.fulfillment.service.referencedata.FacilityReferenceDataService;
 import org.openlmis.fulfillment.service.referencedata.OrderableDto;
 import org.openlmis.fulfillment.service.referencedata.OrderableReferenceDataService;
-import org.openlmis.fulfillment.service.referencedata.UserReferenceDataService;
 import org.openlmis.fulfillment.web.ValidationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
 import org.springframework.stereotype.Service;
 import org.supercsv.io.CsvMapWriter;
 import org.supercsv.io.ICsvMapWriter;
 
-import java.beans.PropertyDescriptor;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Writer;
-import java.lang.reflect.InvocationTargetException;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -90,22 +79,10 @@ public class OrderService {
   private OrderableReferenceDataService orderableReferenceDataService;
 
   @Autowired
-  private UserReferenceDataService userReferenceDataService;
+  private OrderTransferContextFactory orderTransferContextFactory;
 
   @Autowired
-  private TransferPropertiesRepository transferPropertiesRepository;
-
-  @Autowired
-  private NotificationService notificationService;
-
-  @Autowired
-  private ConfigurationSettingService configurationSettingService;
-
-  @Autowired
-  private OrderStorage orderStorage;
-
-  @Autowired
-  private OrderSender orderSender;
+  private OrderTransferRepository orderTransferRepository;
 
   @Autowired
   private ProofOfDeliveryRepository proofOfDeliveryRepository;
@@ -113,13 +90,31 @@ public class OrderService {
   /**
    * Finds orders matching all of provided parameters.
    *
-   * @param params provided parameters.
-   * @return ist of Orders with matched parameters.
+   * @param params     provided parameters, including the requested page.
+   * @param warehouses supplying facilities the orders may come from, {@code null} for any.
+   * @return page of Orders with matched parameters.
    */
-  public List<Order> searchOrders(OrderSearchParams params) {
+  public Page<Order> searchOrders(OrderSearchParams params, Set<UUID> warehouses) {
     return orderRepository.searchOrders(
         params.getSupplyingFacility(), params.getRequestingFacility(), params.getProgram(),
-        params.getProcessingPeriod(), params.getStatusAsEnum()
+        params.getProcessingPeriod(), params.getStatusAsEnum(), warehouses, params.getPageable()
+    );
+  }
+
+  /**
+   * Finds orders matching all of provided parameters that come after the given cursor.
+   *
+   * @param params     provided parameters.
+   * @param warehouses supplying facilities the orders may come from, {@code null} for any.
+   * @param after      position after which orders are returned, {@code null} for the beginning.
+   * @param limit      maximum number of returned orders.
+   * @return list of Orders sorted by created date and ID.
+   */
+  public List<Order> searchOrders(OrderSearchParams params, Set<UUID> warehouses,
+                                  OrderCursor after, int limit) {
+    return orderRepository.searchOrders(
+        params.getSupplyingFacility(), params.getRequestingFacility(), params.getProgram(),
+        params.getProcessingPeriod(), params.getStatusAsEnum(), warehouses, after, limit
     );
   }
 
@@ -248,89 +243,38 @@ public class OrderService {
   }
 
   /**
-   * Saves a new instance of order. The method also stores the order in local directory and try
-   * to send (if there are FTP transfer properties) to an FTP server. Also, the status field in
-   * the order will be updated.
+   * Saves a new instance of order and updates its status field. The order is not transferred
+   * within the current transaction; instead a pending {@link OrderTransfer} is saved together
+   * with the order and the background worker stores the order in local directory, tries to send
+   * it (if there are FTP transfer properties) to an FTP server and notifies the user.
    *
    * @param order instance
    * @return passed instance after save.
    */
   public Order save(Order order) {
-    setOrderStatus(order);
+    // transfer properties and the order file template are resolved only once per order
+    OrderTransferContext context = orderTransferContextFactory.create(order);
+
+    setOrderStatus(order, context);
 
     // save order
     Order saved = orderRepository.save(order);
 
-    orderStorage.store(saved);
-
-    TransferProperties properties = transferPropertiesRepository
-        .findFirstByFacilityId(order.getSupplyingFacilityId());
-
-    if (properties instanceof FtpTransferProperties) {
-      boolean success = orderSender.send(saved);
-
-      if (success) {
-        orderStorage.delete(saved);
-      } else {
-        order.setStatus(TRANSFER_FAILED);
-        saved = orderRepository.save(order);
-      }
-    }
-
-    // Send an email notification to the user that converted the order
-    sendNotification(saved, saved.getCreatedById());
+    // the transfer is committed or rolled back together with the order
+    orderTransferRepository.save(new OrderTransfer(saved.getId()));
 
     return saved;
   }
 
-  private void sendNotification(Order order, UUID userId) {
-    String from = configurationSettingService.getStringValue(FULFILLMENT_EMAIL_NOREPLY);
-    String to = userReferenceDataService.findOne(userId).getEmail();
-    String subject = configurationSettingService
-        .getStringValue(FULFILLMENT_EMAIL_ORDER_CREATION_SUBJECT);
-    String content = createContent(order);
-
-    notificationService.send(new NotificationRequest(from, to, subject, content));
-  }
-
-  private String createContent(Order order) {
-    String content = configurationSettingService
-        .getStringValue(FULFILLMENT_EMAIL_ORDER_CREATION_BODY);
-
-    try {
-      List<PropertyDescriptor> descriptors = Arrays
-          .stream(getPropertyDescriptors(order.getClass()))
-          .filter(d -> null != d.getReadMethod())
-          .collect(Collectors.toList());
-
-      for (PropertyDescriptor descriptor : descriptors) {
-        String target = "{" + descriptor.getName() + "}";
-        String replacement = String.valueOf(descriptor.getReadMethod().invoke(order));
-
-        content = content.replace(target, replacement);
-      }
-    } catch (IllegalAccessException | InvocationTargetException exp) {
-      throw new IllegalStateException("Can't get access to getter method", exp);
-    }
-    return content;
-  }
-
-  private void setOrderStatus(Order order) {
+  private void setOrderStatus(Order order, OrderTransferContext context) {
     // Is the order associated with a supply line?
     if (null != order.getSupplyingFacilityId()) {
-      // Is the supplying facility have the FTP configuration?
-      TransferProperties properties = transferPropertiesRepository
-          .findFirstByFacilityId(order.getSupplyingFacilityId());
-
-      if (null == properties) {
-        // Set order status as TRANSFER_FAILED
-        order.setStatus(TRANSFER_FAILED);
-      } else {
-        // Is the export-orders flag enabled on the supply line associated with the order
-        // yes -> Set order status as IN_ROUTE
-        // no  -> Set order status as READY_TO_PACK
-        order.setStatus(properties instanceof FtpTransferProperties ? IN_ROUTE : READY_TO_PACK);
-      }
+      // Does the supplying facility have the FTP configuration?
+      // no  -> Set order status as TRANSFER_FAILED
+      // Is the export-orders flag enabled on the supply line associated with the order
+      // yes -> Set order status as IN_ROUTE
+      // no  -> Set order status as READY_TO_PACK
+      order.setStatus(context.getTransferStatus());
     } else {
       // Set order status as TRANSFER_FAILED
       order.setStatus(TRANSFER_FAILED);
@@ -21,11 +21,11 @@ import java.nio.file.Path;
 
 public interface OrderStorage {
 
-  void store(Order order);
+  void store(Order order, OrderTransferContext context);
 
-  void delete(Order order);
+  void delete(Order order, OrderTransferContext context);
 
-  default Path getOrderAsPath(Order order) {
+  default Path getOrderAsPath(Order order, OrderTransferContext context) {
     throw new UnsupportedOperationException();
   }
 
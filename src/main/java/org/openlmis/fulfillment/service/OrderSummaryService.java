@@ -0,0 +1,89 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.service;
+
+import static org.openlmis.fulfillment.i18n.MessageKeys.ERROR_ORDER_INVALID_GROUP_BY;
+import static org.springframework.util.CollectionUtils.isEmpty;
+
+import org.openlmis.fulfillment.domain.OrderAggregate;
+import org.openlmis.fulfillment.domain.OrderSummary;
+import org.openlmis.fulfillment.repository.OrderRepository;
+import org.openlmis.fulfillment.web.ValidationException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+@Service
+public class OrderSummaryService {
+
+  @Autowired
+  private OrderRepository orderRepository;
+
+  /**
+   * Finds summaries of orders matching all of provided parameters.
+   *
+   * @param params     provided parameters.
+   * @param warehouses supplying facilities the orders may come from, {@code null} for any.
+   * @return page of order summaries.
+   */
+  public Page<OrderSummary> searchOrderSummaries(OrderSearchParams params, Set<UUID> warehouses) {
+    return orderRepository.searchOrderSummaries(
+        params.getSupplyingFacility(), params.getRequestingFacility(), params.getProgram(),
+        params.getProcessingPeriod(), params.getStatusAsEnum(), warehouses, params.getPageable()
+    );
+  }
+
+  /**
+   * Counts orders matching all of provided parameters, sums their quoted cost and counts their
+   * line items, grouped by the given dimensions.
+   *
+   * @param params     provided parameters.
+   * @param warehouses supplying facilities the orders may come from, {@code null} for any.
+   * @param groupBy    names of dimensions the orders are grouped by; all dimensions are used if
+   *                   none are given.
+   * @return list of aggregates, one for each group.
+   * @throws ValidationException if orders can not be grouped by one of the given dimensions.
+   */
+  public List<OrderAggregate> aggregateOrders(OrderSearchParams params, Set<UUID> warehouses,
+                                              Set<String> groupBy) {
+    Set<OrderAggregate.Dimension> dimensions = EnumSet.noneOf(OrderAggregate.Dimension.class);
+
+    if (isEmpty(groupBy)) {
+      dimensions.addAll(EnumSet.allOf(OrderAggregate.Dimension.class));
+    } else {
+      for (String name : groupBy) {
+        OrderAggregate.Dimension dimension = OrderAggregate.Dimension.fromString(name);
+
+        if (null == dimension) {
+          throw new ValidationException(ERROR_ORDER_INVALID_GROUP_BY, name);
+        }
+
+        dimensions.add(dimension);
+      }
+    }
+
+    return orderRepository.aggregateOrders(
+        params.getSupplyingFacility(), params.getRequestingFacility(), params.getProgram(),
+        params.getProcessingPeriod(), params.getStatusAsEnum(), warehouses, dimensions
+    );
+  }
+
+}
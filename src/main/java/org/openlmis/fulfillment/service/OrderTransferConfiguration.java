@@ -0,0 +1,50 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Configures the background transfer of orders. Orders are saved together with a pending
+ * transfer and the {@link OrderTransferWorker} passes pending transfers to a bounded executor.
+ */
+@Configuration
+public class OrderTransferConfiguration {
+
+  /**
+   * Creates the executor used to transfer orders in the background. The number of concurrent
+   * transfers is limited by the pool size; transfers that do not fit into the queue are rejected
+   * and picked up again by the order transfer worker.
+   *
+   * @return Created executor.
+   */
+  @Bean
+  public ThreadPoolTaskExecutor orderTransferExecutor(
+      @Value("${order.transfer.poolSize}") int poolSize,
+      @Value("${order.transfer.queueCapacity}") int queueCapacity) {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(poolSize);
+    executor.setMaxPoolSize(poolSize);
+    executor.setQueueCapacity(queueCapacity);
+    executor.setThreadNamePrefix("order-transfer-");
+
+    return executor;
+  }
+
+}
@@ -0,0 +1,72 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.service;
+
+import static org.openlmis.fulfillment.domain.OrderStatus.IN_ROUTE;
+import static org.openlmis.fulfillment.domain.OrderStatus.READY_TO_PACK;
+import static org.openlmis.fulfillment.domain.OrderStatus.TRANSFER_FAILED;
+
+import org.openlmis.fulfillment.domain.FtpTransferProperties;
+import org.openlmis.fulfillment.domain.OrderFileTemplate;
+import org.openlmis.fulfillment.domain.OrderStatus;
+import org.openlmis.fulfillment.domain.TransferProperties;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Transfer properties of the supplying facility and the order file template used while an order
+ * is stored and sent. They are resolved once per order by {@link OrderTransferContextFactory}.
+ */
+@Getter
+@AllArgsConstructor
+public final class OrderTransferContext {
+  private final TransferProperties transferProperties;
+  private final OrderFileTemplate template;
+
+  /**
+   * Checks if the supplying facility has any transfer properties.
+   *
+   * @return true if the order can be stored; otherwise false.
+   */
+  public boolean hasTransferProperties() {
+    return null != transferProperties;
+  }
+
+  /**
+   * Checks if the order should be sent to an FTP server.
+   *
+   * @return true if the supplying facility has FTP transfer properties; otherwise false.
+   */
+  public boolean isFtp() {
+    return transferProperties instanceof FtpTransferProperties;
+  }
+
+  /**
+   * Returns the status of an order that is about to be transferred to the supplying facility.
+   *
+   * @return IN_ROUTE if the order is sent to an FTP server, READY_TO_PACK if it is only stored
+   *     and TRANSFER_FAILED if there are no transfer properties.
+   */
+  public OrderStatus getTransferStatus() {
+    if (!hasTransferProperties()) {
+      return TRANSFER_FAILED;
+    }
+
+    return isFtp() ? IN_ROUTE : READY_TO_PACK;
+  }
+
+}
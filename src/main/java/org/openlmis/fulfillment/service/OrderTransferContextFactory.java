@@ -0,0 +1,51 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.service;
+
+import org.openlmis.fulfillment.domain.Order;
+import org.openlmis.fulfillment.domain.TransferProperties;
+import org.openlmis.fulfillment.repository.TransferPropertiesRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+@Component
+public class OrderTransferContextFactory {
+
+  @Autowired
+  private TransferPropertiesRepository transferPropertiesRepository;
+
+  @Autowired
+  private OrderFileTemplateService orderFileTemplateService;
+
+  /**
+   * Resolves the transfer properties of the supplying facility of the given order and the order
+   * file template. The template is not retrieved if there are no transfer properties, because
+   * then the order is neither stored nor sent.
+   *
+   * @param order order that will be stored and sent.
+   * @return context passed to {@link OrderStorage} and {@link OrderSender}.
+   */
+  public OrderTransferContext create(Order order) {
+    TransferProperties properties = null == order.getSupplyingFacilityId()
+        ? null
+        : transferPropertiesRepository.findFirstByFacilityId(order.getSupplyingFacilityId());
+
+    return new OrderTransferContext(
+        properties, null == properties ? null : orderFileTemplateService.getOrderFileTemplate()
+    );
+  }
+
+}
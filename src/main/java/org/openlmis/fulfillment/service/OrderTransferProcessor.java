@@ -0,0 +1,214 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.service;
+
+import static org.openlmis.fulfillment.domain.OrderStatus.TRANSFER_FAILED;
+
+import org.openlmis.fulfillment.domain.FtpTransferProperties;
+import org.openlmis.fulfillment.domain.Order;
+import org.openlmis.fulfillment.domain.OrderTransfer;
+import org.openlmis.fulfillment.domain.OrderTransferRetry;
+import org.openlmis.fulfillment.repository.OrderRepository;
+import org.openlmis.fulfillment.repository.OrderTransferRepository;
+import org.openlmis.fulfillment.repository.OrderTransferRetryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Performs a single attempt of a pending order transfer: stores the order file, sends it to the
+ * FTP server of the supplying facility and notifies the user that converted the order. Failed
+ * attempts are retried with an exponential backoff until the maximum number of attempts is
+ * reached, after that the order is marked as {@code TRANSFER_FAILED}. The number of concurrent
+ * transfers to a single FTP host is limited; a transfer to a busy host is postponed.
+ */
+@Component
+public class OrderTransferProcessor {
+  private static final Logger LOGGER = LoggerFactory.getLogger(OrderTransferProcessor.class);
+
+  static final String SEND_FAILED = "Order file could not be sent to the FTP server";
+
+  // the retry delay is doubled at most that many times
+  private static final int MAX_BACKOFF_EXPONENT = 10;
+
+  @Autowired
+  private OrderRepository orderRepository;
+
+  @Autowired
+  private OrderTransferRepository orderTransferRepository;
+
+  @Autowired
+  private OrderTransferContextFactory orderTransferContextFactory;
+
+  @Autowired
+  private OrderStorage orderStorage;
+
+  @Autowired
+  private OrderSender orderSender;
+
+  @Autowired
+  private OrderNotificationService orderNotificationService;
+
+  @Autowired
+  private OrderTransferRetryRepository orderTransferRetryRepository;
+
+  @Autowired
+  private TransferHostLimiter transferHostLimiter;
+
+  @Value("${order.transfer.maxAttempts}")
+  private int maxAttempts = 5;
+
+  @Value("${order.transfer.retryDelay}")
+  private long retryDelay = 60000;
+
+  @Value("${order.transfer.hostBusyDelay}")
+  private long hostBusyDelay = 5000;
+
+  /**
+   * Processes the given transfer. The transfer should be claimed by the caller so it is not
+   * processed by several workers at the same time.
+   *
+   * @param transfer pending transfer of an order.
+   */
+  public void process(OrderTransfer transfer) {
+    Order order = orderRepository.findOne(transfer.getOrderId());
+
+    if (null == order) {
+      orderTransferRepository.delete(transfer.getId());
+      return;
+    }
+
+    // transfer properties and the order file template are resolved only once per attempt
+    OrderTransferContext context = orderTransferContextFactory.create(order);
+    String host = getFtpHost(context);
+
+    if (null != host && !transferHostLimiter.tryAcquire(host)) {
+      postpone(transfer);
+      return;
+    }
+
+    String error;
+
+    try {
+      error = transfer(order, context);
+    } catch (RuntimeException exp) {
+      LOGGER.error("Unable to transfer order {}", order.getId(), exp);
+      error = exp.toString();
+    } finally {
+      if (null != host) {
+        transferHostLimiter.release(host);
+      }
+    }
+
+    if (null == error) {
+      resetRetries(order);
+      complete(transfer, order);
+    } else if (transfer.getAttempts() + 1 < maxAttempts) {
+      retry(transfer, error);
+    } else {
+      LOGGER.warn("Order {} could not be transferred after {} attempts: {}",
+          order.getId(), maxAttempts, error);
+      fail(transfer, order);
+    }
+  }
+
+  private String transfer(Order order, OrderTransferContext context) {
+    orderStorage.store(order, context);
+
+    if (context.isFtp()) {
+      if (!orderSender.send(order, context)) {
+        return SEND_FAILED;
+      }
+
+      orderStorage.delete(order, context);
+    }
+
+    return null;
+  }
+
+  private String getFtpHost(OrderTransferContext context) {
+    return context.isFtp()
+        ? ((FtpTransferProperties) context.getTransferProperties()).getServerHost()
+        : null;
+  }
+
+  private void postpone(OrderTransfer transfer) {
+    // the host is busy, so this is not counted as an attempt
+    transfer.setNextAttemptAt(ZonedDateTime.now().plus(hostBusyDelay, ChronoUnit.MILLIS));
+    transfer.setClaimedUntil(null);
+
+    orderTransferRepository.save(transfer);
+  }
+
+  private void resetRetries(Order order) {
+    if (null == order.getSupplyingFacilityId()) {
+      return;
+    }
+
+    // the FTP server of the facility works again, next failure starts with the shortest backoff
+    OrderTransferRetry retry = orderTransferRetryRepository
+        .findByFacilityId(order.getSupplyingFacilityId());
+
+    if (null != retry) {
+      orderTransferRetryRepository.delete(retry);
+    }
+  }
+
+  private void retry(OrderTransfer transfer, String error) {
+    int attempts = transfer.getAttempts() + 1;
+    long delay = retryDelay << Math.min(attempts - 1, MAX_BACKOFF_EXPONENT);
+
+    transfer.setAttempts(attempts);
+    transfer.setLastError(error);
+    transfer.setNextAttemptAt(ZonedDateTime.now().plus(delay, ChronoUnit.MILLIS));
+    transfer.setClaimedUntil(null);
+
+    orderTransferRepository.save(transfer);
+  }
+
+  private void fail(OrderTransfer transfer, Order order) {
+    // the order could be changed in the meantime so the latest version is updated
+    Order current = orderRepository.findOne(order.getId());
+
+    if (null != current) {
+      current.setStatus(TRANSFER_FAILED);
+      current = orderRepository.save(current);
+    }
+
+    complete(transfer, null == current ? order : current);
+  }
+
+  private void complete(OrderTransfer transfer, Order order) {
+    orderTransferRepository.delete(transfer.getId());
+
+    if (transfer.isRetry()) {
+      // the user has already been notified when the order was created
+      return;
+    }
+
+    try {
+      orderNotificationService.sendOrderCreated(order);
+    } catch (RuntimeException exp) {
+      LOGGER.error("Unable to send notification about order {}", order.getId(), exp);
+    }
+  }
+
+}
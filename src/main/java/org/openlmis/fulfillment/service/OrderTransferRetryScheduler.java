@@ -0,0 +1,203 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.service;
+
+import static org.openlmis.fulfillment.domain.OrderStatus.TRANSFER_FAILED;
+
+import org.openlmis.fulfillment.domain.Order;
+import org.openlmis.fulfillment.domain.OrderTransfer;
+import org.openlmis.fulfillment.domain.OrderTransferRetry;
+import org.openlmis.fulfillment.repository.OrderRepository;
+import org.openlmis.fulfillment.repository.OrderTransferRepository;
+import org.openlmis.fulfillment.repository.OrderTransferRetryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Periodically retries the transfer of orders with the TRANSFER_FAILED status. Orders are retried
+ * in batches, grouped by the supplying facility; after each retry the next one for the facility
+ * is delayed with an exponential backoff and a random jitter. Retried orders get a new pending
+ * {@link OrderTransfer} and are processed by the {@link OrderTransferWorker}. The backoff of a
+ * facility is reset when any of its orders is transferred, or when the facility has not been
+ * retried for the maximum delay.
+ *
+ * <p>Only one instance of the service retries orders at a time: the batch runs in a single
+ * transaction that holds a PostgreSQL advisory lock, and the status of retried orders is changed
+ * before the lock is released.
+ */
+@Component
+public class OrderTransferRetryScheduler {
+  private static final Logger LOGGER = LoggerFactory.getLogger(OrderTransferRetryScheduler.class);
+
+  // key of the advisory lock, unique within the database
+  static final long LOCK_KEY = 0x6f72646572L;
+
+  // the initial delay is doubled at most that many times
+  private static final int MAX_BACKOFF_EXPONENT = 16;
+
+  @Autowired
+  private OrderTransferRetryRepository orderTransferRetryRepository;
+
+  @Autowired
+  private OrderRepository orderRepository;
+
+  @Autowired
+  private OrderTransferRepository orderTransferRepository;
+
+  @Autowired
+  private OrderTransferContextFactory orderTransferContextFactory;
+
+  @Value("${order.transfer.retry.batchSize}")
+  private int batchSize = 50;
+
+  @Value("${order.transfer.retry.maxAttempts}")
+  private int maxAttempts = 10;
+
+  @Value("${order.transfer.retry.initialDelay}")
+  private long initialDelay = 300000;
+
+  @Value("${order.transfer.retry.maxDelay}")
+  private long maxDelay = 86400000;
+
+  /**
+   * Retries at most a batch of orders with the TRANSFER_FAILED status whose supplying facilities
+   * are due. Nothing is done if another instance is retrying orders at the same time.
+   */
+  @Scheduled(fixedDelayString = "${order.transfer.retry.interval}")
+  @Transactional
+  public void retryFailedTransfers() {
+    if (!orderTransferRetryRepository.tryLock(LOCK_KEY)) {
+      LOGGER.debug("Failed order transfers are retried by another instance");
+      return;
+    }
+
+    ZonedDateTime now = ZonedDateTime.now();
+    List<UUID> facilities = orderTransferRetryRepository
+        .findFacilitiesToRetry(now, maxAttempts, getExpiredBefore(now), batchSize);
+
+    int remaining = batchSize;
+
+    for (UUID facilityId : facilities) {
+      if (remaining <= 0) {
+        break;
+      }
+
+      remaining -= retryFacility(facilityId, now, remaining);
+    }
+  }
+
+  private int retryFacility(UUID facilityId, ZonedDateTime now, int limit) {
+    OrderTransferRetry retry = orderTransferRetryRepository.findByFacilityId(facilityId);
+
+    List<Order> orders = orderRepository.searchOrders(
+        facilityId, null, null, null, Collections.singleton(TRANSFER_FAILED), null,
+        new PageRequest(0, limit)
+    ).getContent();
+
+    if (orders.isEmpty()) {
+      // nothing left to retry, the backoff of the facility is not needed anymore
+      if (null != retry) {
+        orderTransferRetryRepository.delete(retry);
+      }
+
+      return 0;
+    }
+
+    // all orders of the facility share the same transfer properties
+    OrderTransferContext context = orderTransferContextFactory.create(orders.get(0));
+
+    if (!context.hasTransferProperties()) {
+      // the properties were removed after the facility was found, back off as after a retry
+      int attempts = recordAttempt(retry, facilityId, now);
+
+      LOGGER.debug("Facility {} has no transfer properties, retry {} skipped",
+          facilityId, attempts);
+      return 0;
+    }
+
+    int retried = 0;
+
+    for (Order order : orders) {
+      if (orderTransferRepository.countByOrderId(order.getId()) > 0) {
+        // the order is already waiting for a transfer
+        continue;
+      }
+
+      order.setStatus(context.getTransferStatus());
+      orderRepository.save(order);
+
+      OrderTransfer transfer = new OrderTransfer(order.getId());
+      transfer.setRetry(true);
+      orderTransferRepository.save(transfer);
+      ++retried;
+    }
+
+    if (retried > 0) {
+      int attempts = recordAttempt(retry, facilityId, now);
+
+      LOGGER.info("Retrying transfer of {} orders of facility {}, retry {}",
+          retried, facilityId, attempts);
+    }
+
+    return orders.size();
+  }
+
+  private int recordAttempt(OrderTransferRetry existing, UUID facilityId, ZonedDateTime now) {
+    OrderTransferRetry retry = null == existing ? new OrderTransferRetry(facilityId) : existing;
+
+    if (isExpired(retry, now)) {
+      // the facility has not been retried for a long time, start again with the shortest backoff
+      retry.setAttempts(0);
+    }
+
+    retry.setAttempts(retry.getAttempts() + 1);
+    retry.setLastAttemptAt(now);
+    retry.setNextAttemptAt(now.plus(getDelay(retry.getAttempts()), ChronoUnit.MILLIS));
+    orderTransferRetryRepository.save(retry);
+
+    return retry.getAttempts();
+  }
+
+  private boolean isExpired(OrderTransferRetry retry, ZonedDateTime now) {
+    return null != retry.getLastAttemptAt()
+        && retry.getLastAttemptAt().isBefore(getExpiredBefore(now));
+  }
+
+  private ZonedDateTime getExpiredBefore(ZonedDateTime now) {
+    return now.minus(maxDelay, ChronoUnit.MILLIS);
+  }
+
+  private long getDelay(int attempts) {
+    long delay = Math.min(maxDelay, initialDelay << Math.min(attempts - 1, MAX_BACKOFF_EXPONENT));
+
+    // half of the delay is random so facilities that failed together are not retried together
+    return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+  }
+
+}
@@ -0,0 +1,124 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.service;
+
+import org.openlmis.fulfillment.domain.OrderTransfer;
+import org.openlmis.fulfillment.repository.OrderTransferRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Periodically picks up pending order transfers and hands them over to the bounded order transfer
+ * executor. A transfer is claimed before it is submitted so that it is processed only once even
+ * if several instances of the service are running. Claims of transfers that are being processed
+ * are renewed periodically, so a slow FTP server does not let another instance send the order
+ * again. Claims of transfers that were not finished, for example because the instance has been
+ * stopped, expire after the claim timeout.
+ */
+@Component
+public class OrderTransferWorker {
+
+  @Autowired
+  private OrderTransferRepository orderTransferRepository;
+
+  @Autowired
+  private OrderTransferProcessor orderTransferProcessor;
+
+  @Autowired
+  @Qualifier("orderTransferExecutor")
+  private ThreadPoolTaskExecutor executor;
+
+  @Value("${order.transfer.batchSize}")
+  private int batchSize = 20;
+
+  @Value("${order.transfer.claimTimeout}")
+  private long claimTimeout = 600000;
+
+  private final Set<UUID> inProgress = ConcurrentHashMap.newKeySet();
+
+  /**
+   * Submits pending transfers that are due, but no more than the executor is able to accept.
+   */
+  @Scheduled(fixedDelayString = "${order.transfer.pollInterval}")
+  public void poll() {
+    int capacity = executor.getThreadPoolExecutor().getQueue().remainingCapacity();
+    int limit = Math.min(batchSize, capacity);
+
+    if (limit <= 0) {
+      return;
+    }
+
+    ZonedDateTime now = ZonedDateTime.now();
+    ZonedDateTime until = now.plus(claimTimeout, ChronoUnit.MILLIS);
+
+    for (OrderTransfer transfer : orderTransferRepository.findDue(now, limit)) {
+      if (!orderTransferRepository.claim(transfer.getId(), now, until)) {
+        // the transfer has been claimed by another instance
+        continue;
+      }
+
+      UUID id = transfer.getId();
+      inProgress.add(id);
+
+      try {
+        executor.execute(() -> process(id));
+      } catch (TaskRejectedException exp) {
+        inProgress.remove(id);
+        orderTransferRepository.release(id);
+        return;
+      }
+    }
+  }
+
+  /**
+   * Extends claims of transfers that are waiting in the executor queue or being processed.
+   */
+  @Scheduled(fixedDelayString = "${order.transfer.claimRenewInterval}")
+  public void renewClaims() {
+    if (inProgress.isEmpty()) {
+      return;
+    }
+
+    ZonedDateTime until = ZonedDateTime.now().plus(claimTimeout, ChronoUnit.MILLIS);
+    orderTransferRepository.renewClaims(new ArrayList<>(inProgress), until);
+  }
+
+  private void process(UUID id) {
+    try {
+      // the transfer could be changed by another instance before it has been claimed
+      OrderTransfer transfer = orderTransferRepository.findOne(id);
+
+      if (null != transfer) {
+        orderTransferProcessor.process(transfer);
+      }
+    } finally {
+      inProgress.remove(id);
+    }
+  }
+
+}
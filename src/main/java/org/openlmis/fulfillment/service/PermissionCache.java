@@ -0,0 +1,140 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+
+import java.time.Clock;
+import java.util.LinkedHashMap;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Short lived cache of permission decisions, keyed by user, right and warehouse. A decision is
+ * taken from the cache until its time to live passes; the least recently used decision is removed
+ * when the cache is full. The reference data service does not notify this service about changed
+ * rights, so the time to live is the only invalidation: a granted or revoked right takes effect
+ * after at most {@code permission.cache.timeToLive} seconds. Setting it to zero disables the cache.
+ */
+@Component
+public class PermissionCache {
+
+  @Value("${permission.cache.maxSize}")
+  private int maxSize = 10000;
+
+  @Value("${permission.cache.timeToLive}")
+  private long timeToLive = 60;
+
+  private Clock clock = Clock.systemUTC();
+
+  private final LinkedHashMap<Key, Decision> decisions = new LinkedHashMap<>(16, 0.75f, true);
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  /**
+   * Returns the cached decision for the given user, right and warehouse. If there is no such
+   * decision, the permission is checked with the given function and the result is cached.
+   *
+   * @param username  name of the user, decisions are not cached if it is {@code null}.
+   * @param rightName name of the right.
+   * @param warehouse UUID of the warehouse, may be {@code null}.
+   * @param check     checks the permission in the reference data service.
+   * @return true if the user has the right.
+   */
+  public boolean hasPermission(String username, String rightName, UUID warehouse,
+                               BooleanSupplier check) {
+    if (null == username || !isEnabled()) {
+      return check.getAsBoolean();
+    }
+
+    Key key = new Key(username, rightName, warehouse);
+    Boolean cached = get(key);
+
+    if (null != cached) {
+      hits.incrementAndGet();
+      return cached;
+    }
+
+    misses.incrementAndGet();
+
+    boolean decision = check.getAsBoolean();
+    put(key, decision);
+
+    return decision;
+  }
+
+  public synchronized int size() {
+    return decisions.size();
+  }
+
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  private boolean isEnabled() {
+    return maxSize > 0 && timeToLive > 0;
+  }
+
+  private synchronized Boolean get(Key key) {
+    Decision decision = decisions.get(key);
+
+    if (null == decision) {
+      return null;
+    }
+
+    if (clock.millis() >= decision.expiresAt) {
+      decisions.remove(key);
+      return null;
+    }
+
+    return decision.allowed;
+  }
+
+  private synchronized void put(Key key, boolean allowed) {
+    long expiresAt = clock.millis() + TimeUnit.SECONDS.toMillis(timeToLive);
+    decisions.put(key, new Decision(allowed, expiresAt));
+
+    while (decisions.size() > maxSize) {
+      decisions.remove(decisions.keySet().iterator().next());
+    }
+  }
+
+  @AllArgsConstructor
+  @EqualsAndHashCode
+  private static final class Key {
+    private final String username;
+    private final String rightName;
+    private final UUID warehouse;
+  }
+
+  @AllArgsConstructor
+  private static final class Decision {
+    private final boolean allowed;
+    private final long expiresAt;
+  }
+
+}
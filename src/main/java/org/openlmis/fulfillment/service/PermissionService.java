@@ -31,8 +31,11 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.provider.OAuth2Authentication;
 import org.springframework.stereotype.Service;
 
+import java.util.HashSet;
+import java.util.Set;
 import java.util.UUID;
 
+@SuppressWarnings("PMD.TooManyMethods")
 @Service
 public class PermissionService {
   static final String ORDERS_TRANSFER = "ORDERS_TRANSFER";
@@ -50,6 +53,9 @@ public class PermissionService {
   @Autowired
   private ProofOfDeliveryRepository proofOfDeliveryRepository;
 
+  @Autowired
+  private PermissionCache permissionCache;
+
   public void canTransferOrder(Order order) {
     checkPermission(ORDERS_TRANSFER, order.getSupplyingFacilityId(), false);
   }
@@ -90,24 +96,76 @@ public class PermissionService {
     checkPermission(ORDERS_EDIT, order.getSupplyingFacilityId(), false);
   }
 
+  /**
+   * Checks if user has permission to manage all proofs of delivery. Facilities whose proofs of
+   * delivery the user can manage are retrieved once and all proofs of delivery are checked with a
+   * single query, so the check is complete before anything is returned to the client.
+   */
+  public void canManageAllPods() {
+    UserDto user = authenticationHelper.getCurrentUser();
+    Set<UUID> warehouses = getFulfillmentFacilities(user, PODS_MANAGE);
+
+    if (proofOfDeliveryRepository.existsWithSupplyingFacilityNotIn(warehouses)) {
+      throw new MissingPermissionException(PODS_MANAGE);
+    }
+  }
+
   public boolean canViewOrderOrManagePod(Order order) {
     return hasPermission(ORDERS_VIEW, order.getSupplyingFacilityId(), true)
         || hasPermission(PODS_MANAGE, order.getSupplyingFacilityId(), false);
   }
 
+  /**
+   * Returns IDs of supplying facilities (warehouses) whose orders the current user can view or
+   * whose proofs of delivery the user can manage. Facilities are retrieved once for each right
+   * instead of checking every order separately.
+   *
+   * @return set of facility IDs or {@code null} for service tokens, which are not restricted.
+   */
+  public Set<UUID> getOrderSearchWarehouses() {
+    OAuth2Authentication authentication = (OAuth2Authentication) SecurityContextHolder.getContext()
+        .getAuthentication();
+    if (authentication.isClientOnly()) {
+      return null;
+    }
+
+    UserDto user = authenticationHelper.getCurrentUser();
+
+    return getFulfillmentFacilities(user, ORDERS_VIEW, PODS_MANAGE);
+  }
+
+  private Set<UUID> getFulfillmentFacilities(UserDto user, String... rightNames) {
+    Set<UUID> warehouses = new HashSet<>();
+
+    for (String rightName : rightNames) {
+      RightDto right = authenticationHelper.getRight(rightName);
+
+      userReferenceDataService
+          .getFulfillmentFacilities(user.getId(), right.getId())
+          .forEach(facility -> warehouses.add(facility.getId()));
+    }
+
+    return warehouses;
+  }
+
   private boolean hasPermission(String rightName, UUID warehouse, boolean allowServiceTokens) {
     OAuth2Authentication authentication = (OAuth2Authentication) SecurityContextHolder.getContext()
         .getAuthentication();
     if (authentication.isClientOnly()) {
       return allowServiceTokens;
     }
-    UserDto user = authenticationHelper.getCurrentUser();
-    RightDto right = authenticationHelper.getRight(rightName);
-    ResultDto<Boolean> result =  userReferenceDataService.hasRight(
-        user.getId(), right.getId(), null, null, warehouse
-    );
 
-    return null != result && isTrue(result.getResult());
+    String username = (String) authentication.getPrincipal();
+
+    return permissionCache.hasPermission(username, rightName, warehouse, () -> {
+      UserDto user = authenticationHelper.getCurrentUser();
+      RightDto right = authenticationHelper.getRight(rightName);
+      ResultDto<Boolean> result =  userReferenceDataService.hasRight(
+          user.getId(), right.getId(), null, null, warehouse
+      );
+
+      return null != result && isTrue(result.getResult());
+    });
   }
 
   private void checkPermission(String rightName, UUID warehouse, boolean
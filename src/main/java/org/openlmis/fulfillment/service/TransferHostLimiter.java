@@ -0,0 +1,63 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Limits the number of concurrent order transfers to a single FTP host, so a slow or failing
+ * server does not occupy all order transfer threads. The limit applies to a single instance of
+ * the service.
+ */
+@Component
+public class TransferHostLimiter {
+  private final Map<String, Semaphore> permits = new ConcurrentHashMap<>();
+
+  @Value("${order.transfer.maxPerHost}")
+  private int maxPerHost = 2;
+
+  /**
+   * Acquires a permit to transfer an order to the given host if one is available.
+   *
+   * @param host FTP server host.
+   * @return true if the permit has been acquired; otherwise false.
+   */
+  public boolean tryAcquire(String host) {
+    return permits
+        .computeIfAbsent(host.toLowerCase(Locale.ENGLISH), key -> new Semaphore(maxPerHost))
+        .tryAcquire();
+  }
+
+  /**
+   * Releases the permit acquired by {@link #tryAcquire(String)}.
+   *
+   * @param host FTP server host.
+   */
+  public void release(String host) {
+    Semaphore semaphore = permits.get(host.toLowerCase(Locale.ENGLISH));
+
+    if (null != semaphore) {
+      semaphore.release();
+    }
+  }
+
+}
@@ -0,0 +1,155 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.service.http;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the number of concurrent calls to a single downstream service. A call waits at most the
+ * configured time for a free permit and fails with {@link BulkheadFullException} otherwise. The
+ * permit is held until the response is closed, so reading the response body is also limited.
+ */
+public class Bulkhead implements ClientHttpRequestInterceptor {
+  private final String name;
+  private final int maxConcurrentCalls;
+  private final long maxWait;
+  private final Semaphore permits;
+
+  private final AtomicLong rejected = new AtomicLong();
+
+  /**
+   * Creates a new bulkhead.
+   *
+   * @param name               name of the downstream service, used in metrics.
+   * @param maxConcurrentCalls maximum number of concurrent calls.
+   * @param maxWait            maximum time to wait for a free permit, in milliseconds.
+   */
+  public Bulkhead(String name, int maxConcurrentCalls, long maxWait) {
+    if (maxConcurrentCalls <= 0) {
+      throw new IllegalArgumentException("Max concurrent calls must be positive");
+    }
+
+    this.name = name;
+    this.maxConcurrentCalls = maxConcurrentCalls;
+    this.maxWait = maxWait;
+    this.permits = new Semaphore(maxConcurrentCalls, true);
+  }
+
+  @Override
+  public ClientHttpResponse intercept(HttpRequest request, byte[] body,
+                                      ClientHttpRequestExecution execution) throws IOException {
+    acquire();
+
+    try {
+      return new ReleasingResponse(execution.execute(request, body), permits);
+    } catch (IOException | RuntimeException exp) {
+      permits.release();
+      throw exp;
+    }
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public int getMaxConcurrentCalls() {
+    return maxConcurrentCalls;
+  }
+
+  public int getAvailablePermits() {
+    return permits.availablePermits();
+  }
+
+  public long getRejectedCount() {
+    return rejected.get();
+  }
+
+  private void acquire() {
+    boolean acquired;
+
+    try {
+      acquired = permits.tryAcquire(maxWait, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException exp) {
+      Thread.currentThread().interrupt();
+      acquired = false;
+    }
+
+    if (!acquired) {
+      rejected.incrementAndGet();
+      throw new BulkheadFullException(name);
+    }
+  }
+
+  private static final class ReleasingResponse implements ClientHttpResponse {
+    private final ClientHttpResponse delegate;
+    private final Semaphore permits;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    ReleasingResponse(ClientHttpResponse delegate, Semaphore permits) {
+      this.delegate = delegate;
+      this.permits = permits;
+    }
+
+    @Override
+    public HttpStatus getStatusCode() throws IOException {
+      return delegate.getStatusCode();
+    }
+
+    @Override
+    public int getRawStatusCode() throws IOException {
+      return delegate.getRawStatusCode();
+    }
+
+    @Override
+    public String getStatusText() throws IOException {
+      return delegate.getStatusText();
+    }
+
+    @Override
+    public InputStream getBody() throws IOException {
+      return delegate.getBody();
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+      return delegate.getHeaders();
+    }
+
+    @Override
+    public void close() {
+      try {
+        delegate.close();
+      } finally {
+        if (released.compareAndSet(false, true)) {
+          permits.release();
+        }
+      }
+    }
+  }
+
+}
@@ -0,0 +1,62 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.service.http;
+
+import org.apache.http.pool.PoolStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Exposes usage of the shared connection pool and of the downstream bulkheads through the
+ * metrics endpoint.
+ */
+@Component
+public class HttpClientMetrics implements PublicMetrics {
+  private static final String PREFIX = "http.client.";
+
+  @Autowired
+  private RestTemplateFactory restTemplateFactory;
+
+  @Override
+  public Collection<Metric<?>> metrics() {
+    List<Metric<?>> metrics = new ArrayList<>();
+    PoolStats stats = restTemplateFactory.getPoolStats();
+
+    if (null != stats) {
+      metrics.add(new Metric<>(PREFIX + "pool.leased", stats.getLeased()));
+      metrics.add(new Metric<>(PREFIX + "pool.available", stats.getAvailable()));
+      metrics.add(new Metric<>(PREFIX + "pool.pending", stats.getPending()));
+      metrics.add(new Metric<>(PREFIX + "pool.max", stats.getMax()));
+    }
+
+    for (Bulkhead bulkhead : restTemplateFactory.getBulkheads()) {
+      String prefix = PREFIX + bulkhead.getName() + ".bulkhead.";
+
+      metrics.add(new Metric<>(prefix + "max", bulkhead.getMaxConcurrentCalls()));
+      metrics.add(new Metric<>(prefix + "available", bulkhead.getAvailablePermits()));
+      metrics.add(new Metric<>(prefix + "rejected", bulkhead.getRejectedCount()));
+    }
+
+    return metrics;
+  }
+
+}
@@ -0,0 +1,165 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.service.http;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.PreDestroy;
+
+/**
+ * Creates rest templates for calls to other services. All templates share one pool of keep-alive
+ * connections, but each downstream service has its own {@link Bulkhead}, so a slow service can
+ * not use up connections needed to call the other ones.
+ */
+@Component
+public class RestTemplateFactory {
+  public static final String AUTH = "auth";
+  public static final String REFERENCE_DATA = "referencedata";
+  public static final String NOTIFICATION = "notification";
+
+  @Value("${http.client.maxConnections}")
+  private int maxConnections = 200;
+
+  @Value("${http.client.maxConnectionsPerRoute}")
+  private int maxConnectionsPerRoute = 100;
+
+  @Value("${http.client.connectTimeout}")
+  private int connectTimeout = 5000;
+
+  @Value("${http.client.readTimeout}")
+  private int readTimeout = 30000;
+
+  @Value("${http.client.connectionRequestTimeout}")
+  private int connectionRequestTimeout = 5000;
+
+  @Value("${http.client.auth.maxConcurrentCalls}")
+  private int authMaxConcurrentCalls = 10;
+
+  @Value("${http.client.referencedata.maxConcurrentCalls}")
+  private int referenceDataMaxConcurrentCalls = 50;
+
+  @Value("${http.client.notification.maxConcurrentCalls}")
+  private int notificationMaxConcurrentCalls = 10;
+
+  private final Map<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+  private final Map<String, RestTemplate> templates = new ConcurrentHashMap<>();
+
+  private PoolingHttpClientConnectionManager connectionManager;
+  private CloseableHttpClient httpClient;
+
+  /**
+   * Returns the rest template for the given downstream service. The same template is returned
+   * for all callers of one service.
+   *
+   * @param downstream name of the downstream service, one of {@link #AUTH},
+   *                   {@link #REFERENCE_DATA} or {@link #NOTIFICATION}.
+   * @return rest template that uses the shared connection pool and the service bulkhead.
+   */
+  public RestTemplate getRestTemplate(String downstream) {
+    return templates.computeIfAbsent(downstream, this::createRestTemplate);
+  }
+
+  public Collection<Bulkhead> getBulkheads() {
+    return Collections.unmodifiableCollection(new ArrayList<>(bulkheads.values()));
+  }
+
+  /**
+   * Returns statistics of the shared connection pool.
+   *
+   * @return pool statistics or {@code null} if no template has been created yet.
+   */
+  public synchronized PoolStats getPoolStats() {
+    return null == connectionManager ? null : connectionManager.getTotalStats();
+  }
+
+  /**
+   * Closes the shared connection pool.
+   */
+  @PreDestroy
+  public synchronized void close() throws IOException {
+    if (null != httpClient) {
+      httpClient.close();
+      httpClient = null;
+      connectionManager = null;
+    }
+  }
+
+  private RestTemplate createRestTemplate(String downstream) {
+    Bulkhead bulkhead = new Bulkhead(
+        downstream, getMaxConcurrentCalls(downstream), connectionRequestTimeout
+    );
+    bulkheads.put(downstream, bulkhead);
+
+    RestTemplate template = new RestTemplate(
+        new HttpComponentsClientHttpRequestFactory(getHttpClient())
+    );
+    template.getInterceptors().add(bulkhead);
+
+    return template;
+  }
+
+  private int getMaxConcurrentCalls(String downstream) {
+    switch (downstream) {
+      case AUTH:
+        return authMaxConcurrentCalls;
+      case REFERENCE_DATA:
+        return referenceDataMaxConcurrentCalls;
+      case NOTIFICATION:
+        return notificationMaxConcurrentCalls;
+      default:
+        throw new IllegalArgumentException("Unknown downstream service: " + downstream);
+    }
+  }
+
+  private synchronized CloseableHttpClient getHttpClient() {
+    if (null == httpClient) {
+      connectionManager = new PoolingHttpClientConnectionManager();
+      connectionManager.setMaxTotal(maxConnections);
+      connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+
+      RequestConfig requestConfig = RequestConfig
+          .custom()
+          .setConnectTimeout(connectTimeout)
+          .setSocketTimeout(readTimeout)
+          .setConnectionRequestTimeout(connectionRequestTimeout)
+          .build();
+
+      httpClient = HttpClients
+          .custom()
+          .setConnectionManager(connectionManager)
+          .setDefaultRequestConfig(requestConfig)
+          .build();
+    }
+
+    return httpClient;
+  }
+
+}
@@ -16,9 +16,11 @@
 package org.openlmis.fulfillment.service.notification;
 
 import org.openlmis.fulfillment.service.BaseCommunicationService;
+import org.openlmis.fulfillment.service.http.RestTemplateFactory;
 import org.openlmis.util.NotificationRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.stereotype.Service;
@@ -43,13 +45,15 @@ public class NotificationService extends BaseCommunicationService {
   public boolean send(NotificationRequest request) {
     String url = getNotificationUrl() + "/api/notification";
 
-    Map<String, String> params = new HashMap<>();
-    params.put(ACCESS_TOKEN, obtainAccessToken());
-
     HttpEntity<NotificationRequest> body = new HttpEntity<>(request);
 
     try {
-      restTemplate.postForEntity(buildUri(url, params), body, NotificationRequest.class);
+      withAccessToken(token -> {
+        Map<String, String> params = new HashMap<>();
+        params.put(ACCESS_TOKEN, token);
+
+        return restTemplate.postForEntity(buildUri(url, params), body, NotificationRequest.class);
+      });
     } catch (RestClientException ex) {
       logger.error("Can not send a notification request", ex);
       return false;
@@ -58,6 +62,11 @@ public class NotificationService extends BaseCommunicationService {
     return true;
   }
 
+  @Autowired
+  public void setRestTemplateFactory(RestTemplateFactory restTemplateFactory) {
+    setRestTemplate(restTemplateFactory.getRestTemplate(RestTemplateFactory.NOTIFICATION));
+  }
+
   String getNotificationUrl() {
     return notificationUrl;
   }
@@ -16,8 +16,12 @@
 package org.openlmis.fulfillment.service.referencedata;
 
 import org.openlmis.fulfillment.service.BaseCommunicationService;
+import org.openlmis.fulfillment.service.http.RestTemplateFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
@@ -28,35 +32,212 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
-public abstract class BaseReferenceDataService<T> extends BaseCommunicationService {
+@SuppressWarnings("PMD.TooManyMethods")
+public abstract class BaseReferenceDataService<T extends BaseDto>
+    extends BaseCommunicationService {
   private final Logger logger = LoggerFactory.getLogger(getClass());
 
   @Value("${referencedata.url}")
   private String referenceDataUrl;
 
+  @Value("${referencedata.bulk.chunkSize}")
+  private int chunkSize = 50;
+
+  private long staleTimeToLive;
+
+  private final RequestMemo<T> memo = new RequestMemo<>(getClass().getName());
+
+  private final ReferenceDataLoader<T> loader = new ReferenceDataLoader<>(
+      this::retrieveOne,
+      () -> new ReferenceDataRetrievalException(
+          getResultClass().getSimpleName(), HttpStatus.SERVICE_UNAVAILABLE,
+          "Reference data service is unavailable (circuit breaker is open)")
+  );
+
   /**
-   * Return one object from Reference data service.
+   * Return one object from Reference data service. Within one HTTP request each object is
+   * retrieved at most once. If the cache is enabled for this service the object is returned from
+   * it when present; otherwise it is retrieved and put into the cache. Concurrent calls for the
+   * same object share one request to the Reference data service. If the object can not be
+   * retrieved, a stale value from the cache is returned when there is one.
    *
    * @param id UUID of requesting object.
    * @return Requesting reference data object.
    */
   public T findOne(UUID id) {
+    return memo.computeIfAbsent(id, loader::load);
+  }
+
+  /**
+   * Return reference data objects with the given IDs. Duplicated and {@code null} IDs are ignored.
+   * Objects already retrieved in the current request or present in the cache are taken from there
+   * and the remaining ones are retrieved in chunks, so the number of requests depends on the
+   * number of distinct IDs and not on the number of places they come from.
+   *
+   * @param ids UUIDs of requesting objects.
+   * @return map of found objects by their ID; objects that do not exist are not in the map.
+   */
+  public Map<UUID, T> findByIds(Collection<UUID> ids) {
+    Set<UUID> remaining = new LinkedHashSet<>(ids);
+    remaining.remove(null);
+
+    Map<UUID, T> found = getRemembered(remaining);
+    remaining.removeAll(found.keySet());
+
+    Map<UUID, T> loaded = loader.loadAll(remaining, chunkSize, this::findAllById);
+
+    loaded.forEach(memo::put);
+    found.putAll(loaded);
+
+    return found;
+  }
+
+  /**
+   * Returns reference data objects with the given IDs that have already been retrieved in the
+   * current request. Nothing is retrieved from the reference data service. Outside of a request
+   * the returned map is empty.
+   *
+   * @param ids UUIDs of requesting objects.
+   * @return map of remembered objects by their ID.
+   */
+  public Map<UUID, T> getRemembered(Collection<UUID> ids) {
+    Map<UUID, T> found = new HashMap<>();
+
+    for (UUID id : ids) {
+      T known = null == id ? null : memo.get(id);
+
+      if (null != known) {
+        found.put(id, known);
+      }
+    }
+
+    return found;
+  }
+
+  /**
+   * Creates an object that contains only the given ID. It is used in place of an object that could
+   * not be retrieved in time.
+   *
+   * @param id UUID of the object.
+   * @return new instance of reference data object with only the ID set.
+   */
+  public T createStub(UUID id) {
+    T stub = BeanUtils.instantiate(getResultClass());
+    stub.setId(id);
+
+    return stub;
+  }
+
+  public ReferenceDataCache<T> getCache() {
+    return loader.getCache();
+  }
+
+  ReferenceDataLoader<T> getLoader() {
+    return loader;
+  }
+
+  /**
+   * Returns name of the resource handled by this service, e.g. {@code facilities}.
+   */
+  public String getResourceName() {
+    return getUrl().replaceAll("^/api/|/$", "");
+  }
+
+  @Autowired
+  public void setRestTemplateFactory(RestTemplateFactory restTemplateFactory) {
+    setRestTemplate(restTemplateFactory.getRestTemplate(RestTemplateFactory.REFERENCE_DATA));
+  }
+
+  /**
+   * Configures the circuit breaker, serving of stale values and the cache of objects that do not
+   * exist. This method is called before {@link #enableCache(String, int, long)} is called by
+   * subclasses.
+   *
+   * @param failureThreshold    number of consecutive failures that opens the circuit; the circuit
+   *                            breaker is disabled if it is not positive.
+   * @param openDuration        how long the circuit stays open, in seconds.
+   * @param staleTimeToLive     how long an expired object can be served from the cache, in
+   *                            seconds.
+   * @param refreshExecutor     executor used to refresh stale objects in the background.
+   * @param notFoundMaxSize     maximum number of remembered IDs of objects that do not exist.
+   * @param notFoundTimeToLive  how long an object that does not exist is remembered, in seconds;
+   *                            nothing is remembered if it or the size is not positive.
+   */
+  @Autowired
+  void configureResilience(
+      @Value("${referencedata.circuitBreaker.failureThreshold}") int failureThreshold,
+      @Value("${referencedata.circuitBreaker.openDuration}") long openDuration,
+      @Value("${referencedata.cache.staleTimeToLive}") long staleTimeToLive,
+      @Qualifier("referenceDataRefreshExecutor") Executor refreshExecutor,
+      @Value("${referencedata.notFound.cache.maxSize}") int notFoundMaxSize,
+      @Value("${referencedata.notFound.cache.timeToLive}") long notFoundTimeToLive) {
+    this.staleTimeToLive = staleTimeToLive;
+    loader.setRefreshExecutor(refreshExecutor);
+    loader.setCircuitBreaker(failureThreshold > 0
+        ? new CircuitBreaker(failureThreshold, TimeUnit.SECONDS.toMillis(openDuration))
+        : null);
+    loader.setNotFoundCache(notFoundMaxSize > 0 && notFoundTimeToLive > 0
+        ? new ReferenceDataCache<>(getResourceName() + ".notFound", notFoundMaxSize,
+            TimeUnit.SECONDS.toMillis(notFoundTimeToLive))
+        : null);
+  }
+
+  /**
+   * Enables the cache for the {@link #findOne(UUID)} method. The cache is disabled if either the
+   * size or the time to live is not positive. Entity tags of cached objects are remembered as long
+   * as the objects themselves, so expired objects are revalidated with conditional requests.
+   *
+   * @param name       name of the cache.
+   * @param maxSize    maximum number of cached objects.
+   * @param timeToLive time to live of a cached object, in seconds.
+   */
+  protected void enableCache(String name, int maxSize, long timeToLive) {
+    boolean enabled = maxSize > 0 && timeToLive > 0;
+    long entryTimeToLive = TimeUnit.SECONDS.toMillis(timeToLive + Math.max(staleTimeToLive, 0));
+
+    loader.setCache(enabled
+        ? new ReferenceDataCache<>(name, maxSize, TimeUnit.SECONDS.toMillis(timeToLive),
+            TimeUnit.SECONDS.toMillis(staleTimeToLive))
+        : null);
+    loader.setEntityTags(enabled
+        ? new EntityTagCache(new ReferenceDataCache<>(name + ".etags", maxSize, entryTimeToLive))
+        : null);
+  }
+
+  private T retrieveOne(UUID id) {
     String url = getReferenceDataUrl() + getUrl() + id;
 
-    Map<String, String> params = new HashMap<>();
-    params.put(ACCESS_TOKEN, obtainAccessToken());
+    ReferenceDataCache<T> cache = loader.getCache();
+    EntityTagCache tags = loader.getEntityTags();
+    T cached = null == cache || null == tags ? null : cache.getStale(id);
+    String tag = null == cached ? null : tags.get(id);
 
     try {
-      ResponseEntity<T> responseEntity = restTemplate.exchange(
-          buildUri(url, params), HttpMethod.GET, null, getResultClass());
-      return responseEntity.getBody();
+      ResponseEntity<T> responseEntity = withAccessToken(token -> {
+        Map<String, String> params = new HashMap<>();
+        params.put(ACCESS_TOKEN, token);
+
+        return restTemplate.exchange(
+            buildUri(url, params), HttpMethod.GET, EntityTagCache.createRequest(tag),
+            getResultClass());
+      });
+
+      return null == tags
+          ? responseEntity.getBody()
+          : tags.resolve(id, tag, cached, responseEntity);
     } catch (HttpStatusCodeException ex) {
       // rest template will handle 404 as an exception, instead of returning null
       if (ex.getStatusCode() == HttpStatus.NOT_FOUND) {
         logger.warn("{} with id {} does not exist. ", getResultClass().getSimpleName(), id);
+        Optional.ofNullable(tags).ifPresent(target -> target.evict(id));
         return null;
       } else {
         throw buildRefDataException(ex);
@@ -64,6 +245,21 @@ public abstract class BaseReferenceDataService<T> extends BaseCommunicationServi
     }
   }
 
+  /**
+   * Return reference data T objects with the given IDs. By default they are searched with a GET
+   * request to the search resource; services whose search resource expects the IDs in another
+   * form override this method.
+   *
+   * @param ids UUIDs of requesting objects.
+   * @return found reference data T objects.
+   */
+  Collection<T> findAllById(Collection<UUID> ids) {
+    Map<String, Object> parameters = new HashMap<>();
+    parameters.put("id", ids);
+
+    return findAll("search", parameters);
+  }
+
   /**
    * Return all reference data T objects.
    *
@@ -92,18 +288,19 @@ public abstract class BaseReferenceDataService<T> extends BaseCommunicationServi
                                           Map<String, Object> payload, HttpMethod method) {
     String url = getReferenceDataUrl() + getUrl() + resourceUrl;
 
-    Map<String, Object> params = new HashMap<>();
-    params.put(ACCESS_TOKEN, obtainAccessToken());
-    params.putAll(uriParameters);
-
     try {
-      ResponseEntity<T[]> responseEntity;
-      if (HttpMethod.GET == method) {
-        responseEntity = restTemplate.getForEntity(buildUri(url, params), getArrayResultClass());
-      } else {
-        responseEntity = restTemplate.postForEntity(buildUri(url, params), payload,
-            getArrayResultClass());
-      }
+      ResponseEntity<T[]> responseEntity = withAccessToken(token -> {
+        Map<String, Object> params = new HashMap<>();
+        params.put(ACCESS_TOKEN, token);
+        params.putAll(uriParameters);
+
+        if (HttpMethod.GET == method) {
+          return restTemplate.getForEntity(buildUri(url, params), getArrayResultClass());
+        } else {
+          return restTemplate.postForEntity(buildUri(url, params), payload,
+              getArrayResultClass());
+        }
+      });
 
       return new ArrayList<>(Arrays.asList(responseEntity.getBody()));
     } catch (HttpStatusCodeException ex) {
@@ -113,11 +310,13 @@ public abstract class BaseReferenceDataService<T> extends BaseCommunicationServi
 
   <P> P get(Class<P> type, String resourceUrl, Map<String, Object> parameters) {
     String url = getReferenceDataUrl() + getUrl() + resourceUrl;
-    Map<String, Object> params = new HashMap<>();
-    params.put(ACCESS_TOKEN, obtainAccessToken());
-    params.putAll(parameters);
+    ResponseEntity<P> response = withAccessToken(token -> {
+      Map<String, Object> params = new HashMap<>();
+      params.put(ACCESS_TOKEN, token);
+      params.putAll(parameters);
 
-    ResponseEntity<P> response = restTemplate.getForEntity(buildUri(url, params), type);
+      return restTemplate.getForEntity(buildUri(url, params), type);
+    });
 
     return response.getBody();
   }
@@ -0,0 +1,166 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.service.referencedata;
+
+import java.time.Clock;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Stops calls to a service after a number of consecutive failures. While the circuit is open
+ * calls are rejected immediately. After the open duration one trial call is let through
+ * (half open state); the circuit is closed again if it succeeds and opened otherwise.
+ */
+public class CircuitBreaker {
+
+  public enum State {
+    CLOSED, HALF_OPEN, OPEN
+  }
+
+  private final int failureThreshold;
+  private final long openDuration;
+  private final Clock clock;
+
+  private final Map<State, AtomicLong> transitions = new EnumMap<>(State.class);
+  private final AtomicLong rejected = new AtomicLong();
+
+  private State state = State.CLOSED;
+  private int consecutiveFailures;
+  private long openedAt;
+  private boolean trialInProgress;
+
+  /**
+   * Creates a new circuit breaker.
+   *
+   * @param failureThreshold number of consecutive failures that opens the circuit.
+   * @param openDuration     how long the circuit stays open, in milliseconds.
+   */
+  public CircuitBreaker(int failureThreshold, long openDuration) {
+    this(failureThreshold, openDuration, Clock.systemUTC());
+  }
+
+  CircuitBreaker(int failureThreshold, long openDuration, Clock clock) {
+    if (failureThreshold <= 0) {
+      throw new IllegalArgumentException("Failure threshold must be positive");
+    }
+
+    this.failureThreshold = failureThreshold;
+    this.openDuration = openDuration;
+    this.clock = clock;
+
+    for (State value : State.values()) {
+      transitions.put(value, new AtomicLong());
+    }
+  }
+
+  /**
+   * Executes the given call unless the circuit is open.
+   *
+   * @param call      call to execute.
+   * @param isFailure decides whether an exception thrown by the call is a failure of the service;
+   *                  other exceptions are treated like a successful call.
+   * @param rejection creates the exception thrown when the call is rejected.
+   * @param <T>       type of result.
+   * @return result of the call.
+   */
+  public <T> T execute(Supplier<T> call, Predicate<RuntimeException> isFailure,
+                       Supplier<RuntimeException> rejection) {
+    if (!tryAcquire()) {
+      rejected.incrementAndGet();
+      throw rejection.get();
+    }
+
+    try {
+      T result = call.get();
+      onSuccess();
+
+      return result;
+    } catch (RuntimeException exp) {
+      if (isFailure.test(exp)) {
+        onFailure();
+      } else {
+        onSuccess();
+      }
+
+      throw exp;
+    } catch (Error err) {
+      onFailure();
+      throw err;
+    }
+  }
+
+  public synchronized State getState() {
+    return state;
+  }
+
+  /**
+   * Returns how many times the circuit has moved to the given state.
+   */
+  public long getTransitionCount(State target) {
+    return transitions.get(target).get();
+  }
+
+  public long getRejectedCount() {
+    return rejected.get();
+  }
+
+  private synchronized boolean tryAcquire() {
+    if (State.OPEN == state) {
+      if (clock.millis() - openedAt < openDuration) {
+        return false;
+      }
+
+      moveTo(State.HALF_OPEN);
+    }
+
+    if (State.HALF_OPEN == state) {
+      if (trialInProgress) {
+        return false;
+      }
+
+      trialInProgress = true;
+    }
+
+    return true;
+  }
+
+  private synchronized void onSuccess() {
+    consecutiveFailures = 0;
+    trialInProgress = false;
+    moveTo(State.CLOSED);
+  }
+
+  private synchronized void onFailure() {
+    consecutiveFailures++;
+    trialInProgress = false;
+
+    if (State.HALF_OPEN == state || consecutiveFailures >= failureThreshold) {
+      openedAt = clock.millis();
+      moveTo(State.OPEN);
+    }
+  }
+
+  private void moveTo(State target) {
+    if (target != state) {
+      state = target;
+      transitions.get(target).incrementAndGet();
+    }
+  }
+
+}
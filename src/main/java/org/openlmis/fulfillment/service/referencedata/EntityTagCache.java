@@ -0,0 +1,123 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.service.referencedata;
+
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers entity tags (ETags) of retrieved reference data objects, so expired objects can be
+ * revalidated with a conditional request. When the reference data service answers with
+ * {@code 304 Not Modified} the cached object is used again instead of downloading and
+ * deserializing the same body.
+ */
+class EntityTagCache {
+  private final ReferenceDataCache<String> tags;
+
+  private final AtomicLong revalidations = new AtomicLong();
+  private final AtomicLong notModified = new AtomicLong();
+
+  EntityTagCache(ReferenceDataCache<String> tags) {
+    this.tags = tags;
+  }
+
+  /**
+   * Returns the entity tag of the object with the given ID.
+   *
+   * @param id UUID of the object.
+   * @return the entity tag or {@code null} if it is not known.
+   */
+  String get(UUID id) {
+    return tags.getStale(id);
+  }
+
+  /**
+   * Creates a request entity with the If-None-Match header.
+   *
+   * @param tag entity tag of the cached object, may be {@code null}.
+   * @return the request entity or {@code null} if there is no entity tag.
+   */
+  static HttpEntity<Object> createRequest(String tag) {
+    if (null == tag) {
+      return null;
+    }
+
+    HttpHeaders headers = new HttpHeaders();
+    headers.setIfNoneMatch(tag);
+
+    return new HttpEntity<>(headers);
+  }
+
+  /**
+   * Returns the object represented by the given response and remembers its entity tag.
+   *
+   * @param id       UUID of the object.
+   * @param sentTag  entity tag sent in the If-None-Match header, may be {@code null}.
+   * @param cached   object the sent entity tag belongs to.
+   * @param response response of the reference data service.
+   * @param <T>      type of the object.
+   * @return the cached object if it was not modified, otherwise the body of the response.
+   */
+  <T> T resolve(UUID id, String sentTag, T cached, ResponseEntity<T> response) {
+    if (null != sentTag) {
+      revalidations.incrementAndGet();
+
+      if (HttpStatus.NOT_MODIFIED == response.getStatusCode()) {
+        notModified.incrementAndGet();
+        tags.put(id, sentTag);
+        return cached;
+      }
+    }
+
+    HttpHeaders headers = response.getHeaders();
+    String tag = null == headers ? null : headers.getETag();
+
+    if (null == tag) {
+      tags.evict(id);
+    } else {
+      tags.put(id, tag);
+    }
+
+    return response.getBody();
+  }
+
+  /**
+   * Forgets the entity tag of the object with the given ID.
+   *
+   * @param id UUID of the object.
+   */
+  void evict(UUID id) {
+    tags.evict(id);
+  }
+
+  ReferenceDataCache<String> getTags() {
+    return tags;
+  }
+
+  long getRevalidationCount() {
+    return revalidations.get();
+  }
+
+  long getNotModifiedCount() {
+    return notModified.get();
+  }
+
+}
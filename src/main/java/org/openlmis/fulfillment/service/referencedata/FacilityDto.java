@@ -20,12 +20,10 @@ import lombok.Setter;
 
 import java.time.LocalDate;
 import java.util.List;
-import java.util.UUID;
 
 @Getter
 @Setter
-public class FacilityDto {
-  private UUID id;
+public class FacilityDto extends BaseDto {
   private String code;
   private String name;
   private String description;
@@ -15,11 +15,20 @@
 
 package org.openlmis.fulfillment.service.referencedata;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 @Service
 public class FacilityReferenceDataService extends BaseReferenceDataService<FacilityDto> {
 
+  @Autowired
+  void configureCache(
+      @Value("${referencedata.facilities.cache.maxSize}") int maxSize,
+      @Value("${referencedata.facilities.cache.timeToLive}") long timeToLive) {
+    enableCache("facilities", maxSize, timeToLive);
+  }
+
   @Override
   protected String getUrl() {
     return "/api/facilities/";
@@ -19,12 +19,10 @@ import lombok.Getter;
 import lombok.Setter;
 
 import java.util.Set;
-import java.util.UUID;
 
 @Getter
 @Setter
-public class OrderableDto {
-  private UUID id;
+public class OrderableDto extends BaseDto {
   private String productCode;
   private String name;
   private long packSize;
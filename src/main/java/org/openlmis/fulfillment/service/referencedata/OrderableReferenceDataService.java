@@ -15,12 +15,21 @@
 
 package org.openlmis.fulfillment.service.referencedata;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 @Service
 public class OrderableReferenceDataService
     extends BaseReferenceDataService<OrderableDto> {
 
+  @Autowired
+  void configureCache(
+      @Value("${referencedata.orderables.cache.maxSize}") int maxSize,
+      @Value("${referencedata.orderables.cache.timeToLive}") long timeToLive) {
+    enableCache("orderables", maxSize, timeToLive);
+  }
+
   @Override
   protected String getUrl() {
     return "/api/orderables/";
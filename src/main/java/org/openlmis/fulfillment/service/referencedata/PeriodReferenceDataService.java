@@ -15,11 +15,20 @@
 
 package org.openlmis.fulfillment.service.referencedata;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 @Service
 public class PeriodReferenceDataService extends BaseReferenceDataService<ProcessingPeriodDto> {
 
+  @Autowired
+  void configureCache(
+      @Value("${referencedata.processingPeriods.cache.maxSize}") int maxSize,
+      @Value("${referencedata.processingPeriods.cache.timeToLive}") long timeToLive) {
+    enableCache("processingPeriods", maxSize, timeToLive);
+  }
+
   @Override
   protected String getUrl() {
     return "/api/processingPeriods/";
@@ -20,13 +20,11 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 import java.time.LocalDate;
-import java.util.UUID;
 
 @Getter
 @Setter
 @NoArgsConstructor
-public class ProcessingPeriodDto {
-  private UUID id;
+public class ProcessingPeriodDto extends BaseDto {
   private ProcessingScheduleDto processingSchedule;
   private String name;
   private String description;
@@ -18,12 +18,9 @@ package org.openlmis.fulfillment.service.referencedata;
 import lombok.Getter;
 import lombok.Setter;
 
-import java.util.UUID;
-
 @Getter
 @Setter
-public class ProgramDto {
-  private UUID id;
+public class ProgramDto extends BaseDto {
   private String code;
   private String name;
   private String description;
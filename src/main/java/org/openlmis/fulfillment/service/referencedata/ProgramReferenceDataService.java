@@ -15,11 +15,20 @@
 
 package org.openlmis.fulfillment.service.referencedata;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 @Service
 public class ProgramReferenceDataService extends BaseReferenceDataService<ProgramDto> {
 
+  @Autowired
+  void configureCache(
+      @Value("${referencedata.programs.cache.maxSize}") int maxSize,
+      @Value("${referencedata.programs.cache.timeToLive}") long timeToLive) {
+    enableCache("programs", maxSize, timeToLive);
+  }
+
   @Override
   protected String getUrl() {
     return "/api/programs/";
@@ -0,0 +1,213 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.service.referencedata;
+
+import java.time.Clock;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded in-memory cache for reference data objects. Entries are kept in least recently used
+ * order; the eldest entry is evicted when the cache is full and every entry expires after the
+ * configured time to live. Expired entries can still be read as stale values until the stale time
+ * to live passes.
+ *
+ * @param <T> type of cached reference data object.
+ */
+public class ReferenceDataCache<T> {
+  private final String name;
+  private final int maxSize;
+  private final long timeToLive;
+  private final long staleTimeToLive;
+  private final Clock clock;
+
+  private final LinkedHashMap<UUID, Entry<T>> entries;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+
+  /**
+   * Creates a new cache.
+   *
+   * @param name       name of the cache, used in metrics.
+   * @param maxSize    maximum number of entries.
+   * @param timeToLive time to live of a single entry, in milliseconds.
+   */
+  public ReferenceDataCache(String name, int maxSize, long timeToLive) {
+    this(name, maxSize, timeToLive, 0);
+  }
+
+  /**
+   * Creates a new cache that keeps expired entries as stale values.
+   *
+   * @param name            name of the cache, used in metrics.
+   * @param maxSize         maximum number of entries.
+   * @param timeToLive      time to live of a single entry, in milliseconds.
+   * @param staleTimeToLive how long an expired entry can be read as a stale value, in
+   *                        milliseconds.
+   */
+  public ReferenceDataCache(String name, int maxSize, long timeToLive, long staleTimeToLive) {
+    this(name, maxSize, timeToLive, staleTimeToLive, Clock.systemUTC());
+  }
+
+  ReferenceDataCache(String name, int maxSize, long timeToLive, Clock clock) {
+    this(name, maxSize, timeToLive, 0, clock);
+  }
+
+  ReferenceDataCache(String name, int maxSize, long timeToLive, long staleTimeToLive,
+                     Clock clock) {
+    if (maxSize <= 0 || timeToLive <= 0) {
+      throw new IllegalArgumentException("Cache size and time to live must be positive");
+    }
+
+    this.name = name;
+    this.maxSize = maxSize;
+    this.timeToLive = timeToLive;
+    this.staleTimeToLive = Math.max(staleTimeToLive, 0);
+    this.clock = clock;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true);
+  }
+
+  /**
+   * Returns the cached object with the given ID.
+   *
+   * @param id UUID of the object.
+   * @return cached object or {@code null} if there is no such object or it has expired.
+   */
+  public synchronized T get(UUID id) {
+    Entry<T> entry = entries.get(id);
+
+    if (null == entry) {
+      misses.incrementAndGet();
+      return null;
+    }
+
+    long now = clock.millis();
+
+    if (entry.isExpired(now)) {
+      if (entry.isDiscarded(now)) {
+        entries.remove(id);
+        evictions.incrementAndGet();
+      }
+
+      misses.incrementAndGet();
+      return null;
+    }
+
+    hits.incrementAndGet();
+    return entry.value;
+  }
+
+  /**
+   * Returns the cached object with the given ID even if it has expired, as long as the stale time
+   * to live has not passed. Hit and miss counters are not changed.
+   *
+   * @param id UUID of the object.
+   * @return cached object or {@code null} if there is no such object or it is too old.
+   */
+  public synchronized T getStale(UUID id) {
+    Entry<T> entry = entries.get(id);
+
+    return null == entry || entry.isDiscarded(clock.millis()) ? null : entry.value;
+  }
+
+  /**
+   * Puts the given object into the cache. Null values are ignored.
+   *
+   * @param id    UUID of the object.
+   * @param value object to cache.
+   */
+  public synchronized void put(UUID id, T value) {
+    if (null == id || null == value) {
+      return;
+    }
+
+    long expiresAt = clock.millis() + timeToLive;
+    entries.put(id, new Entry<>(value, expiresAt, expiresAt + staleTimeToLive));
+
+    Iterator<Map.Entry<UUID, Entry<T>>> iterator = entries.entrySet().iterator();
+    while (entries.size() > maxSize && iterator.hasNext()) {
+      iterator.next();
+      iterator.remove();
+      evictions.incrementAndGet();
+    }
+  }
+
+  /**
+   * Removes the object with the given ID from the cache.
+   *
+   * @param id UUID of the object.
+   */
+  public synchronized void evict(UUID id) {
+    entries.remove(id);
+  }
+
+  /**
+   * Removes all entries from the cache. Counters are not reset.
+   */
+  public synchronized void clear() {
+    entries.clear();
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  public long getEvictionCount() {
+    return evictions.get();
+  }
+
+  private static final class Entry<T> {
+    private final T value;
+    private final long expiresAt;
+    private final long discardAt;
+
+    Entry(T value, long expiresAt, long discardAt) {
+      this.value = value;
+      this.expiresAt = expiresAt;
+      this.discardAt = discardAt;
+    }
+
+    boolean isExpired(long now) {
+      return now >= expiresAt;
+    }
+
+    boolean isDiscarded(long now) {
+      return now >= discardAt;
+    }
+  }
+
+}
@@ -0,0 +1,317 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.service.referencedata;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Loads reference data objects of one type through the cache, coalescing concurrent requests
+ * and protecting the reference data service with a circuit breaker.
+ *
+ * <p>When a stale value is in the cache and a refresh executor is set, the stale value is
+ * returned immediately and the object is refreshed in the background. When the object can not
+ * be retrieved (also because the circuit is open) the stale value is returned instead of an
+ * error, if there is one.
+ *
+ * <p>When a snapshot of all objects is loaded, objects present in the snapshot are served from it
+ * without using the cache. Once the snapshot is older than its maximum age, objects are loaded as
+ * if there was no snapshot.
+ *
+ * <p>Objects that do not exist can be remembered in a separate, short lived cache, so missing
+ * objects are not requested again and again.
+ *
+ * @param <T> type of loaded reference data object.
+ */
+class ReferenceDataLoader<T extends BaseDto> {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ReferenceDataLoader.class);
+
+  private final Function<UUID, T> retriever;
+  private final Supplier<RuntimeException> rejection;
+
+  private final SingleFlight<T> singleFlight = new SingleFlight<>();
+  private final ReferenceDataSnapshot<T> snapshot = new ReferenceDataSnapshot<>();
+  private final Set<UUID> refreshing = ConcurrentHashMap.newKeySet();
+
+  private final AtomicLong staleHits = new AtomicLong();
+  private final AtomicLong refreshes = new AtomicLong();
+
+  private volatile ReferenceDataCache<T> cache;
+  private volatile EntityTagCache entityTags;
+  private volatile ReferenceDataCache<Boolean> notFoundCache;
+  private volatile CircuitBreaker circuitBreaker;
+  private volatile Executor refreshExecutor;
+
+  /**
+   * Creates a new loader.
+   *
+   * @param retriever retrieves a single object from the reference data service.
+   * @param rejection creates the exception thrown when the circuit is open.
+   */
+  ReferenceDataLoader(Function<UUID, T> retriever, Supplier<RuntimeException> rejection) {
+    this.retriever = retriever;
+    this.rejection = rejection;
+  }
+
+  /**
+   * Returns the object with the given ID.
+   *
+   * @param id UUID of the object.
+   * @return the object or {@code null} if it does not exist.
+   */
+  T load(UUID id) {
+    T snapshotted = snapshot.get(id);
+
+    if (null != snapshotted) {
+      return snapshotted;
+    }
+
+    if (isKnownToBeMissing(id)) {
+      return null;
+    }
+
+    ReferenceDataCache<T> current = cache;
+
+    if (null == current) {
+      T value = retrieve(id);
+      update(null, id, value);
+
+      return value;
+    }
+
+    T value = current.get(id);
+
+    if (null != value) {
+      return value;
+    }
+
+    T stale = current.getStale(id);
+
+    if (null != stale && null != refreshExecutor) {
+      staleHits.incrementAndGet();
+      refreshInBackground(current, id);
+      return stale;
+    }
+
+    try {
+      value = retrieve(id);
+    } catch (RuntimeException exp) {
+      return fallBack(stale, exp);
+    }
+
+    update(current, id, value);
+    return value;
+  }
+
+  /**
+   * Returns objects with the given IDs. Cached objects are taken from the cache and the others are
+   * retrieved in chunks with the given function. Objects known to be missing are not retrieved.
+   * Objects absent from a bulk response are left out of the result, but they are neither
+   * remembered as missing nor evicted from the cache: only a single object request can prove that
+   * an object does not exist, so callers fall back to {@link #load(UUID)} for them.
+   *
+   * @param ids       UUIDs of the objects.
+   * @param chunkSize maximum number of IDs retrieved at once.
+   * @param bulk      retrieves objects with the given IDs from the reference data service.
+   * @return map of found objects by their ID.
+   */
+  Map<UUID, T> loadAll(Set<UUID> ids, int chunkSize, Function<List<UUID>, Collection<T>> bulk) {
+    ReferenceDataCache<T> current = cache;
+    Map<UUID, T> found = new HashMap<>();
+    List<UUID> missing = takeCached(ids, current, found);
+
+    int size = Math.max(chunkSize, 1);
+
+    for (int from = 0; from < missing.size(); from += size) {
+      List<UUID> chunk = missing.subList(from, Math.min(from + size, missing.size()));
+
+      try {
+        for (T object : protect(() -> bulk.apply(chunk))) {
+          if (ids.contains(object.getId())) {
+            found.put(object.getId(), object);
+            update(current, object.getId(), object);
+          }
+        }
+      } catch (RuntimeException exp) {
+        for (UUID id : chunk) {
+          found.put(id, fallBack(null == current ? null : current.getStale(id), exp));
+        }
+      }
+    }
+
+    return found;
+  }
+
+  ReferenceDataCache<T> getCache() {
+    return cache;
+  }
+
+  void setCache(ReferenceDataCache<T> cache) {
+    this.cache = cache;
+  }
+
+  EntityTagCache getEntityTags() {
+    return entityTags;
+  }
+
+  void setEntityTags(EntityTagCache entityTags) {
+    this.entityTags = entityTags;
+  }
+
+  ReferenceDataCache<Boolean> getNotFoundCache() {
+    return notFoundCache;
+  }
+
+  void setNotFoundCache(ReferenceDataCache<Boolean> notFoundCache) {
+    this.notFoundCache = notFoundCache;
+  }
+
+  ReferenceDataSnapshot<T> getSnapshot() {
+    return snapshot;
+  }
+
+  SingleFlight<T> getSingleFlight() {
+    return singleFlight;
+  }
+
+  CircuitBreaker getCircuitBreaker() {
+    return circuitBreaker;
+  }
+
+  void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+    this.circuitBreaker = circuitBreaker;
+  }
+
+  void setRefreshExecutor(Executor refreshExecutor) {
+    this.refreshExecutor = refreshExecutor;
+  }
+
+  long getStaleHitCount() {
+    return staleHits.get();
+  }
+
+  long getRefreshCount() {
+    return refreshes.get();
+  }
+
+  private T retrieve(UUID id) {
+    return singleFlight.execute(id, key -> protect(() -> retriever.apply(key)));
+  }
+
+  private <R> R protect(Supplier<R> call) {
+    CircuitBreaker breaker = circuitBreaker;
+
+    return null == breaker
+        ? call.get()
+        : breaker.execute(call, ReferenceDataLoader::isFailure, rejection);
+  }
+
+  private void refreshInBackground(ReferenceDataCache<T> current, UUID id) {
+    if (!refreshing.add(id)) {
+      return;
+    }
+
+    try {
+      refreshExecutor.execute(() -> {
+        try {
+          update(current, id, retrieve(id));
+          refreshes.incrementAndGet();
+        } catch (RuntimeException exp) {
+          LOGGER.debug("Unable to refresh reference data object {}", id, exp);
+        } finally {
+          refreshing.remove(id);
+        }
+      });
+    } catch (RejectedExecutionException exp) {
+      refreshing.remove(id);
+    }
+  }
+
+  private T fallBack(T stale, RuntimeException exp) {
+    if (null == stale) {
+      throw exp;
+    }
+
+    staleHits.incrementAndGet();
+    LOGGER.warn("Unable to retrieve reference data object, using stale value: {}",
+        exp.getMessage());
+
+    return stale;
+  }
+
+  private List<UUID> takeCached(Set<UUID> ids, ReferenceDataCache<T> current,
+                                Map<UUID, T> found) {
+    List<UUID> missing = new ArrayList<>();
+
+    for (UUID id : ids) {
+      if (isKnownToBeMissing(id)) {
+        continue;
+      }
+
+      T cached = snapshot.get(id);
+
+      if (null == cached && null != current) {
+        cached = current.get(id);
+      }
+
+      if (null == cached) {
+        missing.add(id);
+      } else {
+        found.put(id, cached);
+      }
+    }
+
+    return missing;
+  }
+
+  private boolean isKnownToBeMissing(UUID id) {
+    ReferenceDataCache<Boolean> missing = notFoundCache;
+    return null != missing && null != missing.get(id);
+  }
+
+  private void update(ReferenceDataCache<T> current, UUID id, T value) {
+    ReferenceDataCache<Boolean> missing = notFoundCache;
+
+    if (null == value) {
+      Optional.ofNullable(current).ifPresent(target -> target.evict(id));
+      Optional.ofNullable(missing).ifPresent(target -> target.put(id, Boolean.TRUE));
+    } else {
+      Optional.ofNullable(current).ifPresent(target -> target.put(id, value));
+      Optional.ofNullable(missing).ifPresent(target -> target.evict(id));
+    }
+  }
+
+  private static boolean isFailure(RuntimeException exp) {
+    return !(exp instanceof ReferenceDataRetrievalException
+        && ((ReferenceDataRetrievalException) exp).getStatus().is4xxClientError());
+  }
+
+}
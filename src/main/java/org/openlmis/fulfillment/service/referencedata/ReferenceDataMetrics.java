@@ -0,0 +1,123 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.service.referencedata;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Exposes statistics of reference data caches, snapshots, coalesced requests and circuit breakers
+ * through the metrics endpoint.
+ */
+@Component
+public class ReferenceDataMetrics implements PublicMetrics {
+  private static final String PREFIX = "referencedata.";
+
+  @Autowired
+  private List<BaseReferenceDataService<?>> services;
+
+  @Override
+  public Collection<Metric<?>> metrics() {
+    List<Metric<?>> metrics = new ArrayList<>();
+
+    for (BaseReferenceDataService<?> service : services) {
+      ReferenceDataLoader<?> loader = service.getLoader();
+      String resourcePrefix = PREFIX + service.getResourceName() + ".";
+
+      addSingleFlightMetrics(metrics, resourcePrefix, loader.getSingleFlight());
+      addCircuitBreakerMetrics(metrics, resourcePrefix, loader.getCircuitBreaker());
+
+      ReferenceDataCache<?> cache = loader.getCache();
+
+      if (null != cache) {
+        String prefix = PREFIX + cache.getName() + ".cache.";
+
+        addCacheMetrics(metrics, prefix, cache);
+        metrics.add(new Metric<>(prefix + "staleHits", loader.getStaleHitCount()));
+        metrics.add(new Metric<>(prefix + "refreshes", loader.getRefreshCount()));
+      }
+
+      EntityTagCache entityTags = loader.getEntityTags();
+
+      if (null != entityTags) {
+        String prefix = PREFIX + entityTags.getTags().getName() + ".";
+
+        metrics.add(new Metric<>(prefix + "size", entityTags.getTags().size()));
+        metrics.add(new Metric<>(prefix + "revalidations", entityTags.getRevalidationCount()));
+        metrics.add(new Metric<>(prefix + "notModified", entityTags.getNotModifiedCount()));
+      }
+
+      ReferenceDataSnapshot<?> snapshot = loader.getSnapshot();
+
+      if (snapshot.isLoaded()) {
+        metrics.add(new Metric<>(resourcePrefix + "snapshot.size", snapshot.size()));
+        metrics.add(new Metric<>(resourcePrefix + "snapshot.hits", snapshot.getHitCount()));
+        metrics.add(new Metric<>(resourcePrefix + "snapshot.age", snapshot.getAge()));
+      }
+
+      ReferenceDataCache<?> notFoundCache = loader.getNotFoundCache();
+
+      if (null != notFoundCache) {
+        addCacheMetrics(metrics, resourcePrefix + "notFound.", notFoundCache);
+      }
+    }
+
+    return metrics;
+  }
+
+  private void addCacheMetrics(List<Metric<?>> metrics, String prefix,
+                               ReferenceDataCache<?> cache) {
+    metrics.add(new Metric<>(prefix + "size", cache.size()));
+    metrics.add(new Metric<>(prefix + "hits", cache.getHitCount()));
+    metrics.add(new Metric<>(prefix + "misses", cache.getMissCount()));
+    metrics.add(new Metric<>(prefix + "evictions", cache.getEvictionCount()));
+  }
+
+  private void addSingleFlightMetrics(List<Metric<?>> metrics, String resourcePrefix,
+                                      SingleFlight<?> singleFlight) {
+    String prefix = resourcePrefix + "singleFlight.";
+
+    metrics.add(new Metric<>(prefix + "calls", singleFlight.getCallCount()));
+    metrics.add(new Metric<>(prefix + "coalesced", singleFlight.getCoalescedCount()));
+    metrics.add(new Metric<>(prefix + "ratio", singleFlight.getCoalescingRatio()));
+  }
+
+  private void addCircuitBreakerMetrics(List<Metric<?>> metrics, String resourcePrefix,
+                                        CircuitBreaker breaker) {
+    if (null == breaker) {
+      return;
+    }
+
+    String prefix = resourcePrefix + "circuitBreaker.";
+
+    // 0 - closed, 1 - half open, 2 - open
+    metrics.add(new Metric<>(prefix + "state", breaker.getState().ordinal()));
+    metrics.add(new Metric<>(prefix + "opened",
+        breaker.getTransitionCount(CircuitBreaker.State.OPEN)));
+    metrics.add(new Metric<>(prefix + "halfOpened",
+        breaker.getTransitionCount(CircuitBreaker.State.HALF_OPEN)));
+    metrics.add(new Metric<>(prefix + "closed",
+        breaker.getTransitionCount(CircuitBreaker.State.CLOSED)));
+    metrics.add(new Metric<>(prefix + "rejected", breaker.getRejectedCount()));
+  }
+
+}
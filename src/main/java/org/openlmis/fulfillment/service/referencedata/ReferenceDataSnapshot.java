@@ -0,0 +1,154 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.service.referencedata;
+
+import java.time.Clock;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory copy of all reference data objects of one type. The snapshot is empty until it is
+ * loaded for the first time; after that it is replaced as a whole on every refresh, so readers
+ * never see a partially refreshed snapshot. If the snapshot is not refreshed within its maximum
+ * age, it expires and no objects are returned from it until the next successful refresh.
+ *
+ * @param <T> type of reference data object.
+ */
+public class ReferenceDataSnapshot<T extends BaseDto> {
+  private final Clock clock;
+  private final AtomicLong hits = new AtomicLong();
+
+  private volatile Map<UUID, T> objects;
+  private volatile long loadedAt;
+  private volatile long maxAge;
+
+  public ReferenceDataSnapshot() {
+    this(Clock.systemUTC());
+  }
+
+  ReferenceDataSnapshot(Clock clock) {
+    this.clock = clock;
+  }
+
+  /**
+   * Returns the object with the given ID.
+   *
+   * @param id UUID of the object.
+   * @return the object or {@code null} if the snapshot is not loaded, is expired or does not
+   *         contain it.
+   */
+  public T get(UUID id) {
+    Map<UUID, T> current = objects;
+    T value = null == current || null == id || isExpired() ? null : current.get(id);
+
+    if (null != value) {
+      hits.incrementAndGet();
+    }
+
+    return value;
+  }
+
+  /**
+   * Replaces content of the snapshot with the given objects.
+   *
+   * @param all all objects of the type.
+   * @return changes compared to the previous content of the snapshot.
+   */
+  public Delta replace(Collection<T> all) {
+    Map<UUID, T> previous = null == objects ? Collections.emptyMap() : objects;
+    Map<UUID, T> next = new HashMap<>();
+
+    for (T object : all) {
+      next.put(object.getId(), object);
+    }
+
+    int added = (int) next.keySet().stream().filter(id -> !previous.containsKey(id)).count();
+    int removed = (int) previous.keySet().stream().filter(id -> !next.containsKey(id)).count();
+
+    objects = Collections.unmodifiableMap(next);
+    loadedAt = clock.millis();
+
+    return new Delta(next.size(), added, removed);
+  }
+
+  public boolean isLoaded() {
+    return null != objects;
+  }
+
+  /**
+   * Checks whether the snapshot is older than its maximum age. A snapshot that is not loaded or
+   * has no maximum age never expires.
+   */
+  public boolean isExpired() {
+    return maxAge > 0 && getAge() > maxAge;
+  }
+
+  /**
+   * Sets the maximum age of the snapshot, in milliseconds; the snapshot never expires if it is not
+   * positive.
+   */
+  public void setMaxAge(long maxAge) {
+    this.maxAge = maxAge;
+  }
+
+  public int size() {
+    Map<UUID, T> current = objects;
+    return null == current ? 0 : current.size();
+  }
+
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  /**
+   * Returns how long ago the snapshot was loaded, in milliseconds, or -1 if it is not loaded.
+   */
+  public long getAge() {
+    return isLoaded() ? clock.millis() - loadedAt : -1;
+  }
+
+  /**
+   * Changes applied to a snapshot by a single refresh.
+   */
+  public static final class Delta {
+    private final int size;
+    private final int added;
+    private final int removed;
+
+    Delta(int size, int added, int removed) {
+      this.size = size;
+      this.added = added;
+      this.removed = removed;
+    }
+
+    public int getSize() {
+      return size;
+    }
+
+    public int getAdded() {
+      return added;
+    }
+
+    public int getRemoved() {
+      return removed;
+    }
+  }
+
+}
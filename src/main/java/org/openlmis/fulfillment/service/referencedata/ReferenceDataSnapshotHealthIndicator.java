@@ -0,0 +1,50 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.service.referencedata;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.AbstractHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports the service as not ready until reference data snapshots have been loaded (when they
+ * are enabled) and as down when a snapshot has expired because it could not be refreshed.
+ */
+@Component
+public class ReferenceDataSnapshotHealthIndicator extends AbstractHealthIndicator {
+
+  @Autowired
+  private ReferenceDataWarmUp warmUp;
+
+  @Override
+  protected void doHealthCheck(Health.Builder builder) {
+    boolean expired = warmUp.isExpired();
+
+    if (!warmUp.isReady()) {
+      builder.outOfService();
+    } else if (expired) {
+      builder.down();
+    } else {
+      builder.up();
+    }
+
+    builder
+        .withDetail("snapshotEnabled", warmUp.isEnabled())
+        .withDetail("snapshotExpired", expired);
+  }
+
+}
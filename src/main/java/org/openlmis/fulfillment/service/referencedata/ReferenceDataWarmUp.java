@@ -0,0 +1,113 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.service.referencedata;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Loads snapshots of facilities, programs and orderables when the service starts and refreshes
+ * them periodically. While a snapshot is loaded {@code findOne} of the related service is served
+ * from memory. A snapshot that could not be refreshed within the maximum age expires, so objects
+ * are retrieved from the reference data service again. Disabled by default.
+ */
+@Component
+public class ReferenceDataWarmUp {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ReferenceDataWarmUp.class);
+
+  @Value("${referencedata.snapshot.enabled}")
+  private boolean enabled;
+
+  @Value("${referencedata.snapshot.maxAge}")
+  private long maxAge = 3600000;
+
+  @Autowired
+  private FacilityReferenceDataService facilityReferenceDataService;
+
+  @Autowired
+  private ProgramReferenceDataService programReferenceDataService;
+
+  @Autowired
+  private OrderableReferenceDataService orderableReferenceDataService;
+
+  /**
+   * Loads or refreshes all snapshots. The first run happens right after the service starts.
+   */
+  @Scheduled(fixedDelayString = "${referencedata.snapshot.refreshInterval}")
+  public void refresh() {
+    if (!enabled) {
+      return;
+    }
+
+    for (BaseReferenceDataService<?> service : getServices()) {
+      refreshSnapshot(service);
+    }
+  }
+
+  /**
+   * Checks whether all snapshots have been loaded. Always true if snapshots are disabled.
+   */
+  public boolean isReady() {
+    return !enabled || getServices()
+        .stream()
+        .allMatch(service -> service.getLoader().getSnapshot().isLoaded());
+  }
+
+  /**
+   * Checks whether any snapshot has expired because it could not be refreshed in time. Always
+   * false if snapshots are disabled.
+   */
+  public boolean isExpired() {
+    return enabled && getServices()
+        .stream()
+        .anyMatch(service -> service.getLoader().getSnapshot().isExpired());
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  private List<BaseReferenceDataService<?>> getServices() {
+    return Arrays.asList(
+        facilityReferenceDataService, programReferenceDataService, orderableReferenceDataService
+    );
+  }
+
+  private <T extends BaseDto> void refreshSnapshot(BaseReferenceDataService<T> service) {
+    ReferenceDataSnapshot<T> snapshot = service.getLoader().getSnapshot();
+    snapshot.setMaxAge(maxAge);
+
+    try {
+      Collection<T> all = service.findAll("", new HashMap<>());
+      ReferenceDataSnapshot.Delta delta = snapshot.replace(all);
+
+      LOGGER.info("Snapshot of {} refreshed: {} objects, {} added, {} removed",
+          service.getResourceName(), delta.getSize(), delta.getAdded(), delta.getRemoved());
+    } catch (RuntimeException exp) {
+      LOGGER.warn("Unable to refresh snapshot of {}", service.getResourceName(), exp);
+    }
+  }
+
+}
@@ -0,0 +1,114 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.service.referencedata;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Remembers reference data objects retrieved during the current HTTP request, so each object is
+ * retrieved at most once per request. Nothing is remembered outside of a request and the values
+ * are dropped together with the request, so they are never stale across requests.
+ *
+ * @param <T> type of remembered reference data object.
+ */
+class RequestMemo<T> {
+  private static final Object NOT_FOUND = new Object();
+
+  private final String attributeName;
+
+  RequestMemo(String name) {
+    this.attributeName = RequestMemo.class.getName() + "." + name;
+  }
+
+  /**
+   * Returns the object with the given ID remembered in the current request or loads it with the
+   * given function. Objects that do not exist ({@code null}) are remembered too.
+   *
+   * @param id     UUID of the object.
+   * @param loader function used to retrieve the object if it is not remembered yet.
+   * @return the object or {@code null} if it does not exist.
+   */
+  T computeIfAbsent(UUID id, Function<UUID, T> loader) {
+    Map<UUID, Object> values = getValues();
+
+    if (null == values || null == id) {
+      return loader.apply(id);
+    }
+
+    Object value = values.get(id);
+
+    if (null == value) {
+      T loaded = loader.apply(id);
+      values.put(id, null == loaded ? NOT_FOUND : loaded);
+
+      return loaded;
+    }
+
+    return NOT_FOUND == value ? null : (T) value;
+  }
+
+  /**
+   * Returns the object with the given ID if it has been retrieved in the current request.
+   *
+   * @param id UUID of the object.
+   * @return the object or {@code null} if it is not remembered or does not exist.
+   */
+  T get(UUID id) {
+    Map<UUID, Object> values = getValues();
+    Object value = null == values ? null : values.get(id);
+
+    return NOT_FOUND == value ? null : (T) value;
+  }
+
+  /**
+   * Remembers the given object in the current request. Does nothing outside of a request.
+   *
+   * @param id    UUID of the object.
+   * @param value the object.
+   */
+  void put(UUID id, T value) {
+    Map<UUID, Object> values = getValues();
+
+    if (null != values && null != id && null != value) {
+      values.put(id, value);
+    }
+  }
+
+  private Map<UUID, Object> getValues() {
+    RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+
+    if (null == attributes) {
+      return null;
+    }
+
+    Map<UUID, Object> values = (Map<UUID, Object>) attributes
+        .getAttribute(attributeName, RequestAttributes.SCOPE_REQUEST);
+
+    if (null == values) {
+      values = new ConcurrentHashMap<>();
+      attributes.setAttribute(attributeName, values, RequestAttributes.SCOPE_REQUEST);
+    }
+
+    return values;
+  }
+
+}
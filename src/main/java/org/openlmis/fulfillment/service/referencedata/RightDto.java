@@ -19,12 +19,10 @@ import lombok.Getter;
 import lombok.Setter;
 
 import java.util.Set;
-import java.util.UUID;
 
 @Getter
 @Setter
-public class RightDto {
-  private UUID id;
+public class RightDto extends BaseDto {
   private String name;
   private RightType type;
   private String description;
@@ -0,0 +1,110 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.service.referencedata;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Coalesces concurrent retrievals of the same object. The first caller retrieves the object and
+ * all callers that ask for it in the meantime wait for the same result instead of sending their
+ * own requests. Calls for different objects do not block each other.
+ *
+ * @param <T> type of retrieved object.
+ */
+public class SingleFlight<T> {
+  private final ConcurrentMap<UUID, CompletableFuture<T>> inFlight = new ConcurrentHashMap<>();
+
+  private final AtomicLong calls = new AtomicLong();
+  private final AtomicLong coalesced = new AtomicLong();
+
+  /**
+   * Retrieves the object with the given ID, or waits for the retrieval already in progress.
+   * Exceptions thrown by the loader are thrown to all waiting callers.
+   *
+   * @param id     UUID of the object.
+   * @param loader function used to retrieve the object.
+   * @return the retrieved object.
+   */
+  public T execute(UUID id, Function<UUID, T> loader) {
+    CompletableFuture<T> created = new CompletableFuture<>();
+    CompletableFuture<T> existing = inFlight.putIfAbsent(id, created);
+
+    if (null != existing) {
+      coalesced.incrementAndGet();
+      return await(existing);
+    }
+
+    calls.incrementAndGet();
+
+    try {
+      T value = loader.apply(id);
+      created.complete(value);
+
+      return value;
+    } catch (RuntimeException | Error exp) {
+      created.completeExceptionally(exp);
+      throw exp;
+    } finally {
+      inFlight.remove(id, created);
+    }
+  }
+
+  public long getCallCount() {
+    return calls.get();
+  }
+
+  public long getCoalescedCount() {
+    return coalesced.get();
+  }
+
+  /**
+   * Returns the part of all requested retrievals that were served by a retrieval already in
+   * progress.
+   *
+   * @return value between 0 and 1.
+   */
+  public double getCoalescingRatio() {
+    long shared = coalesced.get();
+    long total = calls.get() + shared;
+
+    return 0 == total ? 0 : (double) shared / total;
+  }
+
+  private T await(CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (CompletionException exp) {
+      Throwable cause = exp.getCause();
+
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+
+      throw exp;
+    }
+  }
+
+}
@@ -19,12 +19,10 @@ import lombok.Getter;
 import lombok.Setter;
 
 import java.util.Set;
-import java.util.UUID;
 
 @Getter
 @Setter
-public class UserDto {
-  private UUID id;
+public class UserDto extends BaseDto {
   private String username;
   private String firstName;
   private String lastName;
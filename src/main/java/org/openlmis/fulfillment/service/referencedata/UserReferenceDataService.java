@@ -20,6 +20,8 @@ import org.openlmis.fulfillment.util.BooleanUtils;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -59,6 +61,17 @@ public class UserReferenceDataService extends BaseReferenceDataService<UserDto>
     return users.isEmpty() ? null : users.get(0);
   }
 
+  /**
+   * Users are searched with a POST request, so the IDs are sent in the request body.
+   */
+  @Override
+  Collection<UserDto> findAllById(Collection<UUID> ids) {
+    Map<String, Object> payload = new HashMap<>();
+    payload.put("id", ids);
+
+    return postFindAll("search", Collections.emptyMap(), payload);
+  }
+
   /**
    * Check if user has a right with certain criteria.
    *
@@ -90,4 +103,22 @@ public class UserReferenceDataService extends BaseReferenceDataService<UserDto>
     return new ResultDto<>(BooleanUtils.toBoolean(result.getResult()));
   }
 
+  /**
+   * Retrieves facilities (warehouses) for which the user has the given fulfillment right.
+   *
+   * @param user  id of user
+   * @param right id of fulfillment right
+   * @return collection of facilities, empty if the user has the right for no facility.
+   */
+  public Collection<FacilityDto> getFulfillmentFacilities(UUID user, UUID right) {
+    Map<String, Object> parameters = new HashMap<>();
+    parameters.put("rightId", right);
+
+    FacilityDto[] facilities = get(
+        FacilityDto[].class, user + "/fulfillmentFacilities", parameters
+    );
+
+    return null == facilities ? Collections.emptyList() : Arrays.asList(facilities);
+  }
+
 }
@@ -18,29 +18,43 @@ package org.openlmis.fulfillment.web;
 import static org.openlmis.fulfillment.domain.OrderStatus.TRANSFER_FAILED;
 import static org.openlmis.fulfillment.i18n.MessageKeys.ERROR_ORDER_RETRY_INVALID_STATUS;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.openlmis.fulfillment.datasource.ReadReplica;
 import org.openlmis.fulfillment.domain.Order;
+import org.openlmis.fulfillment.domain.OrderAggregate;
 import org.openlmis.fulfillment.domain.OrderFileTemplate;
 import org.openlmis.fulfillment.domain.OrderNumberConfiguration;
+import org.openlmis.fulfillment.domain.OrderSummary;
 import org.openlmis.fulfillment.domain.ProofOfDelivery;
 import org.openlmis.fulfillment.repository.OrderNumberConfigurationRepository;
 import org.openlmis.fulfillment.repository.OrderRepository;
 import org.openlmis.fulfillment.repository.ProofOfDeliveryRepository;
 import org.openlmis.fulfillment.service.ExporterBuilder;
 import org.openlmis.fulfillment.service.OrderCsvHelper;
+import org.openlmis.fulfillment.service.OrderCursor;
 import org.openlmis.fulfillment.service.OrderFileTemplateService;
 import org.openlmis.fulfillment.service.OrderSearchParams;
 import org.openlmis.fulfillment.service.OrderService;
+import org.openlmis.fulfillment.service.OrderSummaryService;
 import org.openlmis.fulfillment.service.PermissionService;
 import org.openlmis.fulfillment.service.ResultDto;
+import org.openlmis.fulfillment.service.referencedata.FacilityReferenceDataService;
 import org.openlmis.fulfillment.service.referencedata.ProgramDto;
 import org.openlmis.fulfillment.service.referencedata.ProgramReferenceDataService;
+import org.openlmis.fulfillment.web.util.CursorPage;
+import org.openlmis.fulfillment.web.util.JsonArrayWriter;
 import org.openlmis.fulfillment.web.util.OrderDto;
+import org.openlmis.fulfillment.web.util.OrderSummaryDto;
 import org.openlmis.fulfillment.web.util.ProofOfDeliveryDto;
 import org.openlmis.util.Pagination;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -56,9 +70,10 @@ import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 import javax.servlet.http.HttpServletResponse;
 
@@ -75,6 +90,9 @@ public class OrderController extends BaseController {
   @Autowired
   private OrderService orderService;
 
+  @Autowired
+  private OrderSummaryService orderSummaryService;
+
   @Autowired
   private OrderCsvHelper csvHelper;
 
@@ -87,6 +105,9 @@ public class OrderController extends BaseController {
   @Autowired
   private ProgramReferenceDataService programReferenceDataService;
 
+  @Autowired
+  private FacilityReferenceDataService facilityReferenceDataService;
+
   @Autowired
   private OrderNumberConfigurationRepository orderNumberConfigurationRepository;
 
@@ -96,6 +117,12 @@ public class OrderController extends BaseController {
   @Autowired
   private ProofOfDeliveryRepository proofOfDeliveryRepository;
 
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Value("${exporter.stream.chunkSize}")
+  private int streamChunkSize = 200;
+
   /**
    * Allows creating new orders.
    * If the id is specified, it will be ignored.
@@ -132,14 +159,21 @@ public class OrderController extends BaseController {
   }
 
   /**
-   * Get all orders.
+   * Get all orders. Orders are read and written to the response in chunks, so the whole
+   * collection is never kept in memory.
    *
-   * @return OrderDtos.
+   * @param response HttpServletResponse object.
    */
   @RequestMapping(value = "/orders", method = RequestMethod.GET)
-  @ResponseBody
-  public Iterable<OrderDto> getAllOrders() {
-    return OrderDto.newInstance(orderRepository.findAll(), exporter);
+  @Transactional(readOnly = true)
+  @ReadReplica
+  public void getAllOrders(HttpServletResponse response) throws IOException {
+    JsonArrayWriter writer = new JsonArrayWriter(objectMapper, response);
+
+    orderRepository.streamAll(streamChunkSize,
+        chunk -> writer.writeAll(OrderDto.newInstance(chunk, exporter)));
+
+    writer.finish();
   }
 
   /**
@@ -149,6 +183,8 @@ public class OrderController extends BaseController {
    * @return OrderDto.
    */
   @RequestMapping(value = "/orders/{id}", method = RequestMethod.GET)
+  @Transactional(readOnly = true)
+  @ReadReplica
   public ResponseEntity<OrderDto> getOrder(@PathVariable("id") UUID orderId) {
     Order order = orderRepository.findOne(orderId);
     if (order == null) {
@@ -160,22 +196,118 @@ public class OrderController extends BaseController {
   }
 
   /**
-   * Finds Orders matching all of provided parameters.
+   * Finds Orders matching all of provided parameters. Only the requested page is read from the
+   * database; orders can be sorted by createdDate, orderCode and status.
    *
-   * @param params  provided parameters.
-   * @return ResponseEntity with list of all Orders matching provided parameters and OK httpStatus.
+   * @param params   provided parameters.
+   * @param pageable requested page and sort order.
+   * @return ResponseEntity with page of Orders matching provided parameters and OK httpStatus.
    */
   @RequestMapping(value = "/orders/search", method = RequestMethod.GET)
+  @Transactional(readOnly = true)
+  @ReadReplica
+  @ResponseStatus(HttpStatus.OK)
+  @ResponseBody
+  public Page<OrderDto> searchOrders(OrderSearchParams params, Pageable pageable) {
+    params.setPageable(pageable);
+
+    Page<Order> orders = orderService.searchOrders(
+        params, permissionService.getOrderSearchWarehouses()
+    );
+
+    List<OrderDto> content = new ArrayList<>();
+    OrderDto.newInstance(orders.getContent(), exporter).forEach(content::add);
+
+    return new PageImpl<>(content, pageable, orders.getTotalElements());
+  }
+
+  /**
+   * Finds summaries of Orders matching all of provided parameters. Summaries contain only the
+   * data needed by order lists, so they are much smaller and cheaper to read than full orders.
+   * Filtering, sorting and paging work the same way as in {@link #searchOrders}.
+   *
+   * @param params   provided parameters.
+   * @param pageable requested page and sort order.
+   * @return page of order summaries matching provided parameters.
+   */
+  @RequestMapping(value = "/orders/summaries", method = RequestMethod.GET)
+  @Transactional(readOnly = true)
+  @ReadReplica
+  @ResponseStatus(HttpStatus.OK)
+  @ResponseBody
+  public Page<OrderSummaryDto> searchOrderSummaries(OrderSearchParams params,
+                                                    Pageable pageable) {
+    params.setPageable(pageable);
+
+    Page<OrderSummary> summaries = orderSummaryService.searchOrderSummaries(
+        params, permissionService.getOrderSearchWarehouses()
+    );
+
+    List<OrderSummaryDto> content = OrderSummaryDto.newInstance(
+        summaries.getContent(), facilityReferenceDataService, programReferenceDataService
+    );
+
+    return new PageImpl<>(content, pageable, summaries.getTotalElements());
+  }
+
+  /**
+   * Counts Orders matching all of provided parameters, sums their quoted cost and counts their
+   * line items, grouped by status, supplying facility, program and processing period. Only orders
+   * the user could find with {@link #searchOrders} are included.
+   *
+   * @param params  provided parameters.
+   * @param groupBy dimensions to group by (status, supplyingFacility, program, processingPeriod);
+   *                all of them are used if none are given.
+   * @return list of order aggregates, one for each group.
+   */
+  @RequestMapping(value = "/orders/aggregates", method = RequestMethod.GET)
+  @Transactional(readOnly = true)
+  @ReadReplica
   @ResponseStatus(HttpStatus.OK)
   @ResponseBody
-  public Page<OrderDto> searchOrders(OrderSearchParams params) {
-    List<Order> orders = orderService
-        .searchOrders(params)
-        .stream()
-        .filter(permissionService::canViewOrderOrManagePod)
-        .collect(Collectors.toList());
-
-    return Pagination.getPage(OrderDto.newInstance(orders, exporter), params.getPageable());
+  public List<OrderAggregate> aggregateOrders(
+      OrderSearchParams params,
+      @RequestParam(value = "groupBy", required = false) Set<String> groupBy) {
+    return orderSummaryService.aggregateOrders(
+        params, permissionService.getOrderSearchWarehouses(), groupBy
+    );
+  }
+
+  /**
+   * Finds Orders matching all of provided parameters, reading them with a cursor. Orders are
+   * returned oldest first, sorted by created date and ID; the returned cursor points to the last
+   * order and is passed back to read the next orders. Unlike page numbers, reading with a cursor
+   * takes the same time no matter how many orders have already been read.
+   *
+   * @param params provided parameters.
+   * @param cursor cursor returned with the previous orders; none to start from the beginning.
+   * @param size   maximum number of returned orders.
+   * @return orders and the cursor to continue from.
+   */
+  @RequestMapping(value = "/orders/search/cursor", method = RequestMethod.GET)
+  @Transactional(readOnly = true)
+  @ReadReplica
+  @ResponseStatus(HttpStatus.OK)
+  @ResponseBody
+  public CursorPage<OrderDto> searchOrdersWithCursor(
+      OrderSearchParams params,
+      @RequestParam(value = "cursor", required = false) String cursor,
+      @RequestParam(value = "size", required = false) Integer size) {
+    OrderCursor after = OrderCursor.decode(cursor);
+    int limit = null == size || size <= 0 || size > Pagination.DEFAULT_PAGE_SIZE
+        ? Pagination.DEFAULT_PAGE_SIZE
+        : size;
+
+    List<Order> orders = orderService.searchOrders(
+        params, permissionService.getOrderSearchWarehouses(), after, limit
+    );
+
+    List<OrderDto> content = new ArrayList<>();
+    OrderDto.newInstance(orders, exporter).forEach(content::add);
+
+    OrderCursor next = orders.isEmpty() ? after : OrderCursor.of(orders.get(orders.size() - 1));
+
+    return new CursorPage<>(content, null == next ? cursor : next.encode());
   }
 
   /**
@@ -186,6 +318,8 @@ public class OrderController extends BaseController {
    * @param response HttpServletResponse object
    */
   @RequestMapping(value = "/orders/{id}/print", method = RequestMethod.GET)
+  @Transactional(readOnly = true)
+  @ReadReplica
   @ResponseStatus(HttpStatus.OK)
   public void printOrder(@PathVariable("id") UUID orderId,
                          @RequestParam("format") String format,
@@ -220,6 +354,8 @@ public class OrderController extends BaseController {
    * @param response HttpServletResponse object
    */
   @RequestMapping(value = "/orders/{id}/export", method = RequestMethod.GET)
+  @Transactional(readOnly = true)
+  @ReadReplica
   @ResponseStatus(HttpStatus.OK)
   public void export(@PathVariable("id") UUID orderId,
                   @RequestParam(value = "type", required = false, defaultValue = "csv") String type,
@@ -266,11 +402,14 @@ public class OrderController extends BaseController {
 
   /**
    * Manually retry for transferring order file via FTP after updating or checking the FTP
-   * transfer properties.
+   * transfer properties. The transfer is only queued; its outcome is shown by the order status
+   * once the background worker has processed it.
    *
    * @param id UUID of order
+   * @return result that confirms the transfer was queued.
    */
   @RequestMapping(value = "/orders/{id}/retry", method = RequestMethod.GET)
+  @ResponseStatus(HttpStatus.ACCEPTED)
   @ResponseBody
   public ResultDto<Boolean> retryOrderTransfer(@PathVariable("id") UUID id) {
     Order order = orderRepository.findOne(id);
@@ -286,7 +425,7 @@ public class OrderController extends BaseController {
     }
 
     orderService.save(order);
-    return new ResultDto<>(TRANSFER_FAILED != order.getStatus());
+    return new ResultDto<>(true);
   }
 
   /**
@@ -295,6 +434,8 @@ public class OrderController extends BaseController {
    * @param id UUID of order
    */
   @RequestMapping(value = "/orders/{id}/proofOfDeliveries", method = RequestMethod.GET)
+  @Transactional(readOnly = true)
+  @ReadReplica
   @ResponseBody
   public ProofOfDeliveryDto getProofOfDeliveries(@PathVariable("id") UUID id) {
     Order order = orderRepository.findOne(id);
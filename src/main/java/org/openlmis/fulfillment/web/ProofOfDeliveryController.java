@@ -17,6 +17,9 @@ package org.openlmis.fulfillment.web;
 
 import static org.openlmis.fulfillment.i18n.MessageKeys.ERROR_PROOF_OF_DELIVERY_ALREADY_SUBMITTED;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.openlmis.fulfillment.datasource.ReadReplica;
 import org.openlmis.fulfillment.domain.Order;
 import org.openlmis.fulfillment.domain.OrderStatus;
 import org.openlmis.fulfillment.domain.ProofOfDelivery;
@@ -28,12 +31,14 @@ import org.openlmis.fulfillment.service.JasperReportsViewService;
 import org.openlmis.fulfillment.service.PermissionService;
 import org.openlmis.fulfillment.service.TemplateService;
 import org.openlmis.fulfillment.util.Message;
+import org.openlmis.fulfillment.web.util.JsonArrayWriter;
 import org.openlmis.fulfillment.web.util.ProofOfDeliveryDto;
 import org.openlmis.fulfillment.web.util.ReportUtils;
 import org.openlmis.fulfillment.web.validator.ProofOfDeliveryValidator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.oauth2.provider.OAuth2Authentication;
@@ -47,12 +52,13 @@ import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.servlet.ModelAndView;
 import org.springframework.web.servlet.view.jasperreports.JasperReportsMultiFormatView;
 
-import java.util.Collection;
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 @Controller
 @Transactional
@@ -82,25 +88,34 @@ public class ProofOfDeliveryController extends BaseController {
   @Autowired
   private PermissionService permissionService;
 
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Value("${exporter.stream.chunkSize}")
+  private int streamChunkSize = 200;
+
   /**
-   * Get all proofOfDeliveries.
+   * Get all proofOfDeliveries. Rights for all proofs of delivery are checked before anything is
+   * written. Proofs of delivery are then read and written to the response in chunks, so the
+   * whole collection is never kept in memory.
    *
-   * @return ProofOfDeliveries.
+   * @param response HttpServletResponse object.
    */
   @RequestMapping(value = "/proofOfDeliveries", method = RequestMethod.GET)
-  @ResponseBody
-  public ResponseEntity<Collection<ProofOfDeliveryDto>> getAllProofOfDeliveries(
-      OAuth2Authentication authentication) {
-    Iterable<ProofOfDelivery> proofOfDeliveries = proofOfDeliveryRepository.findAll();
-
-    for (ProofOfDelivery proofOfDelivery : proofOfDeliveries) {
-      canManagePod(authentication, proofOfDelivery.getId());
+  @Transactional(readOnly = true)
+  @ReadReplica
+  public void getAllProofOfDeliveries(OAuth2Authentication authentication,
+                                      HttpServletResponse response) throws IOException {
+    if (!authentication.isClientOnly()) {
+      permissionService.canManageAllPods();
     }
 
-    return new ResponseEntity<>(
-        ProofOfDeliveryDto.newInstance(proofOfDeliveries, exporter),
-        HttpStatus.OK
-    );
+    JsonArrayWriter writer = new JsonArrayWriter(objectMapper, response);
+
+    proofOfDeliveryRepository.streamAll(streamChunkSize,
+        chunk -> writer.writeAll(ProofOfDeliveryDto.newInstance(chunk, exporter)));
+
+    writer.finish();
   }
 
   /**
@@ -147,6 +162,8 @@ public class ProofOfDeliveryController extends BaseController {
    * @return ProofOfDelivery.
    */
   @RequestMapping(value = "/proofOfDeliveries/{id}", method = RequestMethod.GET)
+  @Transactional(readOnly = true)
+  @ReadReplica
   public ResponseEntity<ProofOfDeliveryDto> getProofOfDelivery(
       @PathVariable("id") UUID id,
       OAuth2Authentication authentication) {
@@ -170,6 +187,8 @@ public class ProofOfDeliveryController extends BaseController {
    *         ResponseEntity containing the error description status.
    */
   @RequestMapping(value = "/proofOfDeliveries/{id}/print", method = RequestMethod.GET)
+  @Transactional(readOnly = true)
+  @ReadReplica
   @ResponseBody
   public ModelAndView print(HttpServletRequest request, @PathVariable("id") UUID id,
                             OAuth2Authentication authentication) {
@@ -23,4 +23,8 @@ public class ValidationException extends FulfillmentException {
     super(messageKey, params);
   }
 
+  public ValidationException(Throwable cause, String messageKey, String... params) {
+    super(cause, messageKey, params);
+  }
+
 }
@@ -0,0 +1,88 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.web.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Writes a JSON array straight to the response, element by element, so the whole collection
+ * never has to be kept in memory. Nothing is sent until the first elements are written, so
+ * errors raised before that still result in a proper error response. If {@link #finish()} is
+ * not called, the array is left open and the client gets an invalid document instead of a
+ * partial one that looks complete.
+ */
+public class JsonArrayWriter {
+  private final ObjectMapper objectMapper;
+  private final HttpServletResponse response;
+
+  private JsonGenerator generator;
+
+  public JsonArrayWriter(ObjectMapper objectMapper, HttpServletResponse response) {
+    this.objectMapper = objectMapper;
+    this.response = response;
+  }
+
+  /**
+   * Writes the given elements and flushes them to the client.
+   *
+   * @param elements elements to write.
+   * @throws UncheckedIOException if elements could not be written.
+   */
+  public void writeAll(Iterable<?> elements) {
+    try {
+      start();
+
+      for (Object element : elements) {
+        generator.writeObject(element);
+      }
+
+      generator.flush();
+    } catch (IOException exp) {
+      throw new UncheckedIOException(exp);
+    }
+  }
+
+  /**
+   * Closes the array and the response.
+   *
+   * @throws IOException if the array could not be closed.
+   */
+  public void finish() throws IOException {
+    start();
+    generator.writeEndArray();
+    generator.close();
+  }
+
+  private void start() throws IOException {
+    if (null == generator) {
+      response.setStatus(HttpStatus.OK.value());
+      response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+
+      generator = objectMapper.getFactory().createGenerator(response.getOutputStream());
+      generator.writeStartArray();
+    }
+  }
+
+}
@@ -120,15 +120,16 @@ public class OrderDto implements Order.Importer, Order.Exporter {
   }
 
   /**
-   * Crete new list of OrderDto based on list of {@link Order}
+   * Crete new list of OrderDto based on list of {@link Order}. Reference data used by the orders
+   * is retrieved in bulk.
    * @param orders list on orders
    * @return list of OrderDto.
    */
   public static Iterable<OrderDto> newInstance(Iterable<Order> orders,
                                                ExporterBuilder exporter) {
-    List<OrderDto> orderDtos = new ArrayList<>();
-    orders.forEach(o -> orderDtos.add(newInstance(o, exporter)));
-    return orderDtos;
+    List<Order> list = new ArrayList<>();
+    orders.forEach(list::add);
+    return exporter.exportAll(list, OrderDto::newInstance);
   }
 
   /**
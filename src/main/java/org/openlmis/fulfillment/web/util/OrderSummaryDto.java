@@ -0,0 +1,104 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.web.util;
+
+import org.openlmis.fulfillment.domain.OrderStatus;
+import org.openlmis.fulfillment.domain.OrderSummary;
+import org.openlmis.fulfillment.service.referencedata.FacilityDto;
+import org.openlmis.fulfillment.service.referencedata.FacilityReferenceDataService;
+import org.openlmis.fulfillment.service.referencedata.ProgramDto;
+import org.openlmis.fulfillment.service.referencedata.ProgramReferenceDataService;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+@Getter
+@Setter
+@NoArgsConstructor
+public class OrderSummaryDto {
+  private UUID id;
+  private String orderCode;
+  private OrderStatus status;
+  private ZonedDateTime createdDate;
+  private Boolean emergency;
+  private UUID programId;
+  private String programName;
+  private UUID requestingFacilityId;
+  private String requestingFacilityName;
+  private UUID supplyingFacilityId;
+  private String supplyingFacilityName;
+
+  /**
+   * Create new list of OrderSummaryDto based on list of {@link OrderSummary}. Facilities and
+   * programs are retrieved in bulk and only their names are kept.
+   *
+   * @param summaries  list of order summaries.
+   * @param facilities service used to retrieve facilities.
+   * @param programs   service used to retrieve programs.
+   * @return list of OrderSummaryDto in the same order as the given summaries.
+   */
+  public static List<OrderSummaryDto> newInstance(List<OrderSummary> summaries,
+                                                  FacilityReferenceDataService facilities,
+                                                  ProgramReferenceDataService programs) {
+    Set<UUID> facilityIds = new HashSet<>();
+    Set<UUID> programIds = new HashSet<>();
+
+    for (OrderSummary summary : summaries) {
+      facilityIds.add(summary.getRequestingFacilityId());
+      facilityIds.add(summary.getSupplyingFacilityId());
+      programIds.add(summary.getProgramId());
+    }
+
+    Map<UUID, FacilityDto> facilityMap = facilities.findByIds(facilityIds);
+    Map<UUID, ProgramDto> programMap = programs.findByIds(programIds);
+
+    List<OrderSummaryDto> dtos = new ArrayList<>(summaries.size());
+
+    for (OrderSummary summary : summaries) {
+      OrderSummaryDto dto = new OrderSummaryDto();
+      dto.setId(summary.getId());
+      dto.setOrderCode(summary.getOrderCode());
+      dto.setStatus(summary.getStatus());
+      dto.setCreatedDate(summary.getCreatedDate());
+      dto.setEmergency(summary.getEmergency());
+      dto.setProgramId(summary.getProgramId());
+      dto.setProgramName(Optional.ofNullable(programMap.get(summary.getProgramId()))
+          .map(ProgramDto::getName).orElse(null));
+      dto.setRequestingFacilityId(summary.getRequestingFacilityId());
+      dto.setRequestingFacilityName(getName(facilityMap, summary.getRequestingFacilityId()));
+      dto.setSupplyingFacilityId(summary.getSupplyingFacilityId());
+      dto.setSupplyingFacilityName(getName(facilityMap, summary.getSupplyingFacilityId()));
+
+      dtos.add(dto);
+    }
+
+    return dtos;
+  }
+
+  private static String getName(Map<UUID, FacilityDto> facilities, UUID id) {
+    return Optional.ofNullable(facilities.get(id)).map(FacilityDto::getName).orElse(null);
+  }
+}
@@ -15,6 +15,7 @@
 
 package org.openlmis.fulfillment.web.util;
 
+import org.openlmis.fulfillment.domain.Order;
 import org.openlmis.fulfillment.domain.ProofOfDelivery;
 import org.openlmis.fulfillment.domain.ProofOfDeliveryLineItem;
 import org.openlmis.fulfillment.service.ExporterBuilder;
@@ -54,15 +55,20 @@ public class ProofOfDeliveryDto implements ProofOfDelivery.Exporter, ProofOfDeli
   }
 
   /**
-   * Create new list of ProofOfDeliveryDto based on given list of {@link ProofOfDelivery}
+   * Create new list of ProofOfDeliveryDto based on given list of {@link ProofOfDelivery}. Reference
+   * data used by the related orders is retrieved in bulk.
    * @param proofOfDeliveries instance of ProofOfDelivery
    * @return new instance ProofOfDeliveryDto.
    */
   public static Collection<ProofOfDeliveryDto> newInstance(
       Iterable<ProofOfDelivery> proofOfDeliveries, ExporterBuilder exporter) {
+    List<Order> orders = new ArrayList<>();
+    proofOfDeliveries.forEach(pod -> orders.add(pod.getOrder()));
+
+    ExporterBuilder prefetched = exporter.prefetch(orders);
 
     Collection<ProofOfDeliveryDto> proofOfDeliveryDtos = new ArrayList<>();
-    proofOfDeliveries.forEach(pod -> proofOfDeliveryDtos.add(newInstance(pod, exporter)));
+    proofOfDeliveries.forEach(pod -> proofOfDeliveryDtos.add(newInstance(pod, prefetched)));
     return proofOfDeliveryDtos;
   }
 
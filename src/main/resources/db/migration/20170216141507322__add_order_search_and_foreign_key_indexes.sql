@@ -0,0 +1,11 @@
+-- order search filters, each followed by the default sort column
+CREATE INDEX orders_supplyingfacilityid_createddate_idx ON fulfillment.orders (supplyingfacilityid, createddate);
+CREATE INDEX orders_requestingfacilityid_createddate_idx ON fulfillment.orders (requestingfacilityid, createddate);
+CREATE INDEX orders_programid_processingperiodid_idx ON fulfillment.orders (programid, processingperiodid);
+CREATE INDEX orders_status_createddate_idx ON fulfillment.orders (status, createddate);
+
+-- foreign keys used to load order and proof of delivery children
+CREATE INDEX order_line_items_orderid_idx ON fulfillment.order_line_items (orderid);
+CREATE INDEX status_messages_orderid_idx ON fulfillment.status_messages (orderid);
+CREATE INDEX proof_of_deliveries_orderid_idx ON fulfillment.proof_of_deliveries (orderid);
+CREATE INDEX proof_of_delivery_line_items_proofofdeliveryid_idx ON fulfillment.proof_of_delivery_line_items (proofofdeliveryid);
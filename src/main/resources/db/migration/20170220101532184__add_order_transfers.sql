@@ -0,0 +1,18 @@
+-- orders waiting to be stored locally and sent to the supplying facility
+CREATE TABLE fulfillment.order_transfers (
+    id uuid NOT NULL,
+    orderid uuid NOT NULL,
+    attempts integer NOT NULL,
+    nextattemptat timestamp with time zone NOT NULL,
+    claimeduntil timestamp with time zone,
+    lasterror text,
+    createddate timestamp with time zone NOT NULL
+);
+
+ALTER TABLE ONLY fulfillment.order_transfers
+    ADD CONSTRAINT order_transfers_pkey PRIMARY KEY (id);
+
+ALTER TABLE ONLY fulfillment.order_transfers
+    ADD CONSTRAINT order_transfers_orderid_fkey FOREIGN KEY (orderid) REFERENCES fulfillment.orders(id) ON DELETE CASCADE;
+
+CREATE INDEX order_transfers_nextattemptat_idx ON fulfillment.order_transfers (nextattemptat);
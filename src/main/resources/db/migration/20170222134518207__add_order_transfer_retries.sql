@@ -0,0 +1,17 @@
+-- transfers created by the automatic retry of TRANSFER_FAILED orders
+ALTER TABLE fulfillment.order_transfers ADD COLUMN retry boolean DEFAULT false NOT NULL;
+
+-- backoff of automatic retries, one row per supplying facility
+CREATE TABLE fulfillment.order_transfer_retries (
+    id uuid NOT NULL,
+    facilityid uuid NOT NULL,
+    attempts integer NOT NULL,
+    nextattemptat timestamp with time zone NOT NULL,
+    lastattemptat timestamp with time zone NOT NULL
+);
+
+ALTER TABLE ONLY fulfillment.order_transfer_retries
+    ADD CONSTRAINT order_transfer_retries_pkey PRIMARY KEY (id);
+
+ALTER TABLE ONLY fulfillment.order_transfer_retries
+    ADD CONSTRAINT order_transfer_retries_facilityid_unique UNIQUE (facilityid);
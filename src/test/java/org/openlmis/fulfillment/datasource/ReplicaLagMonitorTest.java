@@ -0,0 +1,124 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.datasource;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.BDDMockito.given;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReplicaLagMonitorTest {
+  private static final String LAG_QUERY = "SELECT 0";
+  private static final long MAX_LAG = 1000;
+
+  @Mock
+  private DataSource replica;
+
+  @Mock
+  private JdbcTemplate jdbcTemplate;
+
+  @Test
+  public void shouldBeUnavailableBeforeFirstCheck() {
+    ReplicaLagMonitor monitor = new ReplicaLagMonitor(replica, jdbcTemplate, MAX_LAG, LAG_QUERY);
+
+    assertThat(monitor.isAvailable(), is(false));
+  }
+
+  @Test
+  public void shouldBeAvailableIfLagIsWithinTolerance() {
+    given(jdbcTemplate.queryForObject(LAG_QUERY, Number.class)).willReturn(MAX_LAG);
+
+    ReplicaLagMonitor monitor = new ReplicaLagMonitor(replica, jdbcTemplate, MAX_LAG, LAG_QUERY);
+    monitor.check();
+
+    assertThat(monitor.isAvailable(), is(true));
+    assertThat(monitor.getLag(), is(MAX_LAG));
+  }
+
+  @Test
+  public void shouldTreatMissingLagAsZero() {
+    given(jdbcTemplate.queryForObject(LAG_QUERY, Number.class)).willReturn(null);
+
+    ReplicaLagMonitor monitor = new ReplicaLagMonitor(replica, jdbcTemplate, MAX_LAG, LAG_QUERY);
+    monitor.check();
+
+    assertThat(monitor.isAvailable(), is(true));
+    assertThat(monitor.getLag(), is(0L));
+  }
+
+  @Test
+  public void shouldBeUnavailableIfReplicaIsTooStale() {
+    given(jdbcTemplate.queryForObject(LAG_QUERY, Number.class))
+        .willReturn(0)
+        .willReturn(MAX_LAG + 1);
+
+    ReplicaLagMonitor monitor = new ReplicaLagMonitor(replica, jdbcTemplate, MAX_LAG, LAG_QUERY);
+    monitor.check();
+    monitor.check();
+
+    assertThat(monitor.isAvailable(), is(false));
+    assertThat(monitor.getLag(), is(MAX_LAG + 1));
+  }
+
+  @Test
+  public void shouldBeUnavailableIfLagCanNotBeChecked() {
+    given(jdbcTemplate.queryForObject(LAG_QUERY, Number.class))
+        .willReturn(0)
+        .willThrow(new DataAccessResourceFailureException("connection refused"));
+
+    ReplicaLagMonitor monitor = new ReplicaLagMonitor(replica, jdbcTemplate, MAX_LAG, LAG_QUERY);
+    monitor.check();
+    monitor.check();
+
+    assertThat(monitor.isAvailable(), is(false));
+  }
+
+  @Test
+  public void shouldBeUnavailableUntilNextCheckAfterConnectionFailure() {
+    given(jdbcTemplate.queryForObject(LAG_QUERY, Number.class)).willReturn(0);
+
+    ReplicaLagMonitor monitor = new ReplicaLagMonitor(replica, jdbcTemplate, MAX_LAG, LAG_QUERY);
+    monitor.check();
+    monitor.markUnavailable(new SQLException("connection refused"));
+
+    assertThat(monitor.isAvailable(), is(false));
+    assertThat(monitor.getFallbackCount(), is(1L));
+
+    monitor.check();
+
+    assertThat(monitor.isAvailable(), is(true));
+  }
+
+  @Test
+  public void shouldNeverBeAvailableWithoutReplica() {
+    ReplicaLagMonitor monitor = new ReplicaLagMonitor(null, MAX_LAG, LAG_QUERY);
+    monitor.check();
+
+    assertThat(monitor.isAvailable(), is(false));
+  }
+
+}
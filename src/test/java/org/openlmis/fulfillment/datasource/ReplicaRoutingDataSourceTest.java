@@ -0,0 +1,130 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.datasource;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verify;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReplicaRoutingDataSourceTest {
+
+  @Mock
+  private DataSource primary;
+
+  @Mock
+  private DataSource replica;
+
+  @Mock
+  private ReplicaLagMonitor monitor;
+
+  @Mock
+  private Connection primaryConnection;
+
+  @Mock
+  private Connection replicaConnection;
+
+  @Mock
+  private ProceedingJoinPoint joinPoint;
+
+  @Before
+  public void setUp() throws SQLException {
+    given(primary.getConnection()).willReturn(primaryConnection);
+    given(replica.getConnection()).willReturn(replicaConnection);
+    given(monitor.getReplica()).willReturn(replica);
+    given(monitor.isAvailable()).willReturn(true);
+  }
+
+  @After
+  public void tearDown() {
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+  }
+
+  @Test
+  public void shouldUsePrimaryOutsideOfReadOnlyTransaction() throws SQLException {
+    ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(primary, monitor, false);
+
+    assertThat(dataSource.getConnection(), is(primaryConnection));
+  }
+
+  @Test
+  public void shouldUsePrimaryInReadOnlyTransactionOutsideOfReadReplicaMethod()
+      throws SQLException {
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(primary, monitor, false);
+
+    assertThat(dataSource.getConnection(), is(primaryConnection));
+  }
+
+  @Test
+  public void shouldUseReplicaInReadOnlyTransactionOfReadReplicaMethod() throws Throwable {
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(primary, monitor, false);
+    given(joinPoint.proceed()).willAnswer(invocation -> dataSource.getConnection());
+
+    assertThat(new ReadReplicaAspect().allowReplica(joinPoint), is(replicaConnection));
+    assertThat(dataSource.getConnection(), is(primaryConnection));
+  }
+
+  @Test
+  public void shouldUsePrimaryInReadWriteTransactionOfReadReplicaMethod() throws Throwable {
+    ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(primary, monitor, false);
+    given(joinPoint.proceed()).willAnswer(invocation -> dataSource.getConnection());
+
+    assertThat(new ReadReplicaAspect().allowReplica(joinPoint), is(primaryConnection));
+  }
+
+  @Test
+  public void shouldAlwaysUseReplicaIfReadOnly() throws SQLException {
+    ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(primary, monitor, true);
+
+    assertThat(dataSource.getConnection(), is(replicaConnection));
+  }
+
+  @Test
+  public void shouldUsePrimaryIfReplicaIsNotAvailable() throws SQLException {
+    given(monitor.isAvailable()).willReturn(false);
+    ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(primary, monitor, true);
+
+    assertThat(dataSource.getConnection(), is(primaryConnection));
+  }
+
+  @Test
+  public void shouldFallBackToPrimaryIfReplicaConnectionFails() throws SQLException {
+    SQLException exception = new SQLException("connection refused");
+    given(replica.getConnection()).willThrow(exception);
+    ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(primary, monitor, true);
+
+    assertThat(dataSource.getConnection(), is(primaryConnection));
+    verify(monitor).markUnavailable(exception);
+  }
+
+}
@@ -0,0 +1,152 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.service;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.ImmutableMap;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.URI;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AccessTokenManagerTest {
+  private static final String FIRST_TOKEN = "first";
+  private static final String SECOND_TOKEN = "second";
+
+  @Mock
+  private RestTemplate restTemplate;
+
+  @Mock
+  private Clock clock;
+
+  private AccessTokenManager tokenManager;
+
+  @Before
+  public void setUp() {
+    tokenManager = new AccessTokenManager();
+    tokenManager.setRestTemplate(restTemplate);
+
+    ReflectionTestUtils.setField(tokenManager, "clientId", "trusted-client");
+    ReflectionTestUtils.setField(tokenManager, "clientSecret", "secret");
+    ReflectionTestUtils.setField(tokenManager, "authorizationUrl", "http://localhost/token");
+    ReflectionTestUtils.setField(tokenManager, "clock", clock);
+
+    when(clock.millis()).thenReturn(0L);
+
+    ResponseEntity<Object> first = mock(ResponseEntity.class);
+    when(first.getBody()).thenReturn(ImmutableMap.of("access_token", FIRST_TOKEN,
+        "expires_in", 100));
+    ResponseEntity<Object> second = mock(ResponseEntity.class);
+    when(second.getBody()).thenReturn(ImmutableMap.of("access_token", SECOND_TOKEN,
+        "expires_in", 100));
+
+    when(restTemplate.exchange(
+        any(URI.class), eq(HttpMethod.POST), any(HttpEntity.class), eq(Object.class)
+    )).thenReturn(first, second);
+  }
+
+  @Test
+  public void shouldReuseTokenUntilItIsAboutToExpire() {
+    assertThat(tokenManager.getToken(), is(FIRST_TOKEN));
+
+    when(clock.millis()).thenReturn(69_999L);
+    assertThat(tokenManager.getToken(), is(FIRST_TOKEN));
+
+    when(clock.millis()).thenReturn(70_000L);
+    assertThat(tokenManager.getToken(), is(SECOND_TOKEN));
+
+    verifyTokenRequests(2);
+  }
+
+  @Test
+  public void shouldRefreshRejectedToken() {
+    String rejected = tokenManager.getToken();
+
+    assertThat(tokenManager.refreshToken(rejected), is(SECOND_TOKEN));
+    assertThat(tokenManager.getToken(), is(SECOND_TOKEN));
+
+    verifyTokenRequests(2);
+  }
+
+  @Test
+  public void shouldNotRefreshTokenAgainIfRejectedTokenWasAlreadyReplaced() {
+    String rejected = tokenManager.getToken();
+
+    tokenManager.refreshToken(rejected);
+    assertThat(tokenManager.refreshToken(rejected), is(SECOND_TOKEN));
+
+    verifyTokenRequests(2);
+  }
+
+  @Test
+  public void shouldRequestOneTokenForConcurrentCallers() throws Exception {
+    int callers = 8;
+    ExecutorService executor = Executors.newFixedThreadPool(callers);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<String>> results = new ArrayList<>();
+
+    for (int i = 0; i < callers; ++i) {
+      results.add(executor.submit((Callable<String>) () -> {
+        start.await();
+        return tokenManager.getToken();
+      }));
+    }
+
+    start.countDown();
+
+    for (Future<String> result : results) {
+      assertThat(result.get(), is(FIRST_TOKEN));
+    }
+
+    executor.shutdown();
+    verifyTokenRequests(1);
+  }
+
+  private void verifyTokenRequests(int count) {
+    verify(restTemplate, times(count)).exchange(
+        any(URI.class), eq(HttpMethod.POST), any(HttpEntity.class), eq(Object.class)
+    );
+  }
+
+}
@@ -79,16 +79,21 @@ public abstract class BaseCommunicationServiceTest {
     BaseCommunicationService service = getService();
     service.setRestTemplate(restTemplate);
 
-    ReflectionTestUtils.setField(service, "clientId", "trusted-client");
-    ReflectionTestUtils.setField(service, "clientSecret", "secret");
-    ReflectionTestUtils.setField(service, "authorizationUrl", AUTHORIZATION_URL);
+    AccessTokenManager tokenManager = new AccessTokenManager();
+    tokenManager.setRestTemplate(restTemplate);
+
+    ReflectionTestUtils.setField(tokenManager, "clientId", "trusted-client");
+    ReflectionTestUtils.setField(tokenManager, "clientSecret", "secret");
+    ReflectionTestUtils.setField(tokenManager, "authorizationUrl", AUTHORIZATION_URL);
+
+    service.setTokenManager(tokenManager);
 
     return service;
   }
 
   private void mockAuth() {
     ResponseEntity<Object> response = mock(ResponseEntity.class);
-    Map<String, String> body = ImmutableMap.of("access_token", TOKEN);
+    Map<String, Object> body = ImmutableMap.of("access_token", TOKEN, "expires_in", 3600);
 
     when(restTemplate.exchange(
         eq(AUTHORIZATION_URI), eq(HttpMethod.POST), any(HttpEntity.class), eq(Object.class)
@@ -0,0 +1,196 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Sets;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.openlmis.fulfillment.domain.Order;
+import org.openlmis.fulfillment.service.referencedata.FacilityDto;
+import org.openlmis.fulfillment.service.referencedata.FacilityReferenceDataService;
+import org.openlmis.fulfillment.service.referencedata.OrderableReferenceDataService;
+import org.openlmis.fulfillment.service.referencedata.PeriodReferenceDataService;
+import org.openlmis.fulfillment.service.referencedata.ProgramReferenceDataService;
+import org.openlmis.fulfillment.service.referencedata.UserReferenceDataService;
+import org.openlmis.fulfillment.web.util.OrderDto;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ExporterBuilderTest {
+
+  @Mock
+  private FacilityReferenceDataService facilities;
+
+  @Mock
+  private ProgramReferenceDataService programs;
+
+  @Mock
+  private UserReferenceDataService users;
+
+  @Mock
+  private PeriodReferenceDataService periods;
+
+  @Mock
+  private OrderableReferenceDataService products;
+
+  @InjectMocks
+  private ExporterBuilder exporter = new ExporterBuilder();
+
+  private FacilityDto facility = new FacilityDto();
+  private FacilityDto supplyingFacility = new FacilityDto();
+
+  @Before
+  public void setUp() {
+    facility.setId(UUID.randomUUID());
+    supplyingFacility.setId(UUID.randomUUID());
+
+    when(facilities.findByIds(anyCollectionOf(UUID.class))).thenReturn(ImmutableMap.of(
+        facility.getId(), facility, supplyingFacility.getId(), supplyingFacility
+    ));
+    when(programs.findByIds(anyCollectionOf(UUID.class))).thenReturn(Collections.emptyMap());
+    when(users.findByIds(anyCollectionOf(UUID.class))).thenReturn(Collections.emptyMap());
+    when(periods.findByIds(anyCollectionOf(UUID.class))).thenReturn(Collections.emptyMap());
+    when(products.findByIds(anyCollectionOf(UUID.class))).thenReturn(Collections.emptyMap());
+  }
+
+  @Test
+  public void shouldExportAllOrdersWithReferenceDataRetrievedInBulk() {
+    List<Order> orders = Arrays.asList(createOrder(), createOrder());
+
+    List<OrderDto> exported = exporter.exportAll(orders, OrderDto::newInstance);
+
+    assertEquals(2, exported.size());
+
+    for (OrderDto dto : exported) {
+      assertSame(facility, dto.getFacility());
+      assertSame(facility, dto.getRequestingFacility());
+      assertSame(facility, dto.getReceivingFacility());
+      assertSame(supplyingFacility, dto.getSupplyingFacility());
+    }
+
+    verify(facilities, times(1))
+        .findByIds(Sets.newHashSet(facility.getId(), supplyingFacility.getId()));
+    verify(facilities, never()).findOne(any(UUID.class));
+  }
+
+  @Test
+  public void shouldFallBackToFindOneIfObjectWasNotPrefetched() {
+    Order order = createOrder();
+    order.setProgramId(UUID.randomUUID());
+
+    exporter.exportAll(Collections.singletonList(order), OrderDto::newInstance);
+
+    verify(programs).findOne(order.getProgramId());
+  }
+
+  @Test
+  public void shouldRetrieveEachDistinctObjectOnceWhenExportingOrder() {
+    enableConcurrentExport(1000);
+    when(facilities.findOne(facility.getId())).thenReturn(facility);
+    when(facilities.findOne(supplyingFacility.getId())).thenReturn(supplyingFacility);
+
+    OrderDto dto = new OrderDto();
+    exporter.export(createOrder(), dto);
+
+    assertSame(facility, dto.getFacility());
+    assertSame(facility, dto.getRequestingFacility());
+    assertSame(facility, dto.getReceivingFacility());
+    assertSame(supplyingFacility, dto.getSupplyingFacility());
+
+    verify(facilities, times(1)).findOne(facility.getId());
+    verify(facilities, times(1)).findOne(supplyingFacility.getId());
+  }
+
+  @Test
+  public void shouldTakeObjectsRetrievedInRequestOnCallingThread() {
+    enableConcurrentExport(1000);
+    when(facilities.getRemembered(anyCollectionOf(UUID.class)))
+        .thenReturn(ImmutableMap.of(facility.getId(), facility));
+    when(facilities.findOne(supplyingFacility.getId())).thenReturn(supplyingFacility);
+
+    OrderDto dto = new OrderDto();
+    exporter.export(createOrder(), dto);
+
+    assertSame(facility, dto.getFacility());
+    assertSame(supplyingFacility, dto.getSupplyingFacility());
+
+    verify(facilities, never()).findOne(facility.getId());
+    verify(facilities).findOne(supplyingFacility.getId());
+  }
+
+  @Test
+  public void shouldExportStubIfObjectWasNotRetrievedInTime() {
+    enableConcurrentExport(50);
+    FacilityDto stub = new FacilityDto();
+    stub.setId(supplyingFacility.getId());
+
+    when(facilities.findOne(facility.getId())).thenReturn(facility);
+    when(facilities.findOne(supplyingFacility.getId())).thenAnswer(invocation -> {
+      Thread.sleep(5000);
+      return supplyingFacility;
+    });
+    when(facilities.createStub(supplyingFacility.getId())).thenReturn(stub);
+
+    OrderDto dto = new OrderDto();
+    exporter.export(createOrder(), dto);
+
+    assertSame(facility, dto.getFacility());
+    assertSame(stub, dto.getSupplyingFacility());
+  }
+
+  private void enableConcurrentExport(long timeout) {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(4);
+    executor.initialize();
+
+    ReflectionTestUtils.setField(exporter, "executor", executor);
+    ReflectionTestUtils.setField(exporter, "timeout", timeout);
+  }
+
+  private Order createOrder() {
+    Order order = new Order();
+    order.setId(UUID.randomUUID());
+    order.setFacilityId(facility.getId());
+    order.setRequestingFacilityId(facility.getId());
+    order.setReceivingFacilityId(facility.getId());
+    order.setSupplyingFacilityId(supplyingFacility.getId());
+    order.setOrderLineItems(Collections.emptyList());
+
+    return order;
+  }
+
+}
@@ -0,0 +1,73 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.openlmis.fulfillment.domain.Order;
+import org.openlmis.fulfillment.web.ValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+public class OrderCursorTest {
+
+  @Test
+  public void shouldDecodeEncodedCursor() {
+    Order order = new Order();
+    order.setId(UUID.randomUUID());
+    order.setCreatedDate(
+        ZonedDateTime.of(2017, 2, 15, 9, 30, 12, 417000000, ZoneOffset.ofHours(2))
+    );
+
+    OrderCursor cursor = OrderCursor.of(order);
+    String token = cursor.encode();
+
+    assertTrue(token.matches("[A-Za-z0-9_-]+"));
+    assertEquals(cursor, OrderCursor.decode(token));
+  }
+
+  @Test
+  public void shouldReturnNullForBlankToken() {
+    assertNull(OrderCursor.decode(null));
+    assertNull(OrderCursor.decode(" "));
+  }
+
+  @Test(expected = ValidationException.class)
+  public void shouldRejectTokenThatIsNotBase64() {
+    OrderCursor.decode("not a cursor!");
+  }
+
+  @Test(expected = ValidationException.class)
+  public void shouldRejectTokenWithoutSeparator() {
+    OrderCursor.decode(encode("2017-02-15T09:30:12Z"));
+  }
+
+  @Test(expected = ValidationException.class)
+  public void shouldRejectTokenWithInvalidDate() {
+    OrderCursor.decode(encode("yesterday|" + UUID.randomUUID()));
+  }
+
+  private String encode(String value) {
+    return Base64.getUrlEncoder().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+  }
+}
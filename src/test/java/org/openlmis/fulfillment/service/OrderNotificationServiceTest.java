@@ -0,0 +1,96 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.service;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.openlmis.fulfillment.util.ConfigurationSettingKeys.FULFILLMENT_EMAIL_NOREPLY;
+import static org.openlmis.fulfillment.util.ConfigurationSettingKeys.FULFILLMENT_EMAIL_ORDER_CREATION_BODY;
+import static org.openlmis.fulfillment.util.ConfigurationSettingKeys.FULFILLMENT_EMAIL_ORDER_CREATION_SUBJECT;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.openlmis.fulfillment.domain.Order;
+import org.openlmis.fulfillment.domain.OrderStatus;
+import org.openlmis.fulfillment.service.notification.NotificationService;
+import org.openlmis.fulfillment.service.referencedata.UserDto;
+import org.openlmis.fulfillment.service.referencedata.UserReferenceDataService;
+import org.openlmis.util.NotificationRequest;
+
+import java.util.UUID;
+
+@RunWith(MockitoJUnitRunner.class)
+public class OrderNotificationServiceTest {
+
+  @Mock
+  private UserReferenceDataService userReferenceDataService;
+
+  @Mock
+  private NotificationService notificationService;
+
+  @Mock
+  private ConfigurationSettingService configurationSettingService;
+
+  @InjectMocks
+  private OrderNotificationService orderNotificationService;
+
+  @Captor
+  private ArgumentCaptor<NotificationRequest> notificationCaptor;
+
+  @Test
+  public void shouldSendNotificationToUserThatConvertedOrder() {
+    // given
+    Order order = new Order();
+    order.setId(UUID.randomUUID());
+    order.setCreatedById(UUID.randomUUID());
+    order.setStatus(OrderStatus.IN_ROUTE);
+
+    UserDto userDto = new UserDto();
+    userDto.setEmail("user@openlmis.org");
+    when(userReferenceDataService.findOne(order.getCreatedById())).thenReturn(userDto);
+
+    when(configurationSettingService.getStringValue(FULFILLMENT_EMAIL_NOREPLY))
+        .thenReturn("noreply@openlmis.org");
+    when(configurationSettingService.getStringValue(FULFILLMENT_EMAIL_ORDER_CREATION_SUBJECT))
+        .thenReturn("New order");
+    when(configurationSettingService.getStringValue(FULFILLMENT_EMAIL_ORDER_CREATION_BODY))
+        .thenReturn("Create an order: {id} with status: {status}");
+
+    // when
+    orderNotificationService.sendOrderCreated(order);
+
+    // then
+    verify(notificationService).send(notificationCaptor.capture());
+
+    NotificationRequest notification = notificationCaptor.getValue();
+    assertThat(notification, is(notNullValue()));
+
+    assertThat(notification.getFrom(), is("noreply@openlmis.org"));
+    assertThat(notification.getTo(), is("user@openlmis.org"));
+    assertThat(notification.getSubject(), is("New order"));
+    assertThat(notification.getContent(),
+        is("Create an order: " + order.getId() + " with status: IN_ROUTE"));
+  }
+
+}
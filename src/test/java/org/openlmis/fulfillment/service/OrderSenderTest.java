@@ -21,6 +21,7 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 import org.apache.camel.Exchange;
@@ -33,8 +34,9 @@ import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.openlmis.fulfillment.domain.FtpProtocol;
 import org.openlmis.fulfillment.domain.FtpTransferProperties;
+import org.openlmis.fulfillment.domain.LocalTransferProperties;
 import org.openlmis.fulfillment.domain.Order;
-import org.openlmis.fulfillment.repository.TransferPropertiesRepository;
+import org.openlmis.fulfillment.domain.OrderFileTemplate;
 
 import java.io.File;
 import java.nio.file.Path;
@@ -49,9 +51,6 @@ public class OrderSenderTest {
   @Mock
   private OrderStorage orderStorage;
 
-  @Mock
-  private TransferPropertiesRepository transferPropertiesRepository;
-
   @InjectMocks
   private OrderFtpSender orderFtpSender;
 
@@ -64,6 +63,8 @@ public class OrderSenderTest {
   @Mock
   private File file;
 
+  private OrderTransferContext context;
+
   @Before
   public void setUp() throws Exception {
     FtpTransferProperties setting = new FtpTransferProperties();
@@ -78,15 +79,24 @@ public class OrderSenderTest {
     setting.setPassword("password");
     setting.setPassiveMode(true);
 
-    when(orderStorage.getOrderAsPath(order)).thenReturn(path);
-    when(transferPropertiesRepository.findFirstByFacilityId(any())).thenReturn(setting);
+    context = new OrderTransferContext(setting, new OrderFileTemplate());
+
+    when(orderStorage.getOrderAsPath(order, context)).thenReturn(path);
 
     when(path.toFile()).thenReturn(file);
   }
 
   @Test
   public void shouldReturnTrueIfMessageHasBeenSentSuccessfully() throws Exception {
-    assertThat(orderFtpSender.send(order), is(true));
+    assertThat(orderFtpSender.send(order, context), is(true));
+  }
+
+  @Test
+  public void shouldReturnFalseIfThereAreNoFtpTransferProperties() throws Exception {
+    context = new OrderTransferContext(new LocalTransferProperties(), new OrderFileTemplate());
+
+    assertThat(orderFtpSender.send(order, context), is(false));
+    verifyZeroInteractions(producerTemplate);
   }
 
   @Test
@@ -94,6 +104,7 @@ public class OrderSenderTest {
     doThrow(new RuntimeException("test purpose"))
     .when(producerTemplate).sendBodyAndHeader(anyString(), any(), eq(Exchange.FILE_NAME), any());
 
-    assertThat(orderFtpSender.send(order), is(false));
+    assertThat(orderFtpSender.send(order, context), is(false));
   }
+
 }
@@ -24,12 +24,8 @@ import static org.mockito.Matchers.anyObject;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
-import static org.openlmis.fulfillment.util.ConfigurationSettingKeys.FULFILLMENT_EMAIL_NOREPLY;
-import static org.openlmis.fulfillment.util.ConfigurationSettingKeys.FULFILLMENT_EMAIL_ORDER_CREATION_BODY;
-import static org.openlmis.fulfillment.util.ConfigurationSettingKeys.FULFILLMENT_EMAIL_ORDER_CREATION_SUBJECT;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
@@ -45,25 +41,24 @@ import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.openlmis.fulfillment.domain.FtpTransferProperties;
 import org.openlmis.fulfillment.domain.Order;
+import org.openlmis.fulfillment.domain.OrderFileTemplate;
 import org.openlmis.fulfillment.domain.OrderLineItem;
 import org.openlmis.fulfillment.domain.OrderNumberConfiguration;
 import org.openlmis.fulfillment.domain.OrderStatus;
+import org.openlmis.fulfillment.domain.OrderTransfer;
 import org.openlmis.fulfillment.domain.ProofOfDelivery;
 import org.openlmis.fulfillment.repository.OrderNumberConfigurationRepository;
 import org.openlmis.fulfillment.repository.OrderRepository;
+import org.openlmis.fulfillment.repository.OrderTransferRepository;
 import org.openlmis.fulfillment.repository.ProofOfDeliveryRepository;
-import org.openlmis.fulfillment.repository.TransferPropertiesRepository;
-import org.openlmis.fulfillment.service.notification.NotificationService;
 import org.openlmis.fulfillment.service.referencedata.FacilityDto;
 import org.openlmis.fulfillment.service.referencedata.FacilityReferenceDataService;
 import org.openlmis.fulfillment.service.referencedata.OrderableDto;
 import org.openlmis.fulfillment.service.referencedata.OrderableReferenceDataService;
 import org.openlmis.fulfillment.service.referencedata.ProgramDto;
 import org.openlmis.fulfillment.service.referencedata.ProgramReferenceDataService;
-import org.openlmis.fulfillment.service.referencedata.UserDto;
-import org.openlmis.fulfillment.service.referencedata.UserReferenceDataService;
 import org.openlmis.fulfillment.web.ValidationException;
-import org.openlmis.util.NotificationRequest;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 
 import java.io.IOException;
@@ -80,6 +75,7 @@ import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Random;
+import java.util.Set;
 import java.util.UUID;
 
 @SuppressWarnings({"PMD.TooManyMethods"})
@@ -102,22 +98,10 @@ public class OrderServiceTest {
   private OrderableReferenceDataService orderableReferenceDataService;
 
   @Mock
-  private UserReferenceDataService userReferenceDataService;
+  private OrderTransferContextFactory orderTransferContextFactory;
 
   @Mock
-  private TransferPropertiesRepository transferPropertiesRepository;
-
-  @Mock
-  private NotificationService notificationService;
-
-  @Mock
-  private ConfigurationSettingService configurationSettingService;
-
-  @Mock
-  private OrderStorage orderStorage;
-
-  @Mock
-  private OrderSender orderSender;
+  private OrderTransferRepository orderTransferRepository;
 
   @Mock
   private ProofOfDeliveryRepository proofOfDeliveryRepository;
@@ -129,7 +113,7 @@ public class OrderServiceTest {
   private ProgramDto program;
 
   @Captor
-  private ArgumentCaptor<NotificationRequest> notificationCaptor;
+  private ArgumentCaptor<OrderTransfer> transferCaptor;
 
   @Before
   public void setUp() {
@@ -137,7 +121,7 @@ public class OrderServiceTest {
   }
 
   @Test
-  public void shouldSaveOrder() throws Exception {
+  public void shouldSaveOrderAndQueueTransfer() throws Exception {
     // given
     OrderNumberConfiguration orderNumberConfiguration =
         new OrderNumberConfiguration("prefix", true, true, true);
@@ -161,67 +145,38 @@ public class OrderServiceTest {
 
     // when
     when(orderRepository.save(any(Order.class))).thenReturn(order);
-    when(orderSender.send(order)).thenReturn(true);
     Order created = orderService.save(order);
 
     // then
     validateCreatedOrder(created, order);
     assertEquals(OrderStatus.IN_ROUTE, created.getStatus());
 
-    InOrder inOrder = inOrder(orderRepository, orderStorage, orderSender);
+    InOrder inOrder = inOrder(orderRepository, orderTransferRepository);
     inOrder.verify(orderRepository).save(order);
-    inOrder.verify(orderStorage).store(order);
-    inOrder.verify(orderSender).send(order);
-    inOrder.verify(orderStorage).delete(order);
-
-    verify(notificationService).send(notificationCaptor.capture());
+    inOrder.verify(orderTransferRepository).save(transferCaptor.capture());
 
-    NotificationRequest notification = notificationCaptor.getValue();
-    assertThat(notification, is(notNullValue()));
-
-    assertThat(notification.getFrom(), is("noreply@openlmis.org"));
-    assertThat(notification.getTo(), is("user@openlmis.org"));
-    assertThat(notification.getSubject(), is("New order"));
-    assertThat(notification.getContent(),
-        is("Create an order: " + order.getId() + " with status: IN_ROUTE"));
+    OrderTransfer transfer = transferCaptor.getValue();
+    assertThat(transfer.getOrderId(), is(order.getId()));
+    assertThat(transfer.getAttempts(), is(0));
+    assertThat(transfer.getNextAttemptAt(), is(notNullValue()));
   }
 
   @Test
-  public void shouldSaveOrderAndNotDeleteFileIfFtpSendFailure() throws Exception {
+  public void shouldSaveOrderWithTransferFailedStatusIfThereAreNoTransferProperties() {
     // given
-    OrderNumberConfiguration orderNumberConfiguration =
-        new OrderNumberConfiguration("prefix", true, true, true);
-    when(orderNumberConfigurationRepository.findAll())
-        .thenReturn(Collections.singletonList(orderNumberConfiguration));
+    when(orderTransferContextFactory.create(any(Order.class)))
+        .thenReturn(new OrderTransferContext(null, null));
 
-    Order order = new Order();
-    order.setExternalId(UUID.randomUUID());
-    order.setEmergency(true);
-    order.setProgramId(program.getId());
-    order.setStatus(OrderStatus.ORDERED);
-    order.setQuotedCost(BigDecimal.ZERO);
+    Order order = generateOrder();
     order.setSupplyingFacilityId(UUID.randomUUID());
 
-    OrderLineItem orderLineItem = new OrderLineItem();
-    orderLineItem.setOrderedQuantity(1000L);
-
-    order.setOrderLineItems(Lists.newArrayList(orderLineItem));
-    order.setCreatedById(UUID.randomUUID());
-
     // when
     when(orderRepository.save(any(Order.class))).thenReturn(order);
-    when(orderSender.send(order)).thenReturn(false);
     Order created = orderService.save(order);
 
     // then
-    validateCreatedOrder(created, order);
     assertEquals(OrderStatus.TRANSFER_FAILED, created.getStatus());
-
-    InOrder inOrder = inOrder(orderRepository, orderStorage, orderSender);
-    inOrder.verify(orderRepository).save(order);
-    inOrder.verify(orderStorage).store(order);
-    inOrder.verify(orderSender).send(order);
-    inOrder.verify(orderStorage, never()).delete(order);
+    verify(orderTransferRepository).save(any(OrderTransfer.class));
   }
 
   @Test
@@ -232,8 +187,9 @@ public class OrderServiceTest {
 
     when(orderRepository.searchOrders(
         order.getSupplyingFacilityId(), order.getRequestingFacilityId(), order.getProgramId(),
-        order.getProcessingPeriodId(), EnumSet.of(order.getStatus()))
-    ).thenReturn(Collections.singletonList(order));
+        order.getProcessingPeriodId(), EnumSet.of(order.getStatus()),
+        Collections.singleton(order.getSupplyingFacilityId()), pageable)
+    ).thenReturn(new PageImpl<>(Collections.singletonList(order)));
 
     // when
     OrderSearchParams params = new OrderSearchParams(
@@ -241,7 +197,9 @@ public class OrderServiceTest {
         order.getProcessingPeriodId(), Sets.newHashSet(order.getStatus().toString()),
         pageable
     );
-    List<Order> receivedOrders = orderService.searchOrders(params);
+    List<Order> receivedOrders = orderService.searchOrders(
+        params, Collections.singleton(order.getSupplyingFacilityId())
+    ).getContent();
 
     // then
     assertEquals(1, receivedOrders.size());
@@ -250,7 +208,31 @@ public class OrderServiceTest {
     assertEquals(receivedOrders.get(0).getProgramId(), order.getProgramId());
 
     verify(orderRepository, atLeastOnce())
-        .searchOrders(anyObject(), anyObject(), anyObject(), anyObject(), anyObject());
+        .searchOrders(anyObject(), anyObject(), anyObject(), anyObject(), anyObject(),
+            anyObject(), anyObject());
+  }
+
+  @Test
+  public void shouldFindOrdersAfterCursor() {
+    // given
+    Order order = generateOrder();
+    OrderCursor after = new OrderCursor(ZonedDateTime.now(), UUID.randomUUID());
+    Set<UUID> warehouses = Collections.singleton(order.getSupplyingFacilityId());
+
+    when(orderRepository.searchOrders(
+        order.getSupplyingFacilityId(), null, null, null, EnumSet.of(order.getStatus()),
+        warehouses, after, 10)
+    ).thenReturn(Collections.singletonList(order));
+
+    // when
+    OrderSearchParams params = new OrderSearchParams(
+        order.getSupplyingFacilityId(), null, null, null,
+        Sets.newHashSet(order.getStatus().toString()), null
+    );
+    List<Order> receivedOrders = orderService.searchOrders(params, warehouses, after, 10);
+
+    // then
+    assertEquals(Collections.singletonList(order), receivedOrders);
   }
 
   @Test
@@ -369,18 +351,7 @@ public class OrderServiceTest {
     facilityDto.setCode("FacilityCode");
     when(facilityReferenceDataService.findOne(any())).thenReturn(facilityDto);
 
-    UserDto userDto = new UserDto();
-    userDto.setEmail("user@openlmis.org");
-    when(userReferenceDataService.findOne(any())).thenReturn(userDto);
-
     FtpTransferProperties properties = new FtpTransferProperties();
-    when(transferPropertiesRepository.findFirstByFacilityId(any())).thenReturn(properties);
-
-    when(configurationSettingService.getStringValue(FULFILLMENT_EMAIL_NOREPLY))
-        .thenReturn("noreply@openlmis.org");
-    when(configurationSettingService.getStringValue(FULFILLMENT_EMAIL_ORDER_CREATION_SUBJECT))
-        .thenReturn("New order");
-    when(configurationSettingService.getStringValue(FULFILLMENT_EMAIL_ORDER_CREATION_BODY))
-        .thenReturn("Create an order: {id} with status: {status}");
-  }
+    when(orderTransferContextFactory.create(any(Order.class)))
+        .thenReturn(new OrderTransferContext(properties, new OrderFileTemplate()));  }
 }
@@ -36,7 +36,6 @@ import org.mockito.Mock;
 import org.openlmis.fulfillment.domain.FtpTransferProperties;
 import org.openlmis.fulfillment.domain.Order;
 import org.openlmis.fulfillment.domain.OrderFileTemplate;
-import org.openlmis.fulfillment.repository.TransferPropertiesRepository;
 import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
@@ -61,12 +60,6 @@ public class OrderStorageTest {
   @Mock
   private OrderCsvHelper csvHelper;
 
-  @Mock
-  private OrderFileTemplateService orderFileTemplateService;
-
-  @Mock
-  private TransferPropertiesRepository transferPropertiesRepository;
-
   @InjectMocks
   private OrderFileStorage orderFileStorage;
 
@@ -84,13 +77,14 @@ public class OrderStorageTest {
 
   private IOException exception = new IOException("test purpose");
 
+  private OrderTransferContext context;
+
   @Before
   public void setUp() throws Exception {
     PowerMockito.mockStatic(Files.class);
 
     when(Files.newBufferedWriter(any(Path.class))).thenReturn(writer);
-    when(orderFileTemplateService.getOrderFileTemplate()).thenReturn(template);
-    when(transferPropertiesRepository.findFirstByFacilityId(any())).thenReturn(properties);
+    context = new OrderTransferContext(properties, template);
 
     when(order.getOrderCode()).thenReturn(ORDER_CODE);
     when(template.getFilePrefix()).thenReturn(FILE_PREFIX);
@@ -99,9 +93,8 @@ public class OrderStorageTest {
 
   @Test
   public void shouldStoreAnOrder() throws Exception {
-    orderFileStorage.store(order);
+    orderFileStorage.store(order, context);
 
-    verify(orderFileTemplateService).getOrderFileTemplate();
     verify(csvHelper).writeCsvFile(order, template, writer);
 
     ArgumentCaptor<Path> captor = ArgumentCaptor.forClass(Path.class);
@@ -121,23 +114,19 @@ public class OrderStorageTest {
     expected.expectMessage(ERROR_IO);
     expected.expectCause(is(exception));
 
-    orderFileStorage.store(order);
+    orderFileStorage.store(order, context);
   }
 
   @Test
   public void shouldHandleSituationWhenPropertiesDoesNotExist() throws OrderStorageException {
-    when(transferPropertiesRepository.findFirstByFacilityId(order.getFacilityId()))
-        .thenReturn(null);
-
-    orderFileStorage.store(order);
+    orderFileStorage.store(order, new OrderTransferContext(null, null));
 
-    verify(transferPropertiesRepository).findFirstByFacilityId(order.getFacilityId());
-    verifyZeroInteractions(orderFileTemplateService, csvHelper);
+    verifyZeroInteractions(csvHelper);
   }
 
   @Test
   public void shouldDeleteAnOrder() throws Exception {
-    orderFileStorage.delete(order);
+    orderFileStorage.delete(order, context);
 
     ArgumentCaptor<Path> captor = ArgumentCaptor.forClass(Path.class);
 
@@ -156,12 +145,12 @@ public class OrderStorageTest {
     expected.expectMessage(ERROR_IO);
     expected.expectCause(is(exception));
 
-    orderFileStorage.delete(order);
+    orderFileStorage.delete(order, context);
   }
 
   @Test
   public void shouldReturnOrderAsPath() throws Exception {
-    Path path = orderFileStorage.getOrderAsPath(order);
+    Path path = orderFileStorage.getOrderAsPath(order, context);
     assertThat(path.toString(), is(FULL_PATH));
   }
 
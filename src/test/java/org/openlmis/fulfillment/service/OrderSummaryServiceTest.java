@@ -0,0 +1,85 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.service;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasProperty;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.openlmis.fulfillment.i18n.MessageKeys.ERROR_ORDER_INVALID_GROUP_BY;
+
+import com.google.common.collect.Sets;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.openlmis.fulfillment.domain.OrderAggregate.Dimension;
+import org.openlmis.fulfillment.repository.OrderRepository;
+import org.openlmis.fulfillment.web.ValidationException;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.UUID;
+
+@RunWith(MockitoJUnitRunner.class)
+public class OrderSummaryServiceTest {
+
+  @Rule
+  public ExpectedException exception = ExpectedException.none();
+
+  @Mock
+  private OrderRepository orderRepository;
+
+  @InjectMocks
+  private OrderSummaryService orderSummaryService;
+
+  private OrderSearchParams params = new OrderSearchParams();
+
+  private Set<UUID> warehouses = Collections.singleton(UUID.randomUUID());
+
+  @Test
+  public void shouldAggregateOrdersByAllDimensionsIfNoneAreGiven() {
+    orderSummaryService.aggregateOrders(params, warehouses, null);
+
+    verify(orderRepository).aggregateOrders(any(), any(), any(), any(), any(),
+        eq(warehouses), eq(EnumSet.allOf(Dimension.class)));
+  }
+
+  @Test
+  public void shouldAggregateOrdersByGivenDimensions() {
+    orderSummaryService.aggregateOrders(params, warehouses,
+        Sets.newHashSet("status", "PROCESSING_PERIOD", "supplyingFacility"));
+
+    verify(orderRepository).aggregateOrders(any(), any(), any(), any(), any(), eq(warehouses),
+        eq(EnumSet.of(Dimension.STATUS, Dimension.PROCESSING_PERIOD,
+            Dimension.SUPPLYING_FACILITY)));
+  }
+
+  @Test
+  public void shouldThrowExceptionIfDimensionIsIncorrect() {
+    exception.expect(ValidationException.class);
+    exception.expect(hasProperty("messageKey", equalTo(ERROR_ORDER_INVALID_GROUP_BY)));
+
+    orderSummaryService.aggregateOrders(params, warehouses, Sets.newHashSet("orderCode"));
+  }
+
+}
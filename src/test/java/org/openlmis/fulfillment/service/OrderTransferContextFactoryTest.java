@@ -0,0 +1,89 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.service;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.openlmis.fulfillment.domain.FtpTransferProperties;
+import org.openlmis.fulfillment.domain.Order;
+import org.openlmis.fulfillment.domain.OrderFileTemplate;
+import org.openlmis.fulfillment.repository.TransferPropertiesRepository;
+
+import java.util.UUID;
+
+@RunWith(MockitoJUnitRunner.class)
+public class OrderTransferContextFactoryTest {
+
+  @Mock
+  private TransferPropertiesRepository transferPropertiesRepository;
+
+  @Mock
+  private OrderFileTemplateService orderFileTemplateService;
+
+  @InjectMocks
+  private OrderTransferContextFactory factory;
+
+  @Test
+  public void shouldResolveTransferPropertiesAndTemplate() {
+    Order order = new Order();
+    order.setSupplyingFacilityId(UUID.randomUUID());
+
+    FtpTransferProperties properties = new FtpTransferProperties();
+    OrderFileTemplate template = new OrderFileTemplate();
+
+    when(transferPropertiesRepository.findFirstByFacilityId(order.getSupplyingFacilityId()))
+        .thenReturn(properties);
+    when(orderFileTemplateService.getOrderFileTemplate()).thenReturn(template);
+
+    OrderTransferContext context = factory.create(order);
+
+    assertThat(context.getTransferProperties(), is(properties));
+    assertThat(context.getTemplate(), is(template));
+    assertThat(context.isFtp(), is(true));
+    verify(transferPropertiesRepository).findFirstByFacilityId(order.getSupplyingFacilityId());
+  }
+
+  @Test
+  public void shouldNotResolveTemplateIfThereAreNoTransferProperties() {
+    Order order = new Order();
+    order.setSupplyingFacilityId(UUID.randomUUID());
+
+    OrderTransferContext context = factory.create(order);
+
+    assertThat(context.hasTransferProperties(), is(false));
+    assertThat(context.getTemplate(), is(nullValue()));
+    verifyZeroInteractions(orderFileTemplateService);
+  }
+
+  @Test
+  public void shouldNotLookUpTransferPropertiesWithoutSupplyingFacility() {
+    OrderTransferContext context = factory.create(new Order());
+
+    assertThat(context.hasTransferProperties(), is(false));
+    verifyZeroInteractions(transferPropertiesRepository, orderFileTemplateService);
+  }
+
+}
@@ -0,0 +1,288 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.service;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.openlmis.fulfillment.domain.OrderStatus.IN_ROUTE;
+import static org.openlmis.fulfillment.domain.OrderStatus.TRANSFER_FAILED;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.openlmis.fulfillment.domain.FtpTransferProperties;
+import org.openlmis.fulfillment.domain.LocalTransferProperties;
+import org.openlmis.fulfillment.domain.Order;
+import org.openlmis.fulfillment.domain.OrderFileTemplate;
+import org.openlmis.fulfillment.domain.OrderTransfer;
+import org.openlmis.fulfillment.domain.OrderTransferRetry;
+import org.openlmis.fulfillment.repository.OrderRepository;
+import org.openlmis.fulfillment.repository.OrderTransferRepository;
+import org.openlmis.fulfillment.repository.OrderTransferRetryRepository;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.ZonedDateTime;
+import java.util.UUID;
+
+@RunWith(MockitoJUnitRunner.class)
+public class OrderTransferProcessorTest {
+
+  @Mock
+  private OrderRepository orderRepository;
+
+  @Mock
+  private OrderTransferRepository orderTransferRepository;
+
+  @Mock
+  private OrderTransferContextFactory orderTransferContextFactory;
+
+  @Mock
+  private OrderStorage orderStorage;
+
+  @Mock
+  private OrderSender orderSender;
+
+  @Mock
+  private OrderNotificationService orderNotificationService;
+
+  @Mock
+  private OrderTransferRetryRepository orderTransferRetryRepository;
+
+  @Mock
+  private TransferHostLimiter transferHostLimiter;
+
+  @InjectMocks
+  private OrderTransferProcessor processor;
+
+  private static final String HOST = "ftp.example.org";
+
+  private Order order;
+  private OrderTransfer transfer;
+  private OrderTransferContext context;
+
+  @Before
+  public void setUp() {
+    ReflectionTestUtils.setField(processor, "maxAttempts", 3);
+    ReflectionTestUtils.setField(processor, "retryDelay", 1000L);
+    ReflectionTestUtils.setField(processor, "hostBusyDelay", 1000L);
+
+    order = new Order();
+    order.setId(UUID.randomUUID());
+    order.setStatus(IN_ROUTE);
+
+    transfer = new OrderTransfer(order.getId());
+    transfer.setId(UUID.randomUUID());
+    transfer.setClaimedUntil(ZonedDateTime.now().plusMinutes(10));
+
+    FtpTransferProperties properties = new FtpTransferProperties();
+    properties.setServerHost(HOST);
+
+    context = new OrderTransferContext(properties, new OrderFileTemplate());
+
+    when(orderRepository.findOne(order.getId())).thenReturn(order);
+    when(orderRepository.save(order)).thenReturn(order);
+    when(orderTransferContextFactory.create(order)).thenReturn(context);
+    when(transferHostLimiter.tryAcquire(HOST)).thenReturn(true);
+  }
+
+  @Test
+  public void shouldStoreSendAndDeleteOrderFile() {
+    when(orderSender.send(order, context)).thenReturn(true);
+
+    processor.process(transfer);
+
+    InOrder inOrder = inOrder(orderStorage, orderSender, orderTransferRepository,
+        orderNotificationService);
+    inOrder.verify(orderStorage).store(order, context);
+    inOrder.verify(orderSender).send(order, context);
+    inOrder.verify(orderStorage).delete(order, context);
+    inOrder.verify(orderTransferRepository).delete(transfer.getId());
+    inOrder.verify(orderNotificationService).sendOrderCreated(order);
+
+    verify(orderRepository, never()).save(any(Order.class));
+    assertThat(order.getStatus(), is(IN_ROUTE));
+  }
+
+  @Test
+  public void shouldOnlyStoreOrderFileIfThereAreNoFtpTransferProperties() {
+    context = new OrderTransferContext(new LocalTransferProperties(), new OrderFileTemplate());
+    when(orderTransferContextFactory.create(order)).thenReturn(context);
+
+    processor.process(transfer);
+
+    verify(orderStorage).store(order, context);
+    verify(orderSender, never()).send(any(Order.class), any(OrderTransferContext.class));
+    verify(orderStorage, never()).delete(any(Order.class), any(OrderTransferContext.class));
+    verify(orderTransferRepository).delete(transfer.getId());
+  }
+
+  @Test
+  public void shouldRetryWithBackoffIfFtpSendFailed() {
+    when(orderSender.send(order, context)).thenReturn(false);
+    transfer.setAttempts(1);
+
+    processor.process(transfer);
+
+    verify(orderStorage, never()).delete(any(Order.class), any(OrderTransferContext.class));
+    verify(orderTransferRepository).save(transfer);
+    verify(orderTransferRepository, never()).delete(any(UUID.class));
+    verify(orderNotificationService, never()).sendOrderCreated(any(Order.class));
+
+    assertThat(transfer.getAttempts(), is(2));
+    assertThat(transfer.getLastError(), is(OrderTransferProcessor.SEND_FAILED));
+    assertThat(transfer.getClaimedUntil(), is(nullValue()));
+    // second retry waits twice as long as the first one
+    assertTrue(transfer.getNextAttemptAt().isAfter(ZonedDateTime.now().plusSeconds(1)));
+    assertThat(order.getStatus(), is(IN_ROUTE));
+  }
+
+  @Test
+  public void shouldRetryIfOrderFileCouldNotBeStored() {
+    doThrow(new IllegalStateException("disk full")).when(orderStorage).store(order, context);
+
+    processor.process(transfer);
+
+    verify(orderSender, never()).send(any(Order.class), any(OrderTransferContext.class));
+    verify(orderTransferRepository).save(transfer);
+
+    assertThat(transfer.getAttempts(), is(1));
+    assertThat(transfer.getLastError(), is("java.lang.IllegalStateException: disk full"));
+  }
+
+  @Test
+  public void shouldSetTransferFailedStatusAfterLastAttempt() {
+    when(orderSender.send(order, context)).thenReturn(false);
+    transfer.setAttempts(2);
+
+    processor.process(transfer);
+
+    verify(orderTransferRepository, never()).save(any(OrderTransfer.class));
+
+    InOrder inOrder = inOrder(orderRepository, orderTransferRepository,
+        orderNotificationService);
+    inOrder.verify(orderRepository).save(order);
+    inOrder.verify(orderTransferRepository).delete(transfer.getId());
+    inOrder.verify(orderNotificationService).sendOrderCreated(order);
+
+    assertThat(order.getStatus(), is(TRANSFER_FAILED));
+  }
+
+  @Test
+  public void shouldRemoveTransferIfOrderDoesNotExist() {
+    when(orderRepository.findOne(order.getId())).thenReturn(null);
+
+    processor.process(transfer);
+
+    verify(orderTransferRepository).delete(transfer.getId());
+    verify(orderStorage, never()).store(any(Order.class), any(OrderTransferContext.class));
+    verify(orderNotificationService, never()).sendOrderCreated(any(Order.class));
+  }
+
+  @Test
+  public void shouldCompleteTransferEvenIfNotificationFailed() {
+    when(orderSender.send(order, context)).thenReturn(true);
+    doThrow(new IllegalStateException("notification service unavailable"))
+        .when(orderNotificationService).sendOrderCreated(order);
+
+    processor.process(transfer);
+
+    verify(orderTransferRepository).delete(transfer.getId());
+    verify(orderTransferRepository, never()).save(any(OrderTransfer.class));
+  }
+
+  @Test
+  public void shouldPostponeTransferIfHostIsBusy() {
+    when(transferHostLimiter.tryAcquire(HOST)).thenReturn(false);
+    transfer.setAttempts(1);
+
+    processor.process(transfer);
+
+    verify(orderStorage, never()).store(any(Order.class), any(OrderTransferContext.class));
+    verify(transferHostLimiter, never()).release(HOST);
+    verify(orderTransferRepository).save(transfer);
+
+    assertThat(transfer.getAttempts(), is(1));
+    assertThat(transfer.getClaimedUntil(), is(nullValue()));
+    assertTrue(transfer.getNextAttemptAt().isAfter(ZonedDateTime.now()));
+  }
+
+  @Test
+  public void shouldReleaseHostAfterTransfer() {
+    doThrow(new IllegalStateException("disk full")).when(orderStorage).store(order, context);
+
+    processor.process(transfer);
+
+    verify(transferHostLimiter).release(HOST);
+  }
+
+  @Test
+  public void shouldResetFacilityBackoffAndNotNotifyAfterSuccessfulRetry() {
+    when(orderSender.send(order, context)).thenReturn(true);
+    order.setSupplyingFacilityId(UUID.randomUUID());
+    transfer.setRetry(true);
+
+    OrderTransferRetry retry = new OrderTransferRetry(order.getSupplyingFacilityId());
+    when(orderTransferRetryRepository.findByFacilityId(order.getSupplyingFacilityId()))
+        .thenReturn(retry);
+
+    processor.process(transfer);
+
+    verify(orderTransferRetryRepository).delete(retry);
+    verify(orderTransferRepository).delete(transfer.getId());
+    verify(orderNotificationService, never()).sendOrderCreated(any(Order.class));
+  }
+
+  @Test
+  public void shouldResetFacilityBackoffAfterAnySuccessfulTransfer() {
+    when(orderSender.send(order, context)).thenReturn(true);
+    order.setSupplyingFacilityId(UUID.randomUUID());
+
+    OrderTransferRetry retry = new OrderTransferRetry(order.getSupplyingFacilityId());
+    when(orderTransferRetryRepository.findByFacilityId(order.getSupplyingFacilityId()))
+        .thenReturn(retry);
+
+    processor.process(transfer);
+
+    verify(orderTransferRetryRepository).delete(retry);
+    verify(orderNotificationService).sendOrderCreated(order);
+  }
+
+  @Test
+  public void shouldNotResetFacilityBackoffAfterFailedRetry() {
+    when(orderSender.send(order, context)).thenReturn(false);
+    transfer.setRetry(true);
+    transfer.setAttempts(2);
+
+    processor.process(transfer);
+
+    verify(orderTransferRetryRepository, never()).delete(any(OrderTransferRetry.class));
+    verify(orderNotificationService, never()).sendOrderCreated(any(Order.class));
+    assertThat(order.getStatus(), is(TRANSFER_FAILED));
+  }
+
+}
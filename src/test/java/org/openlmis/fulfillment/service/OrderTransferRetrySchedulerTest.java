@@ -0,0 +1,266 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.service;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+import static org.openlmis.fulfillment.domain.OrderStatus.IN_ROUTE;
+import static org.openlmis.fulfillment.domain.OrderStatus.TRANSFER_FAILED;
+
+import com.google.common.collect.Lists;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.openlmis.fulfillment.domain.FtpTransferProperties;
+import org.openlmis.fulfillment.domain.Order;
+import org.openlmis.fulfillment.domain.OrderFileTemplate;
+import org.openlmis.fulfillment.domain.OrderTransfer;
+import org.openlmis.fulfillment.domain.OrderTransferRetry;
+import org.openlmis.fulfillment.repository.OrderRepository;
+import org.openlmis.fulfillment.repository.OrderTransferRepository;
+import org.openlmis.fulfillment.repository.OrderTransferRetryRepository;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+@RunWith(MockitoJUnitRunner.class)
+public class OrderTransferRetrySchedulerTest {
+
+  @Mock
+  private OrderTransferRetryRepository orderTransferRetryRepository;
+
+  @Mock
+  private OrderRepository orderRepository;
+
+  @Mock
+  private OrderTransferRepository orderTransferRepository;
+
+  @Mock
+  private OrderTransferContextFactory orderTransferContextFactory;
+
+  @InjectMocks
+  private OrderTransferRetryScheduler scheduler;
+
+  @Captor
+  private ArgumentCaptor<OrderTransferRetry> retryCaptor;
+
+  @Captor
+  private ArgumentCaptor<OrderTransfer> transferCaptor;
+
+  private UUID facilityId = UUID.randomUUID();
+  private Order first = generateOrder();
+  private Order second = generateOrder();
+
+  @Before
+  public void setUp() {
+    ReflectionTestUtils.setField(scheduler, "batchSize", 10);
+    ReflectionTestUtils.setField(scheduler, "maxAttempts", 5);
+    ReflectionTestUtils.setField(scheduler, "initialDelay", 60000L);
+    ReflectionTestUtils.setField(scheduler, "maxDelay", 600000L);
+
+    when(orderTransferRetryRepository.tryLock(OrderTransferRetryScheduler.LOCK_KEY))
+        .thenReturn(true);
+    when(orderTransferRetryRepository.findFacilitiesToRetry(any(ZonedDateTime.class), eq(5),
+        any(ZonedDateTime.class), eq(10))).thenReturn(Collections.singletonList(facilityId));
+
+    mockFailedOrders(first, second);
+
+    when(orderTransferContextFactory.create(first)).thenReturn(
+        new OrderTransferContext(new FtpTransferProperties(), new OrderFileTemplate()));
+  }
+
+  @Test
+  public void shouldQueueTransfersOfFailedOrders() {
+    scheduler.retryFailedTransfers();
+
+    verify(orderTransferRepository, times(2)).save(transferCaptor.capture());
+
+    List<OrderTransfer> transfers = transferCaptor.getAllValues();
+    assertThat(transfers.get(0).getOrderId(), is(first.getId()));
+    assertThat(transfers.get(1).getOrderId(), is(second.getId()));
+    assertTrue(transfers.get(0).isRetry());
+
+    assertThat(first.getStatus(), is(IN_ROUTE));
+    assertThat(second.getStatus(), is(IN_ROUTE));
+    verify(orderRepository).save(first);
+    verify(orderRepository).save(second);
+  }
+
+  @Test
+  public void shouldRecordAttemptAndBackoffWithJitter() {
+    OrderTransferRetry retry = new OrderTransferRetry(facilityId);
+    retry.setAttempts(2);
+    when(orderTransferRetryRepository.findByFacilityId(facilityId)).thenReturn(retry);
+
+    ZonedDateTime before = ZonedDateTime.now();
+    scheduler.retryFailedTransfers();
+
+    verify(orderTransferRetryRepository).save(retryCaptor.capture());
+
+    OrderTransferRetry saved = retryCaptor.getValue();
+    assertThat(saved.getAttempts(), is(3));
+    assertTrue(!saved.getLastAttemptAt().isBefore(before));
+
+    // third retry: the initial delay doubled twice, half of it is random
+    ZonedDateTime nextAttemptAt = saved.getNextAttemptAt();
+    assertTrue(!nextAttemptAt.isBefore(saved.getLastAttemptAt().plusSeconds(120)));
+    assertTrue(!nextAttemptAt.isAfter(saved.getLastAttemptAt().plusSeconds(240)));
+  }
+
+  @Test
+  public void shouldNotExceedMaximumDelay() {
+    OrderTransferRetry retry = new OrderTransferRetry(facilityId);
+    retry.setAttempts(20);
+    when(orderTransferRetryRepository.findByFacilityId(facilityId)).thenReturn(retry);
+
+    scheduler.retryFailedTransfers();
+
+    verify(orderTransferRetryRepository).save(retryCaptor.capture());
+
+    OrderTransferRetry saved = retryCaptor.getValue();
+    assertTrue(!saved.getNextAttemptAt().isAfter(saved.getLastAttemptAt().plusSeconds(600)));
+  }
+
+  @Test
+  public void shouldResetBackoffThatHasExpired() {
+    OrderTransferRetry retry = new OrderTransferRetry(facilityId);
+    retry.setAttempts(5);
+    retry.setLastAttemptAt(ZonedDateTime.now().minusSeconds(601));
+    when(orderTransferRetryRepository.findByFacilityId(facilityId)).thenReturn(retry);
+
+    scheduler.retryFailedTransfers();
+
+    verify(orderTransferRetryRepository).save(retryCaptor.capture());
+
+    OrderTransferRetry saved = retryCaptor.getValue();
+    assertThat(saved.getAttempts(), is(1));
+    assertTrue(!saved.getNextAttemptAt().isAfter(saved.getLastAttemptAt().plusSeconds(60)));
+  }
+
+  @Test
+  public void shouldNotRetryIfAnotherInstanceHoldsLock() {
+    when(orderTransferRetryRepository.tryLock(OrderTransferRetryScheduler.LOCK_KEY))
+        .thenReturn(false);
+
+    scheduler.retryFailedTransfers();
+
+    verify(orderTransferRetryRepository, never())
+        .findFacilitiesToRetry(any(ZonedDateTime.class), anyInt(), any(ZonedDateTime.class),
+            anyInt());
+    verifyZeroInteractions(orderRepository, orderTransferRepository);
+  }
+
+  @Test
+  public void shouldSkipOrdersThatAreAlreadyWaitingForTransfer() {
+    when(orderTransferRepository.countByOrderId(first.getId())).thenReturn(1L);
+
+    scheduler.retryFailedTransfers();
+
+    verify(orderTransferRepository).save(transferCaptor.capture());
+    assertThat(transferCaptor.getValue().getOrderId(), is(second.getId()));
+    assertThat(first.getStatus(), is(TRANSFER_FAILED));
+  }
+
+  @Test
+  public void shouldNotRetryOrdersOfFacilityWithoutTransferProperties() {
+    when(orderTransferContextFactory.create(first))
+        .thenReturn(new OrderTransferContext(null, null));
+
+    scheduler.retryFailedTransfers();
+
+    // skipped facilities are backed off, so they are not picked up in every interval
+    verify(orderTransferRetryRepository).save(retryCaptor.capture());
+    assertThat(retryCaptor.getValue().getFacilityId(), is(facilityId));
+    assertThat(retryCaptor.getValue().getAttempts(), is(1));
+    assertTrue(retryCaptor.getValue().getNextAttemptAt().isAfter(ZonedDateTime.now()));
+
+    verify(orderTransferRepository, never()).save(any(OrderTransfer.class));
+    assertThat(first.getStatus(), is(TRANSFER_FAILED));
+  }
+
+  @Test
+  public void shouldRemoveBackoffOfFacilityWithoutFailedOrders() {
+    OrderTransferRetry retry = new OrderTransferRetry(facilityId);
+    retry.setAttempts(3);
+    when(orderTransferRetryRepository.findByFacilityId(facilityId)).thenReturn(retry);
+    mockFailedOrders();
+
+    scheduler.retryFailedTransfers();
+
+    verify(orderTransferRetryRepository).delete(retry);
+    verify(orderTransferRetryRepository, never()).save(any(OrderTransferRetry.class));
+    verify(orderTransferRepository, never()).save(any(OrderTransfer.class));
+  }
+
+  @Test
+  public void shouldNotRecordAttemptIfAllOrdersAreWaitingForTransfer() {
+    when(orderTransferRepository.countByOrderId(any(UUID.class))).thenReturn(1L);
+
+    scheduler.retryFailedTransfers();
+
+    verify(orderTransferRetryRepository, never()).save(any(OrderTransferRetry.class));
+    verify(orderTransferRepository, never()).save(any(OrderTransfer.class));
+  }
+
+  @Test
+  public void shouldRetryAtMostBatchOfOrders() {
+    UUID otherFacilityId = UUID.randomUUID();
+    when(orderTransferRetryRepository.findFacilitiesToRetry(any(ZonedDateTime.class), eq(5),
+        any(ZonedDateTime.class), eq(2)))
+        .thenReturn(Lists.newArrayList(facilityId, otherFacilityId));
+    ReflectionTestUtils.setField(scheduler, "batchSize", 2);
+
+    scheduler.retryFailedTransfers();
+
+    verify(orderTransferRepository, times(2)).save(any(OrderTransfer.class));
+    verify(orderTransferRetryRepository, never()).findByFacilityId(otherFacilityId);
+  }
+
+  private void mockFailedOrders(Order... orders) {
+    when(orderRepository.searchOrders(eq(facilityId), eq(null), eq(null), eq(null),
+        eq(Collections.singleton(TRANSFER_FAILED)), eq(null), any(Pageable.class)))
+        .thenReturn(new PageImpl<>(Lists.newArrayList(orders)));
+  }
+
+  private Order generateOrder() {
+    Order order = new Order();
+    order.setId(UUID.randomUUID());
+    order.setSupplyingFacilityId(facilityId);
+    order.setStatus(TRANSFER_FAILED);
+    return order;
+  }
+
+}
@@ -0,0 +1,192 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.service;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.Lists;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.openlmis.fulfillment.domain.OrderTransfer;
+import org.openlmis.fulfillment.repository.OrderTransferRepository;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+
+@SuppressWarnings("unchecked")
+@RunWith(MockitoJUnitRunner.class)
+public class OrderTransferWorkerTest {
+
+  @Mock
+  private OrderTransferRepository orderTransferRepository;
+
+  @Mock
+  private OrderTransferProcessor orderTransferProcessor;
+
+  @Mock
+  private ThreadPoolTaskExecutor executor;
+
+  @Mock
+  private ThreadPoolExecutor threadPoolExecutor;
+
+  @InjectMocks
+  private OrderTransferWorker worker;
+
+  private OrderTransfer first = generateTransfer();
+  private OrderTransfer second = generateTransfer();
+
+  @Before
+  public void setUp() {
+    ReflectionTestUtils.setField(worker, "batchSize", 20);
+    ReflectionTestUtils.setField(worker, "claimTimeout", 60000L);
+
+    when(executor.getThreadPoolExecutor()).thenReturn(threadPoolExecutor);
+    when(threadPoolExecutor.getQueue()).thenReturn(new ArrayBlockingQueue<>(5));
+    when(orderTransferRepository.findDue(any(ZonedDateTime.class), anyInt()))
+        .thenReturn(Lists.newArrayList(first, second));
+    when(orderTransferRepository.claim(any(UUID.class), any(ZonedDateTime.class),
+        any(ZonedDateTime.class))).thenReturn(true);
+    when(orderTransferRepository.findOne(first.getId())).thenReturn(first);
+    when(orderTransferRepository.findOne(second.getId())).thenReturn(second);
+  }
+
+  @Test
+  public void shouldClaimAndSubmitDueTransfers() {
+    worker.poll();
+
+    verify(orderTransferRepository).findDue(any(ZonedDateTime.class), eq(5));
+    verify(orderTransferRepository).claim(eq(first.getId()), any(ZonedDateTime.class),
+        any(ZonedDateTime.class));
+    verify(orderTransferRepository).claim(eq(second.getId()), any(ZonedDateTime.class),
+        any(ZonedDateTime.class));
+
+    ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+    verify(executor, times(2)).execute(task.capture());
+
+    task.getAllValues().forEach(Runnable::run);
+
+    verify(orderTransferProcessor).process(first);
+    verify(orderTransferProcessor).process(second);
+  }
+
+  @Test
+  public void shouldNotSubmitTransferClaimedByAnotherInstance() {
+    when(orderTransferRepository.claim(eq(first.getId()), any(ZonedDateTime.class),
+        any(ZonedDateTime.class))).thenReturn(false);
+
+    worker.poll();
+
+    ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+    verify(executor).execute(task.capture());
+
+    task.getValue().run();
+
+    verify(orderTransferProcessor).process(second);
+    verify(orderTransferProcessor, never()).process(first);
+  }
+
+  @Test
+  public void shouldNotPollIfExecutorQueueIsFull() {
+    ArrayBlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(1);
+    queue.add(() -> { });
+    when(threadPoolExecutor.getQueue()).thenReturn(queue);
+
+    worker.poll();
+
+    verify(orderTransferRepository, never()).findDue(any(ZonedDateTime.class), anyInt());
+    verify(executor, never()).execute(any(Runnable.class));
+  }
+
+  @Test
+  public void shouldReleaseClaimIfTransferWasRejected() {
+    doThrow(new TaskRejectedException("queue is full"))
+        .when(executor).execute(any(Runnable.class));
+
+    worker.poll();
+
+    verify(orderTransferRepository).release(first.getId());
+    verify(orderTransferRepository, never()).claim(eq(second.getId()), any(ZonedDateTime.class),
+        any(ZonedDateTime.class));
+  }
+
+  @Test
+  public void shouldRenewClaimsOfTransfersInProgress() {
+    worker.poll();
+    worker.renewClaims();
+
+    ArgumentCaptor<Collection> ids = ArgumentCaptor.forClass(Collection.class);
+    verify(orderTransferRepository).renewClaims(ids.capture(), any(ZonedDateTime.class));
+    assertThat((Collection<UUID>) ids.getValue(),
+        containsInAnyOrder(first.getId(), second.getId()));
+  }
+
+  @Test
+  public void shouldNotRenewClaimsOfProcessedTransfers() {
+    worker.poll();
+
+    ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+    verify(executor, times(2)).execute(task.capture());
+    task.getAllValues().forEach(Runnable::run);
+
+    worker.renewClaims();
+
+    verify(orderTransferRepository, never()).renewClaims(anyCollectionOf(UUID.class),
+        any(ZonedDateTime.class));
+  }
+
+  @Test
+  public void shouldNotProcessTransferRemovedAfterClaim() {
+    when(orderTransferRepository.findOne(first.getId())).thenReturn(null);
+
+    worker.poll();
+
+    ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+    verify(executor, times(2)).execute(task.capture());
+    task.getAllValues().forEach(Runnable::run);
+
+    verify(orderTransferProcessor, never()).process(first);
+    verify(orderTransferProcessor).process(second);
+  }
+
+  private OrderTransfer generateTransfer() {
+    OrderTransfer transfer = new OrderTransfer(UUID.randomUUID());
+    transfer.setId(UUID.randomUUID());
+    return transfer;
+  }
+
+}
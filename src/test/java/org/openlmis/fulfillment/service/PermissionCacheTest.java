@@ -0,0 +1,93 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.service;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+public class PermissionCacheTest {
+  private static final String USER = "admin";
+  private static final String RIGHT = "ORDERS_VIEW";
+  private static final UUID WAREHOUSE = UUID.randomUUID();
+
+  private Clock clock = mock(Clock.class);
+  private PermissionCache cache = new PermissionCache();
+  private AtomicInteger checks = new AtomicInteger();
+
+  @Before
+  public void setUp() {
+    when(clock.millis()).thenReturn(0L);
+    ReflectionTestUtils.setField(cache, "clock", clock);
+    ReflectionTestUtils.setField(cache, "maxSize", 2);
+  }
+
+  @Test
+  public void shouldCacheDecision() {
+    assertThat(cache.hasPermission(USER, RIGHT, WAREHOUSE, check(false)), is(false));
+    assertThat(cache.hasPermission(USER, RIGHT, WAREHOUSE, check(true)), is(false));
+
+    assertThat(checks.get(), is(1));
+    assertThat(cache.getHitCount(), is(1L));
+    assertThat(cache.getMissCount(), is(1L));
+  }
+
+  @Test
+  public void shouldCheckPermissionAgainAfterTimeToLive() {
+    cache.hasPermission(USER, RIGHT, WAREHOUSE, check(true));
+    when(clock.millis()).thenReturn(60000L);
+
+    assertThat(cache.hasPermission(USER, RIGHT, WAREHOUSE, check(false)), is(false));
+    assertThat(checks.get(), is(2));
+  }
+
+  @Test
+  public void shouldKeepDecisionsOfDifferentWarehousesSeparately() {
+    cache.hasPermission(USER, RIGHT, WAREHOUSE, check(true));
+
+    assertThat(cache.hasPermission(USER, RIGHT, UUID.randomUUID(), check(false)), is(false));
+    assertThat(cache.hasPermission(USER, RIGHT, null, check(false)), is(false));
+    assertThat(cache.size(), is(2));
+    assertThat(checks.get(), is(3));
+  }
+
+  @Test
+  public void shouldNotCacheDecisionsWithoutUser() {
+    cache.hasPermission(null, RIGHT, WAREHOUSE, check(true));
+    cache.hasPermission(null, RIGHT, WAREHOUSE, check(true));
+
+    assertThat(cache.size(), is(0));
+    assertThat(checks.get(), is(2));
+  }
+
+  private BooleanSupplier check(boolean result) {
+    return () -> {
+      checks.incrementAndGet();
+      return result;
+    };
+  }
+
+}
@@ -15,11 +15,19 @@
 
 package org.openlmis.fulfillment.service;
 
+import static java.util.Collections.singleton;
 import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.hasProperty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.openlmis.fulfillment.i18n.MessageKeys.ERROR_PERMISSION_MISSING;
 import static org.openlmis.fulfillment.service.PermissionService.ORDERS_TRANSFER;
@@ -38,9 +46,12 @@ import org.junit.runner.RunWith;
 import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.openlmis.fulfillment.domain.Order;
 import org.openlmis.fulfillment.domain.ProofOfDelivery;
+import org.openlmis.fulfillment.repository.ProofOfDeliveryRepository;
+import org.openlmis.fulfillment.service.referencedata.FacilityDto;
 import org.openlmis.fulfillment.service.referencedata.RightDto;
 import org.openlmis.fulfillment.service.referencedata.UserDto;
 import org.openlmis.fulfillment.service.referencedata.UserReferenceDataService;
@@ -67,6 +78,12 @@ public class PermissionServiceTest {
   @Mock
   private AuthenticationHelper authenticationHelper;
 
+  @Mock
+  private ProofOfDeliveryRepository proofOfDeliveryRepository;
+
+  @Spy
+  private PermissionCache permissionCache = new PermissionCache();
+
   @InjectMocks
   private PermissionService permissionService;
 
@@ -213,6 +230,30 @@ public class PermissionServiceTest {
     permissionService.canManagePod(proofOfDelivery);
   }
 
+  @Test
+  public void canManageAllPods() throws Exception {
+    when(userReferenceDataService.getFulfillmentFacilities(userId, fulfillmentManagePodRightId))
+        .thenReturn(Lists.newArrayList(facility(facilityId)));
+    when(proofOfDeliveryRepository.existsWithSupplyingFacilityNotIn(singleton(facilityId)))
+        .thenReturn(false);
+
+    permissionService.canManageAllPods();
+
+    verify(userReferenceDataService, never()).hasRight(any(), any(), any(), any(), any());
+  }
+
+  @Test
+  public void cannotManageAllPods() throws Exception {
+    when(userReferenceDataService.getFulfillmentFacilities(userId, fulfillmentManagePodRightId))
+        .thenReturn(Lists.newArrayList(facility(facilityId)));
+    when(proofOfDeliveryRepository.existsWithSupplyingFacilityNotIn(singleton(facilityId)))
+        .thenReturn(true);
+
+    expectException(PODS_MANAGE);
+
+    permissionService.canManageAllPods();
+  }
+
   @Test
   public void canViewOrder() throws Exception {
     when(securityContext.getAuthentication()).thenReturn(userClient);
@@ -255,6 +296,57 @@ public class PermissionServiceTest {
     permissionService.canEditOrder(order);
   }
 
+  @Test
+  public void shouldCheckPermissionOncePerUserRightAndWarehouse() {
+    Authentication authentication = mock(Authentication.class);
+    when(authentication.getPrincipal()).thenReturn("admin");
+    OAuth2Authentication admin =
+        new OAuth2Authentication(mock(OAuth2Request.class), authentication);
+    when(securityContext.getAuthentication()).thenReturn(admin);
+
+    mockFulfillmentHasRight(fulfillmentOrdersViewRightId, true, facilityId);
+
+    permissionService.canViewOrder(order);
+    permissionService.canViewOrder(order);
+    assertThat(permissionService.canViewOrderOrManagePod(order), is(true));
+
+    verify(userReferenceDataService, times(1))
+        .hasRight(userId, fulfillmentOrdersViewRightId, null, null, facilityId);
+    verify(authenticationHelper, times(1)).getCurrentUser();
+  }
+
+  @Test
+  public void shouldReturnWarehousesOfOrdersViewAndPodsManageRights() {
+    when(securityContext.getAuthentication()).thenReturn(userClient);
+
+    FacilityDto viewed = new FacilityDto();
+    viewed.setId(UUID.randomUUID());
+    FacilityDto managed = new FacilityDto();
+    managed.setId(UUID.randomUUID());
+
+    when(userReferenceDataService.getFulfillmentFacilities(userId, fulfillmentOrdersViewRightId))
+        .thenReturn(Lists.newArrayList(viewed, managed));
+    when(userReferenceDataService.getFulfillmentFacilities(userId, fulfillmentManagePodRightId))
+        .thenReturn(Lists.newArrayList(managed));
+
+    assertThat(permissionService.getOrderSearchWarehouses(),
+        containsInAnyOrder(viewed.getId(), managed.getId()));
+  }
+
+  @Test
+  public void shouldNotRestrictWarehousesForServiceTokens() {
+    when(securityContext.getAuthentication()).thenReturn(trustedClient);
+
+    assertThat(permissionService.getOrderSearchWarehouses(), is(nullValue()));
+    verify(userReferenceDataService, never()).getFulfillmentFacilities(any(), any());
+  }
+
+  private FacilityDto facility(UUID id) {
+    FacilityDto facility = new FacilityDto();
+    facility.setId(id);
+    return facility;
+  }
+
   private void mockFulfillmentHasRight(UUID rightId, boolean assign, UUID facility) {
     ResultDto<Boolean> resultDto = new ResultDto<>(assign);
     when(userReferenceDataService
@@ -0,0 +1,71 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.service;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class TransferHostLimiterTest {
+  private static final String HOST = "ftp.example.org";
+
+  private TransferHostLimiter limiter;
+
+  @Before
+  public void setUp() {
+    limiter = new TransferHostLimiter();
+    ReflectionTestUtils.setField(limiter, "maxPerHost", 2);
+  }
+
+  @Test
+  public void shouldLimitConcurrentTransfersToHost() {
+    assertTrue(limiter.tryAcquire(HOST));
+    assertTrue(limiter.tryAcquire(HOST));
+    assertFalse(limiter.tryAcquire(HOST));
+    assertFalse(limiter.tryAcquire(HOST.toUpperCase()));
+  }
+
+  @Test
+  public void shouldNotLimitTransfersToOtherHosts() {
+    assertTrue(limiter.tryAcquire(HOST));
+    assertTrue(limiter.tryAcquire(HOST));
+
+    assertTrue(limiter.tryAcquire("sftp.example.org"));
+  }
+
+  @Test
+  public void shouldAllowTransferAfterRelease() {
+    assertTrue(limiter.tryAcquire(HOST));
+    assertTrue(limiter.tryAcquire(HOST));
+
+    limiter.release(HOST);
+
+    assertTrue(limiter.tryAcquire(HOST));
+  }
+
+  @Test
+  public void shouldIgnoreReleaseOfUnknownHost() {
+    limiter.release(HOST);
+
+    assertTrue(limiter.tryAcquire(HOST));
+    assertTrue(limiter.tryAcquire(HOST));
+    assertFalse(limiter.tryAcquire(HOST));
+  }
+
+}
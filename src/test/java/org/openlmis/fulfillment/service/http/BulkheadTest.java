@@ -0,0 +1,103 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.service.http;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+
+@RunWith(MockitoJUnitRunner.class)
+public class BulkheadTest {
+  private static final byte[] BODY = new byte[0];
+
+  @Mock
+  private HttpRequest request;
+
+  @Mock
+  private ClientHttpRequestExecution execution;
+
+  @Mock
+  private ClientHttpResponse response;
+
+  private Bulkhead bulkhead;
+
+  @Before
+  public void setUp() throws IOException {
+    bulkhead = new Bulkhead("test", 1, 0);
+    when(execution.execute(any(HttpRequest.class), any(byte[].class))).thenReturn(response);
+  }
+
+  @Test
+  public void shouldHoldPermitUntilResponseIsClosed() throws IOException {
+    ClientHttpResponse result = bulkhead.intercept(request, BODY, execution);
+    assertThat(bulkhead.getAvailablePermits(), is(0));
+
+    result.close();
+    result.close();
+
+    verify(response, times(2)).close();
+    assertThat(bulkhead.getAvailablePermits(), is(1));
+  }
+
+  @Test
+  public void shouldRejectCallIfThereIsNoFreePermit() throws IOException {
+    bulkhead.intercept(request, BODY, execution);
+
+    try {
+      bulkhead.intercept(request, BODY, execution);
+    } catch (BulkheadFullException exp) {
+      assertThat(bulkhead.getRejectedCount(), is(1L));
+      return;
+    }
+
+    throw new AssertionError("Call should be rejected");
+  }
+
+  @Test
+  public void shouldReleasePermitIfCallFails() throws IOException {
+    when(execution.execute(any(HttpRequest.class), any(byte[].class)))
+        .thenThrow(new IOException("connection refused"));
+
+    try {
+      bulkhead.intercept(request, BODY, execution);
+    } catch (IOException exp) {
+      assertThat(bulkhead.getAvailablePermits(), is(1));
+      return;
+    }
+
+    throw new AssertionError("Call should fail");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldNotAllowNonPositiveNumberOfCalls() {
+    new Bulkhead("test", 0, 0);
+  }
+
+}
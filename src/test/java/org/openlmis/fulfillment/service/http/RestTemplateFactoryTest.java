@@ -0,0 +1,71 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.service.http;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.http.client.InterceptingClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+
+public class RestTemplateFactoryTest {
+  private RestTemplateFactory factory = new RestTemplateFactory();
+
+  @After
+  public void tearDown() throws IOException {
+    factory.close();
+  }
+
+  @Test
+  public void shouldShareTemplateBetweenCallersOfOneService() {
+    RestTemplate first = factory.getRestTemplate(RestTemplateFactory.REFERENCE_DATA);
+    RestTemplate second = factory.getRestTemplate(RestTemplateFactory.REFERENCE_DATA);
+    RestTemplate notification = factory.getRestTemplate(RestTemplateFactory.NOTIFICATION);
+
+    assertThat(second, is(sameInstance(first)));
+    assertThat(notification, is(not(sameInstance(first))));
+    assertThat(factory.getBulkheads(), hasSize(2));
+  }
+
+  @Test
+  public void shouldUsePooledClientWithBulkhead() {
+    assertThat(factory.getPoolStats(), is(nullValue()));
+
+    RestTemplate template = factory.getRestTemplate(RestTemplateFactory.AUTH);
+
+    assertThat(template.getRequestFactory(), is(instanceOf(
+        InterceptingClientHttpRequestFactory.class)));
+    assertThat(template.getInterceptors().get(0), is(instanceOf(Bulkhead.class)));
+    assertThat(factory.getPoolStats(), is(notNullValue()));
+    assertThat(factory.getPoolStats().getMax(), is(200));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldNotCreateTemplateForUnknownService() {
+    factory.getRestTemplate("unknown");
+  }
+
+}
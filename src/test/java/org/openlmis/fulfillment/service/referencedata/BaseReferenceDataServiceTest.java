@@ -15,6 +15,7 @@
 
 package org.openlmis.fulfillment.service.referencedata;
 
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.nullValue;
@@ -22,22 +23,35 @@ import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.openlmis.fulfillment.service.BaseCommunicationService;
 import org.openlmis.fulfillment.service.BaseCommunicationServiceTest;
+import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 
+import java.lang.reflect.Array;
 import java.net.URI;
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
-public abstract class BaseReferenceDataServiceTest<T> extends BaseCommunicationServiceTest {
+public abstract class BaseReferenceDataServiceTest<T extends BaseDto>
+    extends BaseCommunicationServiceTest {
 
   @Test
   public void shouldFindById() throws Exception {
@@ -92,6 +106,229 @@ public abstract class BaseReferenceDataServiceTest<T> extends BaseCommunicationS
     assertThat(found, is(nullValue()));
   }
 
+  @Test
+  public void shouldReturnCachedObjectIfCacheIsEnabled() throws Exception {
+    // given
+    BaseReferenceDataService<T> service = prepareService();
+    service.enableCache("test", 10, 60);
+    UUID id = UUID.randomUUID();
+    T instance = generateInstance();
+    ResponseEntity<T> response = mock(ResponseEntity.class);
+
+    // when
+    when(response.getBody()).thenReturn(instance);
+    when(restTemplate.exchange(
+        any(URI.class), eq(HttpMethod.GET), eq(null), eq(service.getResultClass())
+    )).thenReturn(response);
+
+    T first = service.findOne(id);
+    T second = service.findOne(id);
+
+    // then
+    verify(restTemplate, times(1)).exchange(
+        any(URI.class), eq(HttpMethod.GET), eq(null), eq(service.getResultClass())
+    );
+
+    assertThat(first, is(instance));
+    assertThat(second, is(instance));
+    assertThat(service.getCache().getHitCount(), is(1L));
+  }
+
+  @Test
+  public void shouldRevalidateExpiredObjectWithEntityTag() throws Exception {
+    // given
+    BaseReferenceDataService<T> service = prepareService();
+    UUID id = UUID.randomUUID();
+    T instance = generateInstance();
+
+    Clock clock = mock(Clock.class);
+    when(clock.millis()).thenReturn(0L);
+
+    ReferenceDataCache<T> cache = new ReferenceDataCache<>("test", 10, 1000, 5000, clock);
+    EntityTagCache tags = new EntityTagCache(new ReferenceDataCache<>("test.etags", 10, 6000));
+    service.getLoader().setCache(cache);
+    service.getLoader().setEntityTags(tags);
+
+    cache.put(id, instance);
+    tags.getTags().put(id, "\"1\"");
+    when(clock.millis()).thenReturn(1000L);
+
+    // when
+    when(restTemplate.exchange(
+        any(URI.class), eq(HttpMethod.GET), any(HttpEntity.class), eq(service.getResultClass())
+    )).thenReturn(new ResponseEntity<>(HttpStatus.NOT_MODIFIED));
+
+    T found = service.findOne(id);
+
+    // then
+    ArgumentCaptor<HttpEntity> entityCaptor = ArgumentCaptor.forClass(HttpEntity.class);
+    verify(restTemplate).exchange(
+        any(URI.class), eq(HttpMethod.GET), entityCaptor.capture(),
+        eq(service.getResultClass())
+    );
+
+    assertThat(entityCaptor.getValue().getHeaders().getIfNoneMatch(), contains("\"1\""));
+    assertThat(found, is(instance));
+    assertThat(cache.get(id), is(instance));
+    assertThat(tags.getNotModifiedCount(), is(1L));
+  }
+
+  @Test
+  public void shouldRetrieveObjectOnlyOncePerRequest() throws Exception {
+    // given
+    BaseReferenceDataService<T> service = prepareService();
+    UUID id = UUID.randomUUID();
+    T instance = generateInstance();
+    ResponseEntity<T> response = mock(ResponseEntity.class);
+
+    // when
+    when(response.getBody()).thenReturn(instance);
+    when(restTemplate.exchange(
+        any(URI.class), eq(HttpMethod.GET), eq(null), eq(service.getResultClass())
+    )).thenReturn(response);
+
+    RequestContextHolder.setRequestAttributes(
+        new ServletRequestAttributes(new MockHttpServletRequest()));
+
+    try {
+      assertThat(service.findOne(id), is(instance));
+      assertThat(service.findOne(id), is(instance));
+    } finally {
+      RequestContextHolder.resetRequestAttributes();
+    }
+
+    // then
+    verify(restTemplate, times(1)).exchange(
+        any(URI.class), eq(HttpMethod.GET), eq(null), eq(service.getResultClass())
+    );
+  }
+
+  @Test
+  public void shouldFindObjectsRememberedInRequest() throws Exception {
+    // given
+    BaseReferenceDataService<T> service = prepareService();
+    UUID id = UUID.randomUUID();
+    T instance = generateInstance();
+    ResponseEntity<T> response = mock(ResponseEntity.class);
+
+    // when
+    when(response.getBody()).thenReturn(instance);
+    when(restTemplate.exchange(
+        any(URI.class), eq(HttpMethod.GET), eq(null), eq(service.getResultClass())
+    )).thenReturn(response);
+
+    RequestContextHolder.setRequestAttributes(
+        new ServletRequestAttributes(new MockHttpServletRequest()));
+
+    try {
+      assertThat(service.getRemembered(Arrays.asList(id, null)).isEmpty(), is(true));
+
+      service.findOne(id);
+
+      assertThat(service.getRemembered(Arrays.asList(id, UUID.randomUUID(), null)),
+          is(Collections.singletonMap(id, instance)));
+    } finally {
+      RequestContextHolder.resetRequestAttributes();
+    }
+
+    // then
+    assertThat(service.getRemembered(Collections.singleton(id)).isEmpty(), is(true));
+    verify(restTemplate, times(1)).exchange(
+        any(URI.class), eq(HttpMethod.GET), eq(null), eq(service.getResultClass())
+    );
+  }
+
+  @Test
+  public void shouldRetryWithNewTokenIfTokenWasRejected() throws Exception {
+    // given
+    BaseReferenceDataService<T> service = prepareService();
+    UUID id = UUID.randomUUID();
+    T instance = generateInstance();
+    ResponseEntity<T> response = mock(ResponseEntity.class);
+
+    // when
+    when(response.getBody()).thenReturn(instance);
+    when(restTemplate.exchange(
+        any(URI.class), eq(HttpMethod.GET), eq(null), eq(service.getResultClass())
+    ))
+        .thenThrow(new HttpClientErrorException(HttpStatus.UNAUTHORIZED))
+        .thenReturn(response);
+
+    T found = service.findOne(id);
+
+    // then
+    verify(restTemplate, times(2)).exchange(
+        any(URI.class), eq(HttpMethod.GET), eq(null), eq(service.getResultClass())
+    );
+    verify(restTemplate, times(2)).exchange(
+        any(URI.class), eq(HttpMethod.POST), any(HttpEntity.class), eq(Object.class)
+    );
+
+    assertThat(found, is(instance));
+  }
+
+  @Test
+  public void shouldFindByIdsInChunks() throws Exception {
+    // given
+    BaseReferenceDataService<T> service = prepareService();
+    ReflectionTestUtils.setField(service, "chunkSize", 2);
+
+    T first = generateInstance();
+    first.setId(UUID.randomUUID());
+    T second = generateInstance();
+    second.setId(UUID.randomUUID());
+    T third = generateInstance();
+    third.setId(UUID.randomUUID());
+
+    ResponseEntity<T[]> firstResponse = mock(ResponseEntity.class);
+    ResponseEntity<T[]> secondResponse = mock(ResponseEntity.class);
+    T[] firstChunk = (T[]) Array.newInstance(service.getResultClass(), 2);
+    firstChunk[0] = first;
+    firstChunk[1] = second;
+    T[] secondChunk = (T[]) Array.newInstance(service.getResultClass(), 1);
+    secondChunk[0] = third;
+
+    // when
+    when(firstResponse.getBody()).thenReturn(firstChunk);
+    when(secondResponse.getBody()).thenReturn(secondChunk);
+    when(restTemplate.getForEntity(any(URI.class), eq(service.getArrayResultClass())))
+        .thenReturn(firstResponse, secondResponse);
+    when(restTemplate.postForEntity(any(URI.class), any(Map.class),
+        eq(service.getArrayResultClass()))).thenReturn(firstResponse, secondResponse);
+
+    Map<UUID, T> found = service.findByIds(
+        Arrays.asList(first.getId(), second.getId(), first.getId(), null, third.getId())
+    );
+
+    // then
+    String url = service.getReferenceDataUrl() + service.getUrl() + "search?" + ACCESS_TOKEN;
+
+    if (isSearchedByPost()) {
+      ArgumentCaptor<Map> payloadCaptor = ArgumentCaptor.forClass(Map.class);
+      verify(restTemplate, times(2)).postForEntity(
+          uriCaptor.capture(), payloadCaptor.capture(), eq(service.getArrayResultClass())
+      );
+
+      List<Map> payloads = payloadCaptor.getAllValues();
+      assertThat(uriCaptor.getValue().toString(), is(equalTo(url)));
+      assertThat(payloads.get(0).get("id"), is(Arrays.asList(first.getId(), second.getId())));
+      assertThat(payloads.get(1).get("id"), is(Collections.singletonList(third.getId())));
+    } else {
+      verify(restTemplate, times(2))
+          .getForEntity(uriCaptor.capture(), eq(service.getArrayResultClass()));
+
+      List<URI> uris = uriCaptor.getAllValues();
+      assertThat(uris.get(0).toString(),
+          is(equalTo(url + "&id=" + first.getId() + "&id=" + second.getId())));
+      assertThat(uris.get(1).toString(), is(equalTo(url + "&id=" + third.getId())));
+    }
+
+    assertThat(found.size(), is(3));
+    assertThat(found.get(first.getId()), is(first));
+    assertThat(found.get(second.getId()), is(second));
+    assertThat(found.get(third.getId()), is(third));
+  }
+
   @Test(expected = ReferenceDataRetrievalException.class)
   public void shouldThrowExceptionIfThereIsOtherProblemWithFindingById() throws Exception {
     // given
@@ -117,6 +354,10 @@ public abstract class BaseReferenceDataServiceTest<T> extends BaseCommunicationS
 
   protected abstract BaseReferenceDataService<T> getService();
 
+  boolean isSearchedByPost() {
+    return false;
+  }
+
   abstract T generateInstance();
 
 }
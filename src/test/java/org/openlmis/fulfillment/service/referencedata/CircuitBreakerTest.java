@@ -0,0 +1,133 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.service.referencedata;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openlmis.fulfillment.service.referencedata.CircuitBreaker.State;
+
+import java.time.Clock;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+public class CircuitBreakerTest {
+  private static final long OPEN_DURATION = 1000;
+
+  private Clock clock = mock(Clock.class);
+  private CircuitBreaker breaker;
+  private AtomicInteger calls = new AtomicInteger();
+
+  @Before
+  public void setUp() {
+    when(clock.millis()).thenReturn(0L);
+    breaker = new CircuitBreaker(2, OPEN_DURATION, clock);
+  }
+
+  @Test
+  public void shouldOpenCircuitAfterConsecutiveFailures() {
+    failCalls(2);
+
+    assertThat(breaker.getState(), is(State.OPEN));
+    assertThat(breaker.getTransitionCount(State.OPEN), is(1L));
+
+    assertRejected();
+    assertThat(calls.get(), is(2));
+    assertThat(breaker.getRejectedCount(), is(1L));
+  }
+
+  @Test
+  public void shouldResetFailuresAfterSuccessfulCall() {
+    failCalls(1);
+    succeed();
+    failCalls(1);
+
+    assertThat(breaker.getState(), is(State.CLOSED));
+  }
+
+  @Test
+  public void shouldNotCountIgnoredExceptions() {
+    for (int i = 0; i < 3; ++i) {
+      try {
+        breaker.execute(failingCall(), exp -> false, IllegalStateException::new);
+      } catch (IllegalArgumentException exp) {
+        // expected
+      }
+    }
+
+    assertThat(breaker.getState(), is(State.CLOSED));
+  }
+
+  @Test
+  public void shouldCloseCircuitIfTrialCallSucceeds() {
+    failCalls(2);
+    when(clock.millis()).thenReturn(OPEN_DURATION);
+
+    succeed();
+
+    assertThat(breaker.getState(), is(State.CLOSED));
+    assertThat(breaker.getTransitionCount(State.HALF_OPEN), is(1L));
+    assertThat(breaker.getTransitionCount(State.CLOSED), is(1L));
+  }
+
+  @Test
+  public void shouldOpenCircuitAgainIfTrialCallFails() {
+    failCalls(2);
+    when(clock.millis()).thenReturn(OPEN_DURATION);
+
+    failCalls(1);
+
+    assertThat(breaker.getState(), is(State.OPEN));
+    assertThat(breaker.getTransitionCount(State.OPEN), is(2L));
+    assertRejected();
+  }
+
+  private void failCalls(int times) {
+    for (int i = 0; i < times; ++i) {
+      try {
+        breaker.execute(failingCall(), exp -> true, IllegalStateException::new);
+      } catch (IllegalArgumentException exp) {
+        // expected
+      }
+    }
+  }
+
+  private void succeed() {
+    breaker.execute(() -> calls.incrementAndGet(), exp -> true, IllegalStateException::new);
+  }
+
+  private void assertRejected() {
+    try {
+      succeed();
+      fail("Call should be rejected");
+    } catch (IllegalStateException exp) {
+      // expected
+    }
+  }
+
+  private Supplier<Object> failingCall() {
+    return () -> {
+      calls.incrementAndGet();
+      throw new IllegalArgumentException();
+    };
+  }
+
+}
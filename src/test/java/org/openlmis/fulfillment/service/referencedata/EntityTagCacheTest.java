@@ -0,0 +1,74 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.service.referencedata;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.UUID;
+
+public class EntityTagCacheTest {
+  private static final UUID ID = UUID.randomUUID();
+  private static final String TAG = "\"1\"";
+
+  private EntityTagCache tags = new EntityTagCache(new ReferenceDataCache<>("etags", 10, 1000));
+
+  @Test
+  public void shouldNotCreateRequestWithoutEntityTag() {
+    assertThat(EntityTagCache.createRequest(null), is(nullValue()));
+  }
+
+  @Test
+  public void shouldRememberEntityTagOfRetrievedObject() {
+    HttpHeaders headers = new HttpHeaders();
+    headers.setETag(TAG);
+
+    ResponseEntity<String> response = new ResponseEntity<>("body", headers, HttpStatus.OK);
+    String body = tags.resolve(ID, null, null, response);
+
+    assertThat(body, is("body"));
+    assertThat(tags.get(ID), is(TAG));
+    assertThat(tags.getRevalidationCount(), is(0L));
+  }
+
+  @Test
+  public void shouldReturnCachedObjectIfItWasNotModified() {
+    String body = tags.resolve(ID, TAG, "cached", new ResponseEntity<>(HttpStatus.NOT_MODIFIED));
+
+    assertThat(body, is("cached"));
+    assertThat(tags.get(ID), is(TAG));
+    assertThat(tags.getRevalidationCount(), is(1L));
+    assertThat(tags.getNotModifiedCount(), is(1L));
+  }
+
+  @Test
+  public void shouldForgetEntityTagIfResponseHasNone() {
+    tags.getTags().put(ID, TAG);
+
+    String body = tags.resolve(ID, TAG, "cached", new ResponseEntity<>("new", HttpStatus.OK));
+
+    assertThat(body, is("new"));
+    assertThat(tags.get(ID), is(nullValue()));
+    assertThat(tags.getNotModifiedCount(), is(0L));
+  }
+
+}
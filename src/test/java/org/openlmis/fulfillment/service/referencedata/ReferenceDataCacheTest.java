@@ -0,0 +1,133 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.service.referencedata;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Clock;
+import java.util.UUID;
+
+public class ReferenceDataCacheTest {
+  private static final long TIME_TO_LIVE = 1000;
+
+  private Clock clock = mock(Clock.class);
+  private ReferenceDataCache<String> cache;
+
+  @Before
+  public void setUp() {
+    when(clock.millis()).thenReturn(0L);
+    cache = new ReferenceDataCache<>("test", 2, TIME_TO_LIVE, clock);
+  }
+
+  @Test
+  public void shouldReturnCachedValue() {
+    UUID id = UUID.randomUUID();
+    cache.put(id, "value");
+
+    assertThat(cache.get(id), is("value"));
+    assertThat(cache.getHitCount(), is(1L));
+    assertThat(cache.getMissCount(), is(0L));
+  }
+
+  @Test
+  public void shouldCountMissIfValueIsNotCached() {
+    assertThat(cache.get(UUID.randomUUID()), is(nullValue()));
+    assertThat(cache.getMissCount(), is(1L));
+  }
+
+  @Test
+  public void shouldExpireValueAfterTimeToLive() {
+    UUID id = UUID.randomUUID();
+    cache.put(id, "value");
+
+    when(clock.millis()).thenReturn(TIME_TO_LIVE);
+
+    assertThat(cache.get(id), is(nullValue()));
+    assertThat(cache.getEvictionCount(), is(1L));
+    assertThat(cache.size(), is(0));
+  }
+
+  @Test
+  public void shouldEvictLeastRecentlyUsedValueIfCacheIsFull() {
+    UUID first = UUID.randomUUID();
+    UUID second = UUID.randomUUID();
+    UUID third = UUID.randomUUID();
+
+    cache.put(first, "first");
+    cache.put(second, "second");
+    cache.get(first);
+    cache.put(third, "third");
+
+    assertThat(cache.size(), is(2));
+    assertThat(cache.getEvictionCount(), is(1L));
+    assertThat(cache.get(second), is(nullValue()));
+    assertThat(cache.get(first), is("first"));
+    assertThat(cache.get(third), is("third"));
+  }
+
+  @Test
+  public void shouldIgnoreNullValues() {
+    cache.put(UUID.randomUUID(), null);
+
+    assertThat(cache.size(), is(0));
+  }
+
+  @Test
+  public void shouldClearAndEvictValues() {
+    UUID first = UUID.randomUUID();
+    UUID second = UUID.randomUUID();
+
+    cache.put(first, "first");
+    cache.put(second, "second");
+
+    cache.evict(first);
+    assertThat(cache.get(first), is(nullValue()));
+    assertThat(cache.size(), is(1));
+
+    cache.clear();
+    assertThat(cache.size(), is(0));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldNotAllowNonPositiveSize() {
+    new ReferenceDataCache<>("test", 0, TIME_TO_LIVE, clock);
+  }
+
+  @Test
+  public void shouldReturnStaleValueUntilStaleTimeToLivePasses() {
+    ReferenceDataCache<String> staleCache =
+        new ReferenceDataCache<>("test", 2, TIME_TO_LIVE, TIME_TO_LIVE, clock);
+    UUID id = UUID.randomUUID();
+    staleCache.put(id, "value");
+
+    when(clock.millis()).thenReturn(TIME_TO_LIVE);
+    assertThat(staleCache.get(id), is(nullValue()));
+    assertThat(staleCache.getStale(id), is("value"));
+
+    when(clock.millis()).thenReturn(2 * TIME_TO_LIVE);
+    assertThat(staleCache.getStale(id), is(nullValue()));
+    assertThat(staleCache.get(id), is(nullValue()));
+    assertThat(staleCache.size(), is(0));
+  }
+
+}
@@ -0,0 +1,201 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.service.referencedata;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.Sets;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.Clock;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+public class ReferenceDataLoaderTest {
+  private static final long TIME_TO_LIVE = 1000;
+  private static final long STALE_TIME_TO_LIVE = 5000;
+  private static final UUID ID = UUID.randomUUID();
+
+  private Clock clock = mock(Clock.class);
+  private ReferenceDataCache<FacilityDto> cache;
+  private AtomicInteger calls = new AtomicInteger();
+
+  private FacilityDto stale = new FacilityDto();
+  private FacilityDto fresh = new FacilityDto();
+
+  @Before
+  public void setUp() {
+    when(clock.millis()).thenReturn(0L);
+    cache = new ReferenceDataCache<>("test", 10, TIME_TO_LIVE, STALE_TIME_TO_LIVE, clock);
+    cache.put(ID, stale);
+
+    when(clock.millis()).thenReturn(TIME_TO_LIVE);
+  }
+
+  @Test
+  public void shouldServeStaleValueAndRefreshItInBackground() {
+    ReferenceDataLoader<FacilityDto> loader = createLoader(id -> fresh);
+    loader.setRefreshExecutor(new SyncTaskExecutor());
+
+    assertThat(loader.load(ID), is(stale));
+    assertThat(cache.get(ID), is(fresh));
+    assertThat(loader.getStaleHitCount(), is(1L));
+    assertThat(loader.getRefreshCount(), is(1L));
+  }
+
+  @Test
+  public void shouldServeStaleValueIfObjectCanNotBeRetrieved() {
+    ReferenceDataLoader<FacilityDto> loader = createLoader(failing());
+
+    assertThat(loader.load(ID), is(stale));
+    assertThat(loader.getStaleHitCount(), is(1L));
+  }
+
+  @Test(expected = ResourceAccessException.class)
+  public void shouldThrowExceptionIfThereIsNoStaleValue() {
+    when(clock.millis()).thenReturn(TIME_TO_LIVE + STALE_TIME_TO_LIVE);
+
+    createLoader(failing()).load(ID);
+  }
+
+  @Test
+  public void shouldRejectCallsWhileCircuitIsOpen() {
+    ReferenceDataLoader<FacilityDto> loader = createLoader(failing());
+    loader.setCircuitBreaker(new CircuitBreaker(1, 60000));
+    UUID other = UUID.randomUUID();
+
+    assertRetrievalFails(loader, other, ResourceAccessException.class);
+    assertRetrievalFails(loader, other, UnsupportedOperationException.class);
+
+    assertThat(loader.load(ID), is(stale));
+    assertThat(calls.get(), is(1));
+  }
+
+  @Test
+  public void shouldNotOpenCircuitForClientErrors() {
+    ReferenceDataLoader<FacilityDto> loader = createLoader(id -> {
+      calls.incrementAndGet();
+      throw new ReferenceDataRetrievalException("Facility", HttpStatus.BAD_REQUEST, "");
+    });
+    loader.setCircuitBreaker(new CircuitBreaker(1, 60000));
+    UUID other = UUID.randomUUID();
+
+    assertRetrievalFails(loader, other, ReferenceDataRetrievalException.class);
+    assertRetrievalFails(loader, other, ReferenceDataRetrievalException.class);
+
+    assertThat(calls.get(), is(2));
+    assertThat(loader.getCircuitBreaker().getState(), is(CircuitBreaker.State.CLOSED));
+  }
+
+  @Test
+  public void shouldRememberObjectsThatDoNotExist() {
+    ReferenceDataLoader<FacilityDto> loader = createLoader(id -> {
+      calls.incrementAndGet();
+      return null;
+    });
+    ReferenceDataCache<Boolean> notFoundCache = new ReferenceDataCache<>("notFound", 10, 1000);
+    loader.setNotFoundCache(notFoundCache);
+    UUID other = UUID.randomUUID();
+
+    assertThat(loader.load(other), is(nullValue()));
+    assertThat(loader.load(other), is(nullValue()));
+
+    assertThat(calls.get(), is(1));
+    assertThat(notFoundCache.getHitCount(), is(1L));
+    assertThat(notFoundCache.size(), is(1));
+  }
+
+  @Test
+  public void shouldNotRememberObjectsMissingFromBulkResponse() {
+    FacilityDto other = new FacilityDto();
+    other.setId(UUID.randomUUID());
+    ReferenceDataLoader<FacilityDto> loader = createLoader(id -> {
+      calls.incrementAndGet();
+      return other;
+    });
+    ReferenceDataCache<Boolean> notFoundCache = new ReferenceDataCache<>("notFound", 10, 1000);
+    loader.setNotFoundCache(notFoundCache);
+
+    Map<UUID, FacilityDto> result = loader.loadAll(Sets.newHashSet(ID, other.getId()), 10,
+        chunk -> Collections.emptyList());
+
+    assertThat(result.isEmpty(), is(true));
+    assertThat(notFoundCache.size(), is(0));
+    assertThat(cache.getStale(ID), is(stale));
+    assertThat(loader.load(other.getId()), is(other));
+    assertThat(calls.get(), is(1));
+  }
+
+  @Test
+  public void shouldServeObjectsFromLoadedSnapshot() {
+    ReferenceDataLoader<FacilityDto> loader = createLoader(failing());
+
+    FacilityDto snapshotted = new FacilityDto();
+    snapshotted.setId(ID);
+    loader.getSnapshot().replace(Collections.singletonList(snapshotted));
+
+    Map<UUID, FacilityDto> result = loader.loadAll(Collections.singleton(ID), 10, chunk -> {
+      calls.incrementAndGet();
+      return Collections.emptyList();
+    });
+
+    assertThat(loader.load(ID), is(snapshotted));
+    assertThat(result.get(ID), is(snapshotted));
+    assertThat(calls.get(), is(0));
+  }
+
+  private ReferenceDataLoader<FacilityDto> createLoader(Function<UUID, FacilityDto> retriever) {
+    ReferenceDataLoader<FacilityDto> loader = new ReferenceDataLoader<>(
+        retriever, UnsupportedOperationException::new
+    );
+    loader.setCache(cache);
+
+    return loader;
+  }
+
+  private Function<UUID, FacilityDto> failing() {
+    return id -> {
+      calls.incrementAndGet();
+      throw new ResourceAccessException("timeout");
+    };
+  }
+
+  private void assertRetrievalFails(ReferenceDataLoader<FacilityDto> loader, UUID id,
+                                    Class<? extends RuntimeException> expected) {
+    try {
+      loader.load(id);
+    } catch (RuntimeException exp) {
+      assertThat(exp.getClass().getName(), is(expected.getName()));
+      return;
+    }
+
+    throw new AssertionError("Retrieval should fail");
+  }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.service.referencedata;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+
+public class ReferenceDataSnapshotTest {
+  private Clock clock = mock(Clock.class);
+  private ReferenceDataSnapshot<FacilityDto> snapshot;
+
+  @Before
+  public void setUp() {
+    when(clock.millis()).thenReturn(0L);
+    snapshot = new ReferenceDataSnapshot<>(clock);
+  }
+
+  @Test
+  public void shouldNotReturnObjectsBeforeSnapshotIsLoaded() {
+    assertThat(snapshot.isLoaded(), is(false));
+    assertThat(snapshot.get(UUID.randomUUID()), is(nullValue()));
+    assertThat(snapshot.getAge(), is(-1L));
+  }
+
+  @Test
+  public void shouldReturnObjectFromLoadedSnapshot() {
+    FacilityDto facility = facility(UUID.randomUUID());
+    snapshot.replace(Collections.singletonList(facility));
+
+    when(clock.millis()).thenReturn(100L);
+
+    assertThat(snapshot.isLoaded(), is(true));
+    assertThat(snapshot.get(facility.getId()), is(facility));
+    assertThat(snapshot.getHitCount(), is(1L));
+    assertThat(snapshot.getAge(), is(100L));
+  }
+
+  @Test
+  public void shouldNotReturnObjectsFromExpiredSnapshot() {
+    FacilityDto facility = facility(UUID.randomUUID());
+    snapshot.setMaxAge(100);
+    snapshot.replace(Collections.singletonList(facility));
+
+    when(clock.millis()).thenReturn(100L);
+    assertThat(snapshot.isExpired(), is(false));
+    assertThat(snapshot.get(facility.getId()), is(facility));
+
+    when(clock.millis()).thenReturn(101L);
+    assertThat(snapshot.isExpired(), is(true));
+    assertThat(snapshot.get(facility.getId()), is(nullValue()));
+
+    snapshot.replace(Collections.singletonList(facility));
+    assertThat(snapshot.isExpired(), is(false));
+    assertThat(snapshot.get(facility.getId()), is(facility));
+  }
+
+  @Test
+  public void shouldReportChangesWhenSnapshotIsReplaced() {
+    FacilityDto kept = facility(UUID.randomUUID());
+    FacilityDto removed = facility(UUID.randomUUID());
+    FacilityDto added = facility(UUID.randomUUID());
+
+    snapshot.replace(Arrays.asList(kept, removed));
+    ReferenceDataSnapshot.Delta delta = snapshot.replace(Arrays.asList(kept, added));
+
+    assertThat(delta.getSize(), is(2));
+    assertThat(delta.getAdded(), is(1));
+    assertThat(delta.getRemoved(), is(1));
+    assertThat(snapshot.get(removed.getId()), is(nullValue()));
+    assertThat(snapshot.get(added.getId()), is(added));
+  }
+
+  private FacilityDto facility(UUID id) {
+    FacilityDto facility = new FacilityDto();
+    facility.setId(id);
+    return facility;
+  }
+
+}
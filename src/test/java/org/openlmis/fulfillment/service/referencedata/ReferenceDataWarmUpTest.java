@@ -0,0 +1,141 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.service.referencedata;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.anyMapOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.Clock;
+import java.util.Collections;
+import java.util.UUID;
+
+public class ReferenceDataWarmUpTest {
+  private FacilityReferenceDataService facilities = mock(FacilityReferenceDataService.class);
+  private ProgramReferenceDataService programs = mock(ProgramReferenceDataService.class);
+  private OrderableReferenceDataService orderables = mock(OrderableReferenceDataService.class);
+
+  private ReferenceDataWarmUp warmUp = new ReferenceDataWarmUp();
+
+  @Before
+  public void setUp() {
+    ReflectionTestUtils.setField(warmUp, "facilityReferenceDataService", facilities);
+    ReflectionTestUtils.setField(warmUp, "programReferenceDataService", programs);
+    ReflectionTestUtils.setField(warmUp, "orderableReferenceDataService", orderables);
+
+    mockLoader(facilities);
+    mockLoader(programs);
+    mockLoader(orderables);
+  }
+
+  @Test
+  public void shouldDoNothingIfSnapshotsAreDisabled() {
+    warmUp.refresh();
+
+    assertThat(warmUp.isReady(), is(true));
+    verifyZeroInteractions(facilities, programs, orderables);
+  }
+
+  @Test
+  public void shouldLoadSnapshotsOfAllServices() {
+    ReflectionTestUtils.setField(warmUp, "enabled", true);
+    assertThat(warmUp.isReady(), is(false));
+
+    FacilityDto facility = new FacilityDto();
+    facility.setId(UUID.randomUUID());
+
+    when(facilities.findAll(anyString(), anyMapOf(String.class, Object.class)))
+        .thenReturn(Collections.singletonList(facility));
+    when(programs.findAll(anyString(), anyMapOf(String.class, Object.class)))
+        .thenReturn(Collections.emptyList());
+    when(orderables.findAll(anyString(), anyMapOf(String.class, Object.class)))
+        .thenReturn(Collections.emptyList());
+
+    warmUp.refresh();
+
+    assertThat(warmUp.isReady(), is(true));
+    assertThat(warmUp.isExpired(), is(false));
+    assertThat(facilities.getLoader().getSnapshot().get(facility.getId()), is(facility));
+  }
+
+  @Test
+  public void shouldNotBeReadyIfSnapshotCouldNotBeLoaded() {
+    ReflectionTestUtils.setField(warmUp, "enabled", true);
+
+    when(facilities.findAll(anyString(), anyMapOf(String.class, Object.class)))
+        .thenThrow(new ResourceAccessException("timeout"));
+    when(programs.findAll(anyString(), anyMapOf(String.class, Object.class)))
+        .thenReturn(Collections.emptyList());
+    when(orderables.findAll(anyString(), anyMapOf(String.class, Object.class)))
+        .thenReturn(Collections.emptyList());
+
+    warmUp.refresh();
+
+    assertThat(warmUp.isReady(), is(false));
+    assertThat(programs.getLoader().getSnapshot().isLoaded(), is(true));
+  }
+
+  @Test
+  public void shouldExpireSnapshotThatCouldNotBeRefreshedInTime() {
+    ReflectionTestUtils.setField(warmUp, "enabled", true);
+    ReflectionTestUtils.setField(warmUp, "maxAge", 1000L);
+
+    Clock clock = mock(Clock.class);
+    when(clock.millis()).thenReturn(0L);
+    ReflectionTestUtils.setField(
+        facilities.getLoader(), "snapshot", new ReferenceDataSnapshot<>(clock)
+    );
+
+    FacilityDto facility = new FacilityDto();
+    facility.setId(UUID.randomUUID());
+
+    when(facilities.findAll(anyString(), anyMapOf(String.class, Object.class)))
+        .thenReturn(Collections.singletonList(facility))
+        .thenThrow(new ResourceAccessException("timeout"));
+    when(programs.findAll(anyString(), anyMapOf(String.class, Object.class)))
+        .thenReturn(Collections.emptyList());
+    when(orderables.findAll(anyString(), anyMapOf(String.class, Object.class)))
+        .thenReturn(Collections.emptyList());
+
+    warmUp.refresh();
+    when(clock.millis()).thenReturn(1001L);
+    warmUp.refresh();
+
+    assertThat(warmUp.isReady(), is(true));
+    assertThat(warmUp.isExpired(), is(true));
+    assertThat(facilities.getLoader().getSnapshot().get(facility.getId()), is(nullValue()));
+  }
+
+  private <T extends BaseDto> void mockLoader(BaseReferenceDataService<T> service) {
+    ReferenceDataLoader<T> loader = new ReferenceDataLoader<>(
+        id -> null, UnsupportedOperationException::new
+    );
+
+    when(service.getLoader()).thenReturn(loader);
+    when(service.getResourceName()).thenReturn("resource");
+  }
+
+}
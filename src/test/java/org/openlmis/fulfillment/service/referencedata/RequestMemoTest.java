@@ -0,0 +1,94 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.service.referencedata;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+public class RequestMemoTest {
+  private static final UUID ID = UUID.randomUUID();
+
+  private RequestMemo<String> memo = new RequestMemo<>("test");
+  private AtomicInteger calls = new AtomicInteger();
+
+  @After
+  public void tearDown() {
+    RequestContextHolder.resetRequestAttributes();
+  }
+
+  @Test
+  public void shouldLoadObjectOnlyOncePerRequest() {
+    startRequest();
+
+    assertThat(memo.computeIfAbsent(ID, loader("value")), is("value"));
+    assertThat(memo.computeIfAbsent(ID, loader("other")), is("value"));
+    assertThat(memo.get(ID), is("value"));
+    assertThat(calls.get(), is(1));
+  }
+
+  @Test
+  public void shouldRememberThatObjectDoesNotExist() {
+    startRequest();
+
+    assertThat(memo.computeIfAbsent(ID, loader(null)), is(nullValue()));
+    assertThat(memo.computeIfAbsent(ID, loader("value")), is(nullValue()));
+    assertThat(calls.get(), is(1));
+  }
+
+  @Test
+  public void shouldNotShareObjectsBetweenRequests() {
+    startRequest();
+    memo.computeIfAbsent(ID, loader("value"));
+
+    startRequest();
+    assertThat(memo.get(ID), is(nullValue()));
+    assertThat(memo.computeIfAbsent(ID, loader("other")), is("other"));
+    assertThat(calls.get(), is(2));
+  }
+
+  @Test
+  public void shouldAlwaysLoadObjectOutsideOfRequest() {
+    memo.put(ID, "value");
+
+    assertThat(memo.computeIfAbsent(ID, loader("first")), is("first"));
+    assertThat(memo.computeIfAbsent(ID, loader("second")), is("second"));
+    assertThat(calls.get(), is(2));
+  }
+
+  private void startRequest() {
+    RequestContextHolder.setRequestAttributes(
+        new ServletRequestAttributes(new MockHttpServletRequest()));
+  }
+
+  private Function<UUID, String> loader(String value) {
+    return id -> {
+      calls.incrementAndGet();
+      return value;
+    };
+  }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.service.referencedata;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SingleFlightTest {
+  private static final UUID ID = UUID.randomUUID();
+  private static final int CALLERS = 5;
+
+  private SingleFlight<String> singleFlight = new SingleFlight<>();
+  private AtomicInteger loads = new AtomicInteger();
+
+  @Test
+  public void shouldShareOneRetrievalBetweenConcurrentCallers() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+    List<Future<String>> results = new ArrayList<>();
+
+    for (int i = 0; i < CALLERS; ++i) {
+      results.add(executor.submit(() -> singleFlight.execute(ID, id -> {
+        loads.incrementAndGet();
+        await(release);
+        return "value";
+      })));
+    }
+
+    waitForCoalescedCalls(CALLERS - 1);
+    release.countDown();
+
+    for (Future<String> result : results) {
+      assertThat(result.get(1, TimeUnit.SECONDS), is("value"));
+    }
+
+    executor.shutdown();
+
+    assertThat(loads.get(), is(1));
+    assertThat(singleFlight.getCallCount(), is(1L));
+    assertThat(singleFlight.getCoalescedCount(), is((long) CALLERS - 1));
+    assertThat(singleFlight.getCoalescingRatio(), is(closeTo(0.8, 0.001)));
+  }
+
+  @Test
+  public void shouldPassExceptionToAllConcurrentCallers() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    List<Future<String>> results = new ArrayList<>();
+
+    for (int i = 0; i < 2; ++i) {
+      results.add(executor.submit(() -> singleFlight.execute(ID, id -> {
+        await(release);
+        throw new IllegalStateException("failed");
+      })));
+    }
+
+    waitForCoalescedCalls(1);
+    release.countDown();
+
+    for (Future<String> result : results) {
+      try {
+        result.get(1, TimeUnit.SECONDS);
+        fail("Exception should be thrown");
+      } catch (ExecutionException exp) {
+        assertThat(exp.getCause().getMessage(), is("failed"));
+      }
+    }
+
+    executor.shutdown();
+  }
+
+  @Test
+  public void shouldNotCoalesceSequentialCalls() {
+    singleFlight.execute(ID, id -> "first");
+
+    assertThat(singleFlight.execute(ID, id -> "second"), is("second"));
+    assertThat(singleFlight.getCallCount(), is(2L));
+    assertThat(singleFlight.getCoalescedCount(), is(0L));
+  }
+
+  private void waitForCoalescedCalls(long expected) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+
+    while (singleFlight.getCoalescedCount() < expected) {
+      if (System.currentTimeMillis() > deadline) {
+        fail("Callers did not join the retrieval in progress");
+      }
+
+      Thread.sleep(5);
+    }
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException exp) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+}
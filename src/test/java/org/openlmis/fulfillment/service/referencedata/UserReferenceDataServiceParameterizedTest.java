@@ -61,6 +61,11 @@ public class UserReferenceDataServiceParameterizedTest
     return new UserDto();
   }
 
+  @Override
+  boolean isSearchedByPost() {
+    return true;
+  }
+
   @Override
   @Before
   public void setUp() throws Exception {
@@ -15,6 +15,7 @@
 
 package org.openlmis.fulfillment.service.referencedata;
 
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.nullValue;
@@ -29,8 +30,10 @@ import org.junit.Test;
 import org.springframework.http.ResponseEntity;
 
 import java.net.URI;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 
 public class UserReferenceDataServiceTest extends BaseReferenceDataServiceTest<UserDto> {
 
@@ -44,6 +47,11 @@ public class UserReferenceDataServiceTest extends BaseReferenceDataServiceTest<U
     return new UserDto();
   }
 
+  @Override
+  boolean isSearchedByPost() {
+    return true;
+  }
+
   @Test
   public void shouldFindUserByName() {
     // given
@@ -109,4 +117,34 @@ public class UserReferenceDataServiceTest extends BaseReferenceDataServiceTest<U
     assertThat(user, is(nullValue()));
   }
 
+  @Test
+  public void shouldGetFulfillmentFacilitiesOfUser() {
+    // given
+    UUID userId = UUID.randomUUID();
+    UUID rightId = UUID.randomUUID();
+
+    FacilityDto facility = new FacilityDto();
+    facility.setId(UUID.randomUUID());
+
+    UserReferenceDataService service = (UserReferenceDataService) prepareService();
+    ResponseEntity<FacilityDto[]> response = mock(ResponseEntity.class);
+
+    // when
+    when(restTemplate.getForEntity(any(URI.class), eq(FacilityDto[].class)))
+        .thenReturn(response);
+    when(response.getBody()).thenReturn(new FacilityDto[]{facility});
+
+    Collection<FacilityDto> facilities = service.getFulfillmentFacilities(userId, rightId);
+
+    // then
+    verify(restTemplate).getForEntity(uriCaptor.capture(), eq(FacilityDto[].class));
+
+    URI uri = uriCaptor.getValue();
+    String url = service.getReferenceDataUrl() + service.getUrl() + userId
+        + "/fulfillmentFacilities?" + ACCESS_TOKEN + "&rightId=" + rightId;
+
+    assertThat(uri.toString(), is(equalTo(url)));
+    assertThat(facilities, contains(facility));
+  }
+
 }
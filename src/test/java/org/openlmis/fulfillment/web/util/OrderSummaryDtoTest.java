@@ -0,0 +1,107 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *  
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org. 
+ */
+
+package org.openlmis.fulfillment.web.util;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Sets;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.openlmis.fulfillment.domain.OrderStatus;
+import org.openlmis.fulfillment.domain.OrderSummary;
+import org.openlmis.fulfillment.service.referencedata.FacilityDto;
+import org.openlmis.fulfillment.service.referencedata.FacilityReferenceDataService;
+import org.openlmis.fulfillment.service.referencedata.ProgramDto;
+import org.openlmis.fulfillment.service.referencedata.ProgramReferenceDataService;
+
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+@RunWith(MockitoJUnitRunner.class)
+public class OrderSummaryDtoTest {
+
+  @Mock
+  private FacilityReferenceDataService facilities;
+
+  @Mock
+  private ProgramReferenceDataService programs;
+
+  @Test
+  public void shouldResolveNamesOfFacilitiesAndProgramsInBulk() {
+    UUID warehouseId = UUID.randomUUID();
+    UUID firstFacilityId = UUID.randomUUID();
+    UUID secondFacilityId = UUID.randomUUID();
+    UUID programId = UUID.randomUUID();
+
+    OrderSummary first = new OrderSummary(UUID.randomUUID(), "O1", OrderStatus.ORDERED,
+        ZonedDateTime.now(), false, programId, firstFacilityId, warehouseId);
+    OrderSummary second = new OrderSummary(UUID.randomUUID(), "O2", OrderStatus.SHIPPED,
+        ZonedDateTime.now(), true, programId, secondFacilityId, warehouseId);
+
+    when(facilities.findByIds(Sets.newHashSet(warehouseId, firstFacilityId, secondFacilityId)))
+        .thenReturn(ImmutableMap.of(
+            warehouseId, facility(warehouseId, "Warehouse"),
+            firstFacilityId, facility(firstFacilityId, "Clinic")
+        ));
+    when(programs.findByIds(Collections.singleton(programId)))
+        .thenReturn(ImmutableMap.of(programId, program(programId, "Family Planning")));
+
+    List<OrderSummaryDto> dtos = OrderSummaryDto.newInstance(
+        Arrays.asList(first, second), facilities, programs
+    );
+
+    assertThat(dtos, hasSize(2));
+    assertThat(dtos.get(0).getOrderCode(), is("O1"));
+    assertThat(dtos.get(0).getRequestingFacilityName(), is("Clinic"));
+    assertThat(dtos.get(0).getSupplyingFacilityName(), is("Warehouse"));
+    assertThat(dtos.get(0).getProgramName(), is("Family Planning"));
+    assertThat(dtos.get(1).getStatus(), is(OrderStatus.SHIPPED));
+    assertThat(dtos.get(1).getEmergency(), is(true));
+    assertThat(dtos.get(1).getRequestingFacilityId(), is(secondFacilityId));
+    assertThat(dtos.get(1).getRequestingFacilityName(), is(nullValue()));
+
+    verify(facilities, times(1)).findByIds(Sets.newHashSet(
+        warehouseId, firstFacilityId, secondFacilityId));
+    verify(programs, times(1)).findByIds(Collections.singleton(programId));
+  }
+
+  private FacilityDto facility(UUID id, String name) {
+    FacilityDto facility = new FacilityDto();
+    facility.setId(id);
+    facility.setName(name);
+    return facility;
+  }
+
+  private ProgramDto program(UUID id, String name) {
+    ProgramDto program = new ProgramDto();
+    program.setId(id);
+    program.setName(name);
+    return program;
+  }
+}